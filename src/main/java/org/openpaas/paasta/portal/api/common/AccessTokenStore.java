@@ -0,0 +1,144 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 만료 시각 순으로 정렬된 크기 제한 토큰 저장소.
+ * 만료된 토큰은 expire 호출 시 지우며, 최대 개수를 넘으면 가장 먼저 만료되는 토큰부터 지운다.
+ * 따라서 보관하는 토큰 수(메모리)는 프로세스 실행 시간과 관계없이 maxSize 를 넘지 않는다.
+ */
+public class AccessTokenStore {
+
+    private final int maxSize;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private final TreeSet<Entry> byExpiration = new TreeSet<>((a, b) -> {
+        int compare = Long.compare(a.expiresAt, b.expiresAt);
+        return compare != 0 ? compare : Long.compare(a.sequence, b.sequence);
+    });
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public AccessTokenStore(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 토큰을 보관한다. 같은 키의 이전 토큰은 대체된다.
+     *
+     * @param key       the key
+     * @param token     the token
+     * @param expiresAt 만료 시각(epoch millis)
+     */
+    public synchronized void put(String key, OAuth2AccessToken token, long expiresAt) {
+        final Entry previous = entries.remove(key);
+        if (null != previous) byExpiration.remove(previous);
+
+        final Entry entry = new Entry(key, token, expiresAt, sequence.incrementAndGet());
+        entries.put(key, entry);
+        byExpiration.add(entry);
+
+        while (entries.size() > maxSize) {
+            final Entry eldest = byExpiration.pollFirst();
+            entries.remove(eldest.key);
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 토큰을 반환한다. 없으면 null.
+     *
+     * @param key the key
+     * @return OAuth2AccessToken
+     */
+    public synchronized OAuth2AccessToken get(String key) {
+        final Entry entry = entries.get(key);
+        return null == entry ? null : entry.token;
+    }
+
+    /**
+     * 토큰을 지운다.
+     *
+     * @param key the key
+     */
+    public synchronized void remove(String key) {
+        final Entry entry = entries.remove(key);
+        if (null != entry) byExpiration.remove(entry);
+    }
+
+    /**
+     * now 이전에 만료된 토큰을 모두 지운다.
+     *
+     * @param now 기준 시각(epoch millis)
+     * @return int 지운 토큰 수
+     */
+    public synchronized int expire(long now) {
+        int count = 0;
+        while (!byExpiration.isEmpty() && byExpiration.first().expiresAt <= now) {
+            final Entry entry = byExpiration.pollFirst();
+            entries.remove(entry.key);
+            count++;
+        }
+        expiredCount.addAndGet(count);
+        return count;
+    }
+
+    /**
+     * deadline 이전에 만료되는 토큰의 키 목록을 만료 시각 순으로 반환한다.
+     *
+     * @param deadline 기준 시각(epoch millis)
+     * @return List key
+     */
+    public synchronized List<String> expiringBefore(long deadline) {
+        final List<String> keys = new ArrayList<>();
+        for (Entry entry : byExpiration) {
+            if (entry.expiresAt > deadline) break;
+            keys.add(entry.key);
+        }
+        return keys;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 저장소 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("expired", expiredCount.get());
+        stats.put("eviction", evictionCount.get());
+        return stats;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final OAuth2AccessToken token;
+        private final long expiresAt;
+        private final long sequence;
+
+        private Entry(String key, OAuth2AccessToken token, long expiresAt, long sequence) {
+            this.key = key;
+            this.token = token;
+            this.expiresAt = expiresAt;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.cloudfoundry.reactor.ConnectionContext;
+import org.cloudfoundry.reactor.DefaultConnectionContext;
+import org.cloudfoundry.reactor.client.ReactorCloudFoundryClient;
+import org.openpaas.paasta.portal.api.config.cloudfoundry.provider.TokenGrantTokenProvider;
+import org.openpaas.paasta.portal.api.service.LoginService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 관리자 토큰과 관리자 ReactorCloudFoundryClient 를 보관한다.
+ * 토큰 갱신은 한 번에 하나의 요청만 수행(single-flight)하며, 만료 전에 백그라운드에서 미리 갱신한다.
+ * 갱신된 값은 AtomicReference 로 교체되므로 조회 시 잠금이 없다.
+ * 기동이 끝나면 백그라운드에서 바로 로그인하므로, 첫 요청이 로그인을 기다리지 않는다.
+ */
+@Component
+public class AdminCredentialHolder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdminCredentialHolder.class);
+
+    /**
+     * 만료 몇 ms 전에 갱신할지 (토큰 유효기간의 1/5 과 비교하여 작은 값을 사용한다)
+     */
+    private static final long REFRESH_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * 갱신 실패 시 재시도 간격
+     */
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    @Value("${cloudfoundry.user.admin.username}")
+    private String adminUserName;
+
+    @Value("${cloudfoundry.user.admin.password}")
+    private String adminPassword;
+
+    @Autowired
+    @Lazy
+    private LoginService loginService;
+
+    @Autowired
+    private DefaultConnectionContext connectionContext;
+
+    private final AtomicReference<AdminCredential> credential = new AtomicReference<>();
+
+    private final AtomicReference<CompletableFuture<AdminCredential>> inFlight = new AtomicReference<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "admin-token-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ScheduledFuture<?> scheduledRefresh;
+
+    /**
+     * 유효한 관리자 토큰 값을 반환한다.
+     *
+     * @return String token
+     */
+    public String getToken() {
+        return current().token;
+    }
+
+    /**
+     * 관리자 토큰 값을 Mono 로 반환한다. 보관된 토큰이 유효하면 바로 반환하고,
+     * 갱신이 필요하면 로그인을 elastic 스레드에서 기다리므로 event loop 스레드에서 사용할 수 있다.
+     *
+     * @return Mono<String> token
+     */
+    public Mono<String> tokenMono() {
+        return Mono.defer(() -> {
+            AdminCredential current = credential.get();
+            if (null != current && !current.isExpired()) {
+                return Mono.just(current.token);
+            }
+            return Mono.fromCallable(this::getToken).subscribeOn(Schedulers.elastic());
+        });
+    }
+
+    /**
+     * 관리자 토큰을 제공하는 TokenGrantTokenProvider 를 반환한다.
+     *
+     * @return TokenGrantTokenProvider
+     */
+    public TokenGrantTokenProvider tokenProvider() {
+        return current().tokenProvider;
+    }
+
+    /**
+     * 관리자 ReactorCloudFoundryClient 를 반환한다.
+     *
+     * @param connectionContext the connection context
+     * @return ReactorCloudFoundryClient
+     */
+    public ReactorCloudFoundryClient cloudFoundryClient(ConnectionContext connectionContext) {
+        AdminCredential current = current();
+        if (connectionContext == this.connectionContext) {
+            return current.client;
+        }
+        return Common.cloudFoundryClient(connectionContext, current.tokenProvider);
+    }
+
+    /**
+     * 현재 관리자 토큰을 버리고 즉시 갱신한다.
+     */
+    public void invalidate() {
+        credential.set(null);
+        refresh();
+    }
+
+    /**
+     * 기동이 끝나면 관리자 토큰을 미리 받는다. 실패하면 갱신과 같은 간격으로 재시도한다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (null == credential.get()) {
+            schedule(0L);
+        }
+    }
+
+    private AdminCredential current() {
+        AdminCredential current = credential.get();
+        if (null != current && !current.isExpired()) {
+            return current;
+        }
+        return refresh();
+    }
+
+    /**
+     * 관리자 토큰을 갱신한다. 이미 갱신 중이면 해당 결과를 기다린다.
+     */
+    private AdminCredential refresh() {
+        CompletableFuture<AdminCredential> future = new CompletableFuture<>();
+        if (!inFlight.compareAndSet(null, future)) {
+            CompletableFuture<AdminCredential> running = inFlight.get();
+            if (null != running) {
+                return await(running);
+            }
+            return current();
+        }
+
+        try {
+            AdminCredential refreshed = login();
+            credential.set(refreshed);
+            scheduleRefresh(refreshed);
+            future.complete(refreshed);
+            return refreshed;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            scheduleRetry();
+            throw new IllegalStateException("Admin token refresh failed", e);
+        } finally {
+            inFlight.compareAndSet(future, null);
+        }
+    }
+
+    private AdminCredential login() throws Exception {
+        OAuth2AccessToken token = loginService.login(adminUserName, adminPassword);
+        long expiresAt = null != token.getExpiration() ? token.getExpiration().getTime() : System.currentTimeMillis() + (token.getExpiresIn() * 1000L);
+        TokenGrantTokenProvider tokenProvider = Common.tokenProvider(token.getValue());
+        ReactorCloudFoundryClient client = ReactorCloudFoundryClient.builder().connectionContext(connectionContext).tokenProvider(tokenProvider).build();
+        LOGGER.info("관리자 토큰 재생산");
+        return new AdminCredential(token.getValue(), expiresAt, tokenProvider, client);
+    }
+
+    private void scheduleRefresh(AdminCredential refreshed) {
+        long lifetime = refreshed.expiresAt - System.currentTimeMillis();
+        long delay = lifetime - Math.min(REFRESH_MARGIN_MILLIS, lifetime / 5);
+        schedule(Math.max(delay, 0L));
+    }
+
+    private void scheduleRetry() {
+        schedule(RETRY_DELAY_MILLIS);
+    }
+
+    private synchronized void schedule(long delayMillis) {
+        if (scheduler.isShutdown()) return;
+        if (null != scheduledRefresh) {
+            scheduledRefresh.cancel(false);
+        }
+        scheduledRefresh = scheduler.schedule(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                LOGGER.error("Background admin token refresh failed : {}", e.getMessage());
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static AdminCredential await(CompletableFuture<AdminCredential> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Admin token refresh failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class AdminCredential {
+        private final String token;
+        private final long expiresAt;
+        private final TokenGrantTokenProvider tokenProvider;
+        private final ReactorCloudFoundryClient client;
+
+        private AdminCredential(String token, long expiresAt, TokenGrantTokenProvider tokenProvider, ReactorCloudFoundryClient client) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+            this.tokenProvider = tokenProvider;
+            this.client = client;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.openpaas.paasta.portal.api.util.JwtUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * 앱 파일(zip)을 CC 에 업로드한다. (PUT /v2/apps/{guid}/bits)
+ * 요청 본문을 메모리나 디스크에 모으지 않고 읽는 대로 보내므로, 다운로드 stream 을 그대로 업로드할 수 있다.
+ * CC 직접 호출이므로 cloudfoundry.cc.api.sslSkipValidation 을 따르는 uaaHttpClient 를 사용한다.
+ */
+@Component
+public class ApplicationBitsUploader {
+
+    private static final MediaType APPLICATION_ZIP = MediaType.parseMediaType("application/zip");
+
+    @Value("${cloudfoundry.cc.api.url}")
+    private String apiTarget;
+
+    private final RestTemplate restTemplate;
+
+    @Autowired
+    public ApplicationBitsUploader(@Qualifier("uaaHttpClient") CloseableHttpClient httpClient) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setBufferRequestBody(false);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    /**
+     * 앱 파일을 업로드한다.
+     *
+     * @param applicationId the application id
+     * @param token         the token
+     * @param fileName      업로드 파일 이름
+     * @param inputStream   앱 파일(zip) stream
+     */
+    public void upload(String applicationId, String token, String fileName, InputStream inputStream) {
+        HttpHeaders partHeaders = new HttpHeaders();
+        partHeaders.setContentType(APPLICATION_ZIP);
+
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("resources", "[]");
+        body.add("application", new HttpEntity<>(new StreamResource(inputStream, fileName), partHeaders));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.AUTHORIZATION, "bearer " + JwtUtils.stripBearer(token));
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        restTemplate.exchange(apiTarget + "/v2/apps/{guid}/bits", HttpMethod.PUT, new HttpEntity<>(body, headers), Map.class, applicationId);
+    }
+
+    /**
+     * 파일 이름을 가진 1회용 stream. 길이를 미리 읽지 않도록 contentLength 는 -1(알 수 없음)을 반환한다.
+     */
+    private static final class StreamResource extends InputStreamResource {
+        private final String fileName;
+
+        private StreamResource(InputStream inputStream, String fileName) {
+            super(inputStream);
+            this.fileName = fileName;
+        }
+
+        @Override
+        public String getFilename() {
+            return fileName;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+    }
+}
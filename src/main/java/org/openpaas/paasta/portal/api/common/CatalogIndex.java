@@ -0,0 +1,201 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.cloudfoundry.client.v2.serviceplans.ListServicePlansRequest;
+import org.cloudfoundry.client.v2.serviceplans.ServicePlanResource;
+import org.cloudfoundry.client.v2.serviceplanvisibilities.ListServicePlanVisibilitiesRequest;
+import org.cloudfoundry.client.v2.serviceplanvisibilities.ServicePlanVisibilityResource;
+import org.cloudfoundry.client.v2.services.ListServicesRequest;
+import org.cloudfoundry.client.v2.services.ServiceResource;
+import org.cloudfoundry.reactor.DefaultConnectionContext;
+import org.cloudfoundry.reactor.client.ReactorCloudFoundryClient;
+import org.openpaas.paasta.portal.api.util.PageUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 서비스 카탈로그 색인(라벨 -> 서비스, 서비스 GUID -> 플랜 목록, 플랜 GUID -> 접근 허용 목록)을 보관한다.
+ * 관리자 권한으로 서비스/플랜/접근 허용 목록 전체를 한 번에 읽어 만들며, refreshInterval 마다 백그라운드에서 다시 만든다.
+ * 갱신 중에는 이전 색인을 그대로 사용한다. 브로커/플랜/접근 허용을 변경하는 곳에서 invalidate 를 호출해야 한다.
+ */
+@Component
+public class CatalogIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CatalogIndex.class);
+
+    @Value("${cloudfoundry.cc.api.catalogRefreshInterval:300000}")
+    private long refreshIntervalMillis = 300000;
+
+    @Autowired
+    private AdminCredentialHolder adminCredentialHolder;
+
+    @Autowired
+    private DefaultConnectionContext connectionContext;
+
+    private final MonoCache<Snapshot> loader = new MonoCache<>(4, Duration.ofMinutes(5));
+
+    /**
+     * invalidate 될 때마다 증가한다. 변경 전에 시작된 조회 결과가 변경 후 색인을 덮어쓰지 않도록 한다.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Snapshot snapshot;
+
+    private volatile boolean scheduled;
+
+    /**
+     * 현재 색인을 반환한다. 색인이 없으면(최초 또는 invalidate 직후) 새로 만든다.
+     * 같은 시점의 동시 요청은 하나의 조회를 공유한다.
+     *
+     * @return Mono<Snapshot>
+     */
+    public Mono<Snapshot> snapshot() {
+        return Mono.defer(() -> {
+            final Snapshot current = snapshot;
+            if (null != current) {
+                hitCount.incrementAndGet();
+                return Mono.just(current);
+            }
+            missCount.incrementAndGet();
+            return load();
+        });
+    }
+
+    /**
+     * 색인을 버린다. 다음 조회는 CC 에서 다시 읽은 색인을 사용한다.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+        LOGGER.debug("Invalidate catalog index");
+    }
+
+    private Mono<Snapshot> load() {
+        final long gen = generation.get();
+        return loader.get(String.valueOf(gen), 0L, () -> {
+            final ReactorCloudFoundryClient client = adminCredentialHolder.cloudFoundryClient(connectionContext);
+            return Mono.zip(
+                    PageUtils.requestAllResources(page -> client.services().list(ListServicesRequest.builder().page(page).resultsPerPage(PageUtils.MAX_RESULTS_PER_PAGE).build())).collectList(),
+                    PageUtils.requestAllResources(page -> client.servicePlans().list(ListServicePlansRequest.builder().page(page).resultsPerPage(PageUtils.MAX_RESULTS_PER_PAGE).build())).collectList(),
+                    PageUtils.requestAllResources(page -> client.servicePlanVisibilities().list(ListServicePlanVisibilitiesRequest.builder().page(page).resultsPerPage(PageUtils.MAX_RESULTS_PER_PAGE).build())).collectList())
+                    .map(tuple -> new Snapshot(tuple.getT1(), tuple.getT2(), tuple.getT3()))
+                    .doOnNext(created -> {
+                        refreshCount.incrementAndGet();
+                        if (generation.get() == gen) {
+                            snapshot = created;
+                        }
+                        scheduleRefresh();
+                    });
+        });
+    }
+
+    private synchronized void scheduleRefresh() {
+        if (scheduled || refreshIntervalMillis <= 0 || scheduler.isShutdown()) return;
+        scheduled = true;
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                load().block();
+            } catch (Exception e) {
+                LOGGER.error("Catalog index refresh failed : {}", e.getMessage());
+            }
+        }, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 색인 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> stats() {
+        final Snapshot current = snapshot;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("loaded", null != current);
+        stats.put("loadedAt", null == current ? 0L : current.getLoadedAt());
+        stats.put("services", null == current ? 0 : current.getServices().size());
+        stats.put("hit", hitCount.get());
+        stats.put("miss", missCount.get());
+        stats.put("refresh", refreshCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 한 시점의 카탈로그 색인. 만든 뒤에는 바뀌지 않는다.
+     */
+    public static final class Snapshot {
+        private final List<ServiceResource> services;
+        private final Map<String, ServiceResource> servicesByLabel = new HashMap<>();
+        private final Map<String, List<ServicePlanResource>> plansByServiceId = new HashMap<>();
+        private final List<ServicePlanVisibilityResource> visibilities;
+        private final Map<String, List<ServicePlanVisibilityResource>> visibilitiesByPlanId = new HashMap<>();
+        private final long loadedAt = System.currentTimeMillis();
+
+        private Snapshot(List<ServiceResource> services, List<ServicePlanResource> plans, List<ServicePlanVisibilityResource> visibilities) {
+            this.services = Collections.unmodifiableList(new ArrayList<>(services));
+            this.visibilities = Collections.unmodifiableList(new ArrayList<>(visibilities));
+            services.forEach(service -> servicesByLabel.putIfAbsent(service.getEntity().getLabel(), service));
+            final Map<String, List<ServicePlanResource>> plans0 = new LinkedHashMap<>();
+            plans.forEach(plan -> plans0.computeIfAbsent(plan.getEntity().getServiceId(), key -> new ArrayList<>()).add(plan));
+            plans0.forEach((key, value) -> plansByServiceId.put(key, Collections.unmodifiableList(value)));
+            final Map<String, List<ServicePlanVisibilityResource>> visibilities0 = new LinkedHashMap<>();
+            visibilities.forEach(visibility -> visibilities0.computeIfAbsent(visibility.getEntity().getServicePlanId(), key -> new ArrayList<>()).add(visibility));
+            visibilities0.forEach((key, value) -> visibilitiesByPlanId.put(key, Collections.unmodifiableList(value)));
+        }
+
+        public List<ServiceResource> getServices() {
+            return services;
+        }
+
+        public ServiceResource getServiceByLabel(String label) {
+            return servicesByLabel.get(label);
+        }
+
+        public List<ServicePlanResource> getPlans(String serviceId) {
+            return plansByServiceId.getOrDefault(serviceId, Collections.emptyList());
+        }
+
+        public List<ServicePlanVisibilityResource> getVisibilities() {
+            return visibilities;
+        }
+
+        public List<ServicePlanVisibilityResource> getVisibilities(String servicePlanId) {
+            return visibilitiesByPlanId.getOrDefault(servicePlanId, Collections.emptyList());
+        }
+
+        public long getLoadedAt() {
+            return loadedAt;
+        }
+    }
+}
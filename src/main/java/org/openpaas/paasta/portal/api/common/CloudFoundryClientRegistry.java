@@ -0,0 +1,197 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.cloudfoundry.reactor.ConnectionContext;
+import org.cloudfoundry.reactor.TokenProvider;
+import org.cloudfoundry.reactor.client.ReactorCloudFoundryClient;
+import org.openpaas.paasta.portal.api.util.JwtUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 토큰별 ReactorCloudFoundryClient 를 재사용하기 위한 레지스트리.
+ * 토큰 원문 대신 (ConnectionContext, 토큰의 해시)를 키로 사용하며, 토큰 만료(JWT exp) 시점 또는 LRU 순서로 제거된다.
+ * 만료된 클라이언트는 get 호출 시 purgeInterval 마다 한 번씩 모두 정리한다.
+ */
+public class CloudFoundryClientRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CloudFoundryClientRegistry.class);
+
+    /**
+     * 기본 최대 클라이언트 수
+     */
+    public static final int DEFAULT_MAX_SIZE = 512;
+
+    /**
+     * JWT 형식이 아니어서 만료 시각을 알 수 없는 토큰의 보관 시간
+     */
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * 만료된 클라이언트 정리 간격
+     */
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final int maxSize;
+
+    private final LinkedHashMap<Key, Entry> clients;
+
+    private long lastPurgeAt = System.currentTimeMillis();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public CloudFoundryClientRegistry(int maxSize) {
+        this.maxSize = maxSize;
+        this.clients = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > CloudFoundryClientRegistry.this.maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 토큰에 해당하는 ReactorCloudFoundryClient 를 반환한다. 없거나 만료되었으면 새로 생성하여 등록한다.
+     *
+     * @param connectionContext the connection context
+     * @param token             the token
+     * @param tokenProvider     the token provider (새로 생성할 때 사용)
+     * @return ReactorCloudFoundryClient
+     */
+    public ReactorCloudFoundryClient get(ConnectionContext connectionContext, String token, TokenProvider tokenProvider) {
+        final Key key = new Key(connectionContext, JwtUtils.digest(token));
+        final long now = System.currentTimeMillis();
+
+        synchronized (clients) {
+            if (now - lastPurgeAt >= PURGE_INTERVAL_MILLIS) {
+                purgeExpired();
+            }
+
+            Entry entry = clients.get(key);
+            if (null != entry) {
+                if (entry.expiresAt > now) {
+                    hitCount.incrementAndGet();
+                    return entry.client;
+                }
+                clients.remove(key);
+                evictionCount.incrementAndGet();
+            }
+
+            missCount.incrementAndGet();
+            long expiresAt = JwtUtils.getExpirationMillis(token);
+            if (expiresAt <= 0) expiresAt = now + DEFAULT_TTL_MILLIS;
+
+            ReactorCloudFoundryClient client = ReactorCloudFoundryClient.builder().connectionContext(connectionContext).tokenProvider(tokenProvider).build();
+            clients.put(key, new Entry(client, expiresAt));
+            return client;
+        }
+    }
+
+    /**
+     * 만료된 클라이언트를 모두 제거한다.
+     *
+     * @return int 제거된 수
+     */
+    public int purgeExpired() {
+        final long now = System.currentTimeMillis();
+        int removed = 0;
+        synchronized (clients) {
+            lastPurgeAt = now;
+            Iterator<Entry> iterator = clients.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().expiresAt <= now) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            evictionCount.addAndGet(removed);
+            LOGGER.debug("Purged {} expired cloud foundry client(s)", removed);
+        }
+        return removed;
+    }
+
+    public int size() {
+        synchronized (clients) {
+            return clients.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * 레지스트리 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("hit", getHitCount());
+        stats.put("miss", getMissCount());
+        stats.put("eviction", getEvictionCount());
+        return stats;
+    }
+
+    /**
+     * 레지스트리 키. ConnectionContext 는 같은 객체(identity)일 때만 같은 키로 본다.
+     */
+    private static final class Key {
+        private final ConnectionContext connectionContext;
+        private final String tokenDigest;
+
+        private Key(ConnectionContext connectionContext, String tokenDigest) {
+            this.connectionContext = connectionContext;
+            this.tokenDigest = tokenDigest;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key other = (Key) o;
+            return connectionContext == other.connectionContext && tokenDigest.equals(other.tokenDigest);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(connectionContext) + tokenDigest.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        private final ReactorCloudFoundryClient client;
+        private final long expiresAt;
+
+        private Entry(ReactorCloudFoundryClient client, long expiresAt) {
+            this.client = client;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -33,8 +33,18 @@ import org.springframework.security.oauth2.client.token.grant.password.ResourceO
 import org.springframework.security.oauth2.common.AuthenticationScheme;
 import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import javax.annotation.PreDestroy;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -82,6 +92,9 @@ public class Common {
     @Value("${monitoring.api.url}")
     public String monitoringApiTarget;
 
+    @Value("${cloudfoundry.cc.api.reactive:false}")
+    public boolean reactiveEnabled;
+
     @Autowired
     private LoginService loginService;
 
@@ -91,14 +104,17 @@ public class Common {
     @Autowired
     PasswordGrantTokenProvider tokenProvider;
 
+    @Autowired
+    AdminCredentialHolder adminCredentialHolder;
+
+    @Autowired
+    protected TokenIdentityCache tokenIdentityCache;
 
-    public ObjectMapper objectMapper = new ObjectMapper();
 
-    private static ReactorCloudFoundryClient adminReactorCloudFoundryClient;
+    public ObjectMapper objectMapper = new ObjectMapper();
 
-    private static long adminTime;
+    private static final CloudFoundryClientRegistry cloudFoundryClientRegistry = new CloudFoundryClientRegistry(CloudFoundryClientRegistry.DEFAULT_MAX_SIZE);
 
-    private static int expiresInTime;
 
     /**
      * 관리자 토큰을 가져온다.
@@ -108,12 +124,21 @@ public class Common {
      */
     public String getToken() {
         try {
-            return loginService.login(adminUserName, adminPassword).getValue();
+            return adminCredentialHolder.getToken();
         } catch (Exception e) {
             return null;
         }
     }
 
+    /**
+     * 관리자 토큰을 Mono 로 가져온다. 토큰 갱신이 필요해도 호출 스레드를 점유하지 않는다.
+     *
+     * @return Mono<String> token
+     */
+    public Mono<String> getTokenMono() {
+        return adminCredentialHolder.tokenMono();
+    }
+
     /**
      * CF Target URL을 가져온다.
      * @param target cf target
@@ -373,29 +398,23 @@ public class Common {
      * @return DefaultCloudFoundryOperations
      */
     public static ReactorCloudFoundryClient cloudFoundryClient(ConnectionContext connectionContext, TokenProvider tokenProvider) {
+        if (tokenProvider instanceof TokenGrantTokenProvider) {
+            return cloudFoundryClientRegistry.get(connectionContext, ((TokenGrantTokenProvider) tokenProvider).getToken(), tokenProvider);
+        }
         return ReactorCloudFoundryClient.builder().connectionContext(connectionContext).tokenProvider(tokenProvider).build();
     }
 
+    /**
+     * 토큰별 ReactorCloudFoundryClient 레지스트리를 반환한다. (hit/miss/eviction 통계 조회용)
+     *
+     * @return CloudFoundryClientRegistry
+     */
+    public static CloudFoundryClientRegistry cloudFoundryClientRegistry() {
+        return cloudFoundryClientRegistry;
+    }
+
     public ReactorCloudFoundryClient cloudFoundryClient(ConnectionContext connectionContext) {
-        try {
-            if (adminReactorCloudFoundryClient == null) {
-                OAuth2AccessToken token = loginService.login(adminUserName, adminPassword);
-                adminTime = System.currentTimeMillis();
-                expiresInTime = token.getExpiresIn();
-                return adminReactorCloudFoundryClient = ReactorCloudFoundryClient.builder().connectionContext(connectionContext).tokenProvider(tokenProvider(token.getValue())).build();
-            } else {
-                if ((System.currentTimeMillis() - adminTime) >= (expiresInTime * 1000)) {
-                    LOGGER.info("관리자 토큰 재생산");
-                    OAuth2AccessToken token = loginService.login(adminUserName, adminPassword);
-                    adminTime = System.currentTimeMillis();
-                    expiresInTime = token.getExpiresIn();
-                    return adminReactorCloudFoundryClient = ReactorCloudFoundryClient.builder().connectionContext(connectionContext).tokenProvider(tokenProvider(token.getValue())).build();
-                }
-                return adminReactorCloudFoundryClient;
-            }
-        } catch (Exception e) {
-            return adminReactorCloudFoundryClient = ReactorCloudFoundryClient.builder().connectionContext(connectionContext).tokenProvider(tokenProvider(getToken())).build();
-        }
+        return adminCredentialHolder.cloudFoundryClient(connectionContext);
     }
 
 
@@ -449,9 +468,6 @@ public class Common {
         return Common.uaaClient(connectionContext, tokenProvider(getTokenByClientCredentialsResponse.getAccessToken()));
     }
 
-    private static final ThreadLocal<DefaultConnectionContext> connectionContextThreadLocal = new ThreadLocal<>();
-
-
     /**
      * DefaultConnectionContext 가져온다.
      *
@@ -463,52 +479,30 @@ public class Common {
 
     /**
      * DefaultConnectionContext 생성하여, 반환한다.
+     * 애플리케이션 전체가 하나의 ConnectionContext(Netty 연결 풀, event loop)를 함께 사용하므로 CfConfigProvider 에서 한 번만 호출한다.
      *
      * @param apiUrl
      * @param skipSSLValidation
+     * @param connectionPoolSize 연결 풀 최대 연결 수
+     * @param threadPoolSize     event loop thread 수
+     * @param keepAlive
+     * @param connectTimeout     연결 제한시간(ms)
      * @return DefaultConnectionContext
      */
-    public static DefaultConnectionContext crateConnectionContext(String apiUrl, boolean skipSSLValidation) {
-        DefaultConnectionContext connectionContext = peekConnectionContext();
-        if (null != connectionContext) {
-            boolean isEqual = connectionContext.getApiHost().equals(convertApiUrl(apiUrl)) && connectionContext.getSkipSslValidation().get() == skipSSLValidation;
-            if (!isEqual) {
-                removeConnectionContext();
-                connectionContext = null;
-            }
-        }
-
-        if (null == connectionContext) {
-            connectionContext = DefaultConnectionContext.builder().apiHost(convertApiUrl(apiUrl)).skipSslValidation(skipSSLValidation).keepAlive(true).build();
-            pushConnectionContext(connectionContext);
-        }
-
+    public static DefaultConnectionContext crateConnectionContext(String apiUrl, boolean skipSSLValidation, int connectionPoolSize, int threadPoolSize, boolean keepAlive, long connectTimeout) {
+        DefaultConnectionContext connectionContext = DefaultConnectionContext.builder()
+                .apiHost(convertApiUrl(apiUrl))
+                .skipSslValidation(skipSSLValidation)
+                .connectionPoolSize(connectionPoolSize)
+                .threadPoolSize(threadPoolSize)
+                .keepAlive(keepAlive)
+                .connectTimeout(Duration.ofMillis(connectTimeout))
+                .build();
+        LOGGER.info("Create connection context : DefalutConnectionContext@{} (connectionPoolSize={}, threadPoolSize={}, keepAlive={}, connectTimeout={}ms)",
+                Integer.toHexString(connectionContext.hashCode()), connectionPoolSize, threadPoolSize, keepAlive, connectTimeout);
         return connectionContext;
     }
 
-    private static DefaultConnectionContext peekConnectionContext() {
-        return connectionContextThreadLocal.get();
-    }
-
-    private static void pushConnectionContext(DefaultConnectionContext connectionContext) {
-        connectionContextThreadLocal.set(connectionContext);
-        LOGGER.info("Create connection context and push thread local : DefalutConnectionContext@{}", Integer.toHexString(connectionContext.hashCode()));
-    }
-
-    private static void removeConnectionContext() {
-        disposeConnectionContext(connectionContextThreadLocal.get());
-        connectionContextThreadLocal.remove();
-    }
-
-
-
-    private static void disposeConnectionContext(DefaultConnectionContext connectionContext) {
-        try {
-            if (null != connectionContext) connectionContext.dispose();
-        } catch (Exception ignore) {
-        }
-    }
-
     /**
      * TokenGrantTokenProvider 생성하여, 반환한다.
      *
@@ -554,19 +548,118 @@ public class Common {
         return PasswordGrantTokenProvider.builder().password(password).username(username).build();
     }
 
-    public PasswordGrantTokenProvider tokenProvider() {
-        return tokenProvider;
+    /**
+     * 관리자 토큰을 제공하는 TokenProvider 를 반환한다.
+     *
+     * @return TokenProvider
+     */
+    public TokenProvider tokenProvider() {
+        return adminCredentialHolder.tokenProvider();
     }
 
     public String adminToken(String token){
         try {
-            String name = Common.uaaClient(connectionContext(), tokenProvider(token)).getUsername().block();
+            String name = tokenIdentityCache.getUsername(token).block();
             if (name.equals("admin")) {
-                return tokenProvider(adminUserName, adminPassword).getToken(connectionContext()).block();
+                return adminCredentialHolder.getToken();
             }
             return token;
         } catch (Exception e){
             return token;
         }
     }
+
+    /**
+     * adminToken 과 동일하나, 호출 스레드를 점유하지 않는 Mono 를 반환한다.
+     *
+     * @param token the token
+     * @return Mono<String> token
+     */
+    public Mono<String> adminTokenMono(String token) {
+        return tokenIdentityCache.getUsername(token)
+                .flatMap(name -> name.equals("admin") ? adminCredentialHolder.tokenMono() : Mono.just(token))
+                .onErrorReturn(token);
+    }
+
+    /**
+     * Mono 의 결과를 DeferredResult 로 전달한다. 컨트롤러에서 비동기 응답으로 사용한다.
+     *
+     * @param mono the mono
+     * @return DeferredResult
+     */
+    public static <T> DeferredResult<T> deferredResult(Mono<T> mono) {
+        return deferredResult(mono, new DeferredResult<>());
+    }
+
+    /**
+     * Mono 의 결과를 DeferredResult 로 전달한다. 오래 걸리는 작업을 위해 응답 제한시간(ms)을 지정한다.
+     *
+     * @param mono          the mono
+     * @param timeoutMillis 응답 제한시간(ms)
+     * @return DeferredResult
+     */
+    public static <T> DeferredResult<T> deferredResult(Mono<T> mono, long timeoutMillis) {
+        return deferredResult(mono, new DeferredResult<>(timeoutMillis));
+    }
+
+    private static <T> DeferredResult<T> deferredResult(Mono<T> mono, DeferredResult<T> deferredResult) {
+        final Disposable subscription = mono.subscribe(deferredResult::setResult, deferredResult::setErrorResult, () -> {
+            if (!deferredResult.isSetOrExpired()) deferredResult.setResult(null);
+        });
+        // 응답 제한시간이 지나거나 요청이 끝나면(클라이언트 연결 끊김 포함) upstream 구독을 취소한다.
+        deferredResult.onTimeout(subscription::dispose);
+        deferredResult.onCompletion(subscription::dispose);
+        return deferredResult;
+    }
+
+    /**
+     * Flux 의 원소를 한 줄에 하나의 JSON 으로(NDJSON) 흘려보내는 응답을 만든다.
+     * 클라이언트 연결이 끊기면 upstream 구독도 취소된다.
+     *
+     * @param flux the flux
+     * @return ResponseEntity<ResponseBodyEmitter>
+     */
+    public static <T> ResponseEntity<ResponseBodyEmitter> ndjson(Flux<T> flux) {
+        final ResponseBodyEmitter emitter = new ResponseBodyEmitter(Constants.STREAMING_TIMEOUT);
+        final Disposable subscription = flux.subscribe(item -> {
+            try {
+                emitter.send(item, MediaType.APPLICATION_JSON);
+                emitter.send("\n", MediaType.TEXT_PLAIN);
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+        }, emitter::completeWithError, emitter::complete);
+        disposeOnClose(emitter, subscription);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(Constants.APPLICATION_NDJSON_VALUE)).body(emitter);
+    }
+
+    /**
+     * Flux 의 원소를 Server-Sent Events 로 흘려보낸다. 각 원소는 eventName 이름의 JSON data 이벤트가 된다.
+     * 클라이언트 연결이 끊기면 upstream 구독도 취소된다.
+     *
+     * @param flux      the flux
+     * @param eventName SSE event 이름
+     * @return SseEmitter
+     */
+    public static <T> SseEmitter sse(Flux<T> flux, String eventName) {
+        final SseEmitter emitter = new SseEmitter(Constants.STREAMING_TIMEOUT);
+        final Disposable subscription = flux.subscribe(item -> {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(item, MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+        }, emitter::completeWithError, emitter::complete);
+        disposeOnClose(emitter, subscription);
+        return emitter;
+    }
+
+    /**
+     * 응답 제한시간이 지나거나 응답이 끝나면 upstream 구독을 취소한다.
+     * Spring 4.3 의 emitter 에는 onError 가 없으며, 클라이언트 연결이 끊긴 경우(async error)에도 onCompletion 이 호출된다.
+     */
+    private static void disposeOnClose(ResponseBodyEmitter emitter, Disposable subscription) {
+        emitter.onTimeout(subscription::dispose);
+        emitter.onCompletion(subscription::dispose);
+    }
 }
@@ -143,4 +143,14 @@ public class Constants {
     public static final String V2_URL = "/v2";
     public static final String V3_URL = "/v3";
 
+    /**
+     * 줄 단위 JSON(NDJSON) 스트리밍 응답 타입
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * 스트리밍 응답 제한시간(ms)
+     */
+    public static final long STREAMING_TIMEOUT = 10 * 60 * 1000L;
+
 }
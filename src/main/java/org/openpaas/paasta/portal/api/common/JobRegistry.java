@@ -0,0 +1,293 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.cloudfoundry.AbstractCloudFoundryException;
+import org.cloudfoundry.client.v2.jobs.GetJobRequest;
+import org.cloudfoundry.client.v2.jobs.JobEntity;
+import org.cloudfoundry.reactor.DefaultConnectionContext;
+import org.cloudfoundry.reactor.TokenProvider;
+import org.openpaas.paasta.portal.api.util.JwtUtils;
+import org.openpaas.paasta.portal.api.util.PageUtils;
+import org.openpaas.paasta.portal.api.util.RetryUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CC 비동기 작업(job, 예 : 조직/공간 삭제)의 진행 상태를 추적한다.
+ * 등록된 작업은 하나의 공유 스케줄러로 관리자 권한으로 조회하며, 추적 중인 상태는 작업을 등록한 토큰으로 조회할 때만 반환한다.
+ * 그 밖의 조회는 호출자의 토큰으로 CC 에 직접 조회하므로 호출자가 볼 수 없는 작업은 볼 수 없다.
+ * 상태가 바뀌지 않으면 조회 간격을 늘린다. (minInterval ~ maxInterval)
+ * 끝난 작업(finished, failed)은 retention 동안 보관한 뒤 지운다.
+ * 조회 오류는 일시적인 오류(5xx, 429, 네트워크)만 maxPollFailures 번까지 다시 조회하며, 그 밖의 오류(404, 401, 403 등)는 작업을 not_found/failed 로 끝낸다.
+ */
+@Component
+public class JobRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobRegistry.class);
+
+    public static final String QUEUED = "queued";
+
+    public static final String RUNNING = "running";
+
+    public static final String FINISHED = "finished";
+
+    public static final String FAILED = "failed";
+
+    public static final String NOT_FOUND = "not_found";
+
+    /**
+     * 상태가 바뀌지 않을 때 조회 간격을 늘리는 배수
+     */
+    private static final double BACKOFF_MULTIPLIER = 1.5;
+
+    @Value("${cloudfoundry.cc.api.jobPollMinInterval:500}")
+    private long minIntervalMillis = 500;
+
+    @Value("${cloudfoundry.cc.api.jobPollMaxInterval:10000}")
+    private long maxIntervalMillis = 10000;
+
+    @Value("${cloudfoundry.cc.api.jobRetention:600000}")
+    private long retentionMillis = 600000;
+
+    @Value("${cloudfoundry.cc.api.jobMaxTracked:1000}")
+    private int maxJobs = 1000;
+
+    @Value("${cloudfoundry.cc.api.jobPollMaxFailures:5}")
+    private int maxPollFailures = 5;
+
+    @Autowired
+    private AdminCredentialHolder adminCredentialHolder;
+
+    @Autowired
+    private DefaultConnectionContext connectionContext;
+
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong pollCount = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "job-registry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * CC 작업을 등록하고 추적을 시작한다. 이미 끝난 작업이면 추적하지 않고 retention 동안 상태만 보관한다.
+     *
+     * @param jobId      CC job guid
+     * @param entity     작업 생성 응답의 entity (없으면 null)
+     * @param operation  작업 종류 (예 : deleteOrg, deleteSpace)
+     * @param resourceId 대상 자원 guid
+     * @param token      작업을 요청한 사용자의 토큰
+     * @return Map job 상태
+     */
+    public Map<String, Object> track(String jobId, JobEntity entity, String operation, String resourceId, String token) {
+        if (null == jobId) return null;
+        if (jobs.size() >= maxJobs && !jobs.containsKey(jobId)) {
+            rejectedCount.incrementAndGet();
+            LOGGER.warn("Job registry is full, not tracking : {} {} {}", operation, resourceId, jobId);
+            final Job untracked = new Job(jobId, operation, resourceId, null);
+            untracked.update(entity);
+            return untracked.toMap();
+        }
+        final Job job = jobs.computeIfAbsent(jobId, key -> new Job(key, operation, resourceId, ownerOf(token)));
+        job.update(entity);
+        if (job.isDone()) {
+            scheduleExpiry(job);
+        } else {
+            schedulePoll(job, minIntervalMillis);
+        }
+        LOGGER.info("Job tracked : {} {} {} ({})", operation, resourceId, jobId, job.status);
+        return job.toMap();
+    }
+
+    /**
+     * 작업 상태를 반환한다. 이 토큰으로 등록한 작업이 아니면(다른 노드나 다른 사용자가 만든 작업 등) 호출자의 토큰으로 CC 에 직접 조회한다.
+     *
+     * @param jobId CC job guid
+     * @param token 호출자의 토큰
+     * @return Mono<Map> job 상태
+     */
+    public Mono<Map<String, Object>> get(String jobId, String token) {
+        final Job job = jobs.get(jobId);
+        if (null != job && null != job.owner && job.owner.equals(ownerOf(token))) {
+            return Mono.just(job.toMap());
+        }
+        return fetch(jobId, Common.tokenProvider(token))
+                .map(entity -> {
+                    final Job fetched = new Job(jobId, null, null, null);
+                    fetched.update(entity);
+                    return fetched.toMap();
+                });
+    }
+
+    /**
+     * 여러 작업의 상태를 한 번에 반환한다. 찾을 수 없는 작업은 status 가 not_found 이다.
+     *
+     * @param jobIds CC job guid 목록
+     * @param token  호출자의 토큰
+     * @return Mono<Map> job guid -> job 상태
+     */
+    public Mono<Map<String, Map<String, Object>>> getAll(Iterable<String> jobIds, String token) {
+        final Map<String, Mono<Map<String, Object>>> lookups = new LinkedHashMap<>();
+        for (String jobId : jobIds) {
+            lookups.putIfAbsent(jobId, get(jobId, token).onErrorResume(e -> Mono.just(notFound(jobId))).defaultIfEmpty(notFound(jobId)));
+        }
+        return Flux.fromIterable(lookups.entrySet())
+                .flatMapSequential(entry -> entry.getValue().map(status -> new HashMap.SimpleEntry<>(entry.getKey(), status)), PageUtils.DEFAULT_CONCURRENCY)
+                .collect(LinkedHashMap::new, (map, entry) -> map.put(entry.getKey(), entry.getValue()));
+    }
+
+    private Mono<JobEntity> fetch(String jobId, TokenProvider tokenProvider) {
+        return Mono.defer(() -> Common.cloudFoundryClient(connectionContext, tokenProvider).jobs().get(GetJobRequest.builder().jobId(jobId).build()))
+                .retryWhen(RetryUtils.transientRetry(2, Duration.ofMillis(200)))
+                .map(response -> response.getEntity());
+    }
+
+    private void schedulePoll(Job job, long delayMillis) {
+        if (scheduler.isShutdown()) return;
+        job.interval = delayMillis;
+        scheduler.schedule(() -> poll(job), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(Job job) {
+        pollCount.incrementAndGet();
+        fetch(job.id, adminCredentialHolder.tokenProvider()).subscribe(entity -> {
+            job.pollFailures = 0;
+            final boolean changed = job.update(entity);
+            if (job.isDone()) {
+                LOGGER.info("Job {} : {} {} {}", job.status, job.operation, job.resourceId, job.id);
+                scheduleExpiry(job);
+            } else {
+                schedulePoll(job, changed ? minIntervalMillis : Math.min((long) (job.interval * BACKOFF_MULTIPLIER), maxIntervalMillis));
+            }
+        }, error -> {
+            job.error = error.getMessage();
+            if (RetryUtils.isTransient(error) && ++job.pollFailures < maxPollFailures) {
+                LOGGER.warn("Job poll failed ({}/{}) : {} {}", job.pollFailures, maxPollFailures, job.id, error.getMessage());
+                schedulePoll(job, maxIntervalMillis);
+                return;
+            }
+            final boolean notFound = error instanceof AbstractCloudFoundryException && ((AbstractCloudFoundryException) error).getStatusCode() == 404;
+            job.fail(notFound ? NOT_FOUND : FAILED);
+            LOGGER.warn("Job poll stopped ({}) : {} {}", job.status, job.id, error.getMessage());
+            scheduleExpiry(job);
+        });
+    }
+
+    private void scheduleExpiry(Job job) {
+        if (scheduler.isShutdown()) return;
+        scheduler.schedule(() -> jobs.remove(job.id, job), retentionMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static String ownerOf(String token) {
+        return null == token ? null : JwtUtils.digest(token);
+    }
+
+    private static Map<String, Object> notFound(String jobId) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", jobId);
+        map.put("status", NOT_FOUND);
+        return map;
+    }
+
+    /**
+     * 작업 추적 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tracked", jobs.size());
+        stats.put("active", jobs.values().stream().filter(job -> !job.isDone()).count());
+        stats.put("maxTracked", maxJobs);
+        stats.put("poll", pollCount.get());
+        stats.put("rejected", rejectedCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 추적 중인 작업 하나
+     */
+    private static final class Job {
+        private final String id;
+        private final String operation;
+        private final String resourceId;
+        private final String owner;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile String status = QUEUED;
+        private volatile String error;
+        private volatile long updatedAt = createdAt;
+        private volatile long interval;
+        private volatile int pollFailures;
+
+        private Job(String id, String operation, String resourceId, String owner) {
+            this.id = id;
+            this.operation = operation;
+            this.resourceId = resourceId;
+            this.owner = owner;
+        }
+
+        /**
+         * 조회한 상태를 반영한다. 상태가 바뀌었으면 true 를 반환한다.
+         */
+        private synchronized boolean update(JobEntity entity) {
+            if (null == entity || null == entity.getStatus()) return false;
+            final boolean changed = !entity.getStatus().equals(status);
+            status = entity.getStatus();
+            if (null != entity.getErrorDetails()) {
+                error = entity.getErrorDetails().getDescription();
+            } else if (null != entity.getError()) {
+                error = entity.getError();
+            }
+            if (changed) updatedAt = System.currentTimeMillis();
+            return changed;
+        }
+
+        /**
+         * 더 이상 조회할 수 없는 작업을 끝낸다.
+         */
+        private synchronized void fail(String failedStatus) {
+            status = failedStatus;
+            updatedAt = System.currentTimeMillis();
+        }
+
+        private boolean isDone() {
+            return FINISHED.equals(status) || FAILED.equals(status) || NOT_FOUND.equals(status);
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", id);
+            map.put("status", status);
+            if (null != operation) map.put("operation", operation);
+            if (null != resourceId) map.put("resourceId", resourceId);
+            if (null != error) map.put("error", error);
+            map.put("createdAt", createdAt);
+            map.put("updatedAt", updatedAt);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.cloudfoundry.client.lib.CloudFoundryException;
+import org.cloudfoundry.doppler.Envelope;
+import org.cloudfoundry.doppler.EventType;
+import org.cloudfoundry.doppler.StreamRequest;
+import org.cloudfoundry.reactor.DefaultConnectionContext;
+import org.openpaas.paasta.portal.api.util.RetryUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 앱 실시간 로그(Doppler stream)를 여러 클라이언트(SSE)에 나누어 보낸다.
+ * 같은 앱을 보는 클라이언트들은 하나의 upstream 구독을 공유하고, 클라이언트마다 크기가 제한된 버퍼를 두어
+ * 느린 클라이언트는 오래된 로그부터 버린다. 클라이언트가 모두 떠난 upstream 은 idleTimeout 후에 해제하며,
+ * 노드당 upstream 수는 maxStreams 로 제한한다.
+ */
+@Component
+public class LogTailHub {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogTailHub.class);
+
+    /**
+     * 클라이언트가 버퍼에서 한 번에 가져가는 로그 수
+     */
+    private static final int CLIENT_PREFETCH = 32;
+
+    /**
+     * Doppler stream 이 일시적인 오류로 끊겼을 때 로그를 받지 못한 채 연속으로 재연결하는 최대 횟수
+     */
+    private static final int MAX_RECONNECTS = 3;
+
+    /**
+     * 재연결 기본 간격 (시도마다 늘어남)
+     */
+    private static final Duration RECONNECT_BACKOFF = Duration.ofSeconds(1);
+
+    @Value("${cloudfoundry.cc.api.logTailMaxStreams:50}")
+    private int maxStreams = 50;
+
+    @Value("${cloudfoundry.cc.api.logTailClientBuffer:500}")
+    private int clientBuffer = 500;
+
+    @Value("${cloudfoundry.cc.api.logTailIdleTimeout:30000}")
+    private long idleTimeoutMillis = 30000;
+
+    @Value("${cloudfoundry.cc.api.logTailSessionTimeout:1800000}")
+    private long sessionTimeoutMillis = 1800000;
+
+    @Value("${cloudfoundry.cc.api.logTailHeartbeat:15000}")
+    private long heartbeatMillis = 15000;
+
+    @Autowired
+    private AdminCredentialHolder adminCredentialHolder;
+
+    @Autowired
+    private DefaultConnectionContext connectionContext;
+
+    private final ConcurrentHashMap<String, Upstream> upstreams = new ConcurrentHashMap<>();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "log-tail-hub");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ScheduledFuture<?> heartbeat;
+
+    /**
+     * 앱 실시간 로그를 구독하는 SSE 클라이언트를 등록한다. 각 로그는 "log" 이벤트로 전송된다.
+     *
+     * @param appGuid the app guid
+     * @param filter  로그 필터 (EnvelopeUtils.filter)
+     * @return SseEmitter
+     */
+    public SseEmitter subscribe(String appGuid, Predicate<Envelope> filter) {
+        final SseEmitter emitter = new SseEmitter(sessionTimeoutMillis);
+        final Client client = new Client(emitter);
+        final Upstream upstream = attach(appGuid, client);
+
+        client.subscription = upstream.processor
+                .filter(filter)
+                .onBackpressureBuffer(clientBuffer, dropped -> droppedCount.incrementAndGet(), BufferOverflowStrategy.DROP_OLDEST)
+                .publishOn(Schedulers.elastic(), CLIENT_PREFETCH)
+                .subscribe(envelope -> client.send(SseEmitter.event().name("log").data(envelope, MediaType.APPLICATION_JSON)),
+                        error -> {
+                            detach(upstream, client);
+                            emitter.completeWithError(error);
+                        },
+                        () -> {
+                            detach(upstream, client);
+                            emitter.complete();
+                        });
+
+        emitter.onCompletion(() -> detach(upstream, client));
+        emitter.onTimeout(() -> detach(upstream, client));
+        startHeartbeat();
+        return emitter;
+    }
+
+    /**
+     * 앱의 upstream 에 클라이언트를 추가한다. upstream 이 없으면 새로 만들고, 해제 예약이 있으면 취소한다.
+     */
+    private Upstream attach(String appGuid, Client client) {
+        final Upstream upstream = upstreams.compute(appGuid, (key, current) -> {
+            if (null != current && !current.closed) {
+                current.cancelTeardown();
+                current.clients.add(client);
+                return current;
+            }
+            if (upstreams.size() >= maxStreams) {
+                rejectedCount.incrementAndGet();
+                throw new CloudFoundryException(HttpStatus.SERVICE_UNAVAILABLE, "Too many log streams", "Log stream limit reached : " + maxStreams);
+            }
+            Upstream created = new Upstream(key);
+            created.clients.add(client);
+            return created;
+        });
+        // compute 안에서 구독하면 동기적으로 발생한 오류가 map 을 다시 수정하므로 밖에서 연결한다.
+        if (upstream.connected.compareAndSet(false, true)) {
+            upstream.connect();
+        }
+        LOGGER.debug("Log tail attached : {} ({} clients)", appGuid, upstream.clients.size());
+        return upstream;
+    }
+
+    private void detach(Upstream upstream, Client client) {
+        if (!upstream.clients.remove(client)) return;
+        client.dispose();
+        LOGGER.debug("Log tail detached : {} ({} clients)", upstream.appGuid, upstream.clients.size());
+        if (upstream.clients.isEmpty()) {
+            upstream.scheduleTeardown();
+        }
+    }
+
+    /**
+     * 클라이언트가 없는 upstream 을 해제한다. attach 와 같은 key 의 compute 로 직렬화되므로 해제 직전에 붙은 클라이언트를 잃지 않는다.
+     */
+    private void teardown(Upstream upstream) {
+        final boolean[] removed = {false};
+        upstreams.computeIfPresent(upstream.appGuid, (key, current) -> {
+            if (current == upstream && current.clients.isEmpty()) {
+                removed[0] = true;
+                return null;
+            }
+            return current;
+        });
+        if (removed[0]) {
+            upstream.close();
+            LOGGER.info("Log tail upstream closed : {}", upstream.appGuid);
+        }
+    }
+
+    private synchronized void startHeartbeat() {
+        if (null != heartbeat || scheduler.isShutdown()) return;
+        heartbeat = scheduler.scheduleWithFixedDelay(() -> upstreams.values().forEach(upstream -> upstream.clients.forEach(client -> {
+            if (!client.send(SseEmitter.event().comment("heartbeat"))) {
+                detach(upstream, client);
+            }
+        })), heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int getStreamCount() {
+        return upstreams.size();
+    }
+
+    public int getClientCount() {
+        return upstreams.values().stream().mapToInt(upstream -> upstream.clients.size()).sum();
+    }
+
+    /**
+     * 실시간 로그 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("streams", getStreamCount());
+        stats.put("maxStreams", maxStreams);
+        stats.put("clients", getClientCount());
+        stats.put("dropped", droppedCount.get());
+        stats.put("rejected", rejectedCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        upstreams.values().forEach(Upstream::close);
+        upstreams.clear();
+    }
+
+    /**
+     * 앱 하나의 Doppler stream 구독. 받은 로그를 processor 로 모든 클라이언트에 전달한다.
+     */
+    private final class Upstream {
+        private final String appGuid;
+        private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+        private final DirectProcessor<Envelope> processor = DirectProcessor.create();
+        private final AtomicBoolean connected = new AtomicBoolean();
+        /**
+         * 연속 재연결 횟수. 로그를 받으면 0 으로 돌아가므로 오래 유지되는 stream 이 드문드문 끊겨도 재시도 예산이 줄지 않는다.
+         */
+        private final AtomicInteger reconnects = new AtomicInteger();
+        private volatile Disposable subscription;
+        private volatile ScheduledFuture<?> teardown;
+        private volatile boolean closed;
+
+        private Upstream(String appGuid) {
+            this.appGuid = appGuid;
+        }
+
+        private void connect() {
+            subscription = Flux.defer(() -> Common.dopplerClient(connectionContext, adminCredentialHolder.tokenProvider()).stream(StreamRequest.builder().applicationId(appGuid).build()))
+                    .doOnNext(envelope -> reconnects.set(0))
+                    .retryWhen(errors -> errors.flatMap(error -> {
+                        final int attempt = reconnects.incrementAndGet();
+                        if (attempt > MAX_RECONNECTS || !RetryUtils.isTransient(error)) {
+                            return Mono.error(error);
+                        }
+                        LOGGER.warn("Log tail upstream reconnecting ({}/{}) : {} {}", attempt, MAX_RECONNECTS, appGuid, error.getMessage());
+                        return Mono.delay(RECONNECT_BACKOFF.multipliedBy(attempt));
+                    }))
+                    .filter(envelope -> EventType.LOG_MESSAGE == envelope.getEventType())
+                    .subscribe(processor::onNext, error -> {
+                        LOGGER.error("Log tail upstream failed : {} {}", appGuid, error.getMessage());
+                        upstreams.remove(appGuid, this);
+                        closed = true;
+                        processor.onError(error);
+                    }, () -> {
+                        upstreams.remove(appGuid, this);
+                        closed = true;
+                        processor.onComplete();
+                    });
+            LOGGER.info("Log tail upstream opened : {}", appGuid);
+        }
+
+        private synchronized void scheduleTeardown() {
+            if (closed || !clients.isEmpty() || scheduler.isShutdown()) return;
+            cancelTeardown();
+            teardown = scheduler.schedule(() -> teardown(this), idleTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void cancelTeardown() {
+            if (null != teardown) {
+                teardown.cancel(false);
+                teardown = null;
+            }
+        }
+
+        private void close() {
+            closed = true;
+            cancelTeardown();
+            if (null != subscription) subscription.dispose();
+            processor.onComplete();
+        }
+    }
+
+    /**
+     * SSE 클라이언트 하나
+     */
+    private static final class Client {
+        private final SseEmitter emitter;
+        private volatile Disposable subscription;
+
+        private Client(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * 이벤트를 보낸다. 연결이 끊겨 보내지 못하면 false 를 반환한다.
+         */
+        private boolean send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                dispose();
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+
+        private void dispose() {
+            if (null != subscription) subscription.dispose();
+        }
+    }
+}
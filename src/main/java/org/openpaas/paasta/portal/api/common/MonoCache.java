@@ -0,0 +1,166 @@
+package org.openpaas.paasta.portal.api.common;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 키별 Mono 결과를 보관하는 LRU 캐시.
+ * 같은 키의 동시 요청은 하나의 upstream 구독을 공유(single-flight)하며, 오류 결과는 보관하지 않는다.
+ * ttl 이 0 이하이면 결과를 보관하지 않고 진행 중인 요청만 공유한다.
+ * 공유 요청은 구독자가 모두 떠나도 취소되지 않으므로 loadTimeout 이 지나면 오류로 끝내고 항목을 지운다. (멈춘 요청이 키를 계속 잡지 않도록)
+ */
+public class MonoCache<V> {
+
+    /**
+     * 기본 공유 요청 제한시간
+     */
+    public static final Duration DEFAULT_LOAD_TIMEOUT = Duration.ofSeconds(60);
+
+    private final int maxSize;
+
+    private final Duration loadTimeout;
+
+    private final LinkedHashMap<String, Entry<V>> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    public MonoCache(int maxSize) {
+        this(maxSize, DEFAULT_LOAD_TIMEOUT);
+    }
+
+    public MonoCache(int maxSize, Duration loadTimeout) {
+        this.maxSize = maxSize;
+        this.loadTimeout = loadTimeout;
+        this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() > MonoCache.this.maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 키에 해당하는 결과를 반환한다. 없거나 만료되었으면 loader 로 새로 요청한다.
+     *
+     * @param key       the key
+     * @param ttlMillis 결과 보관 시간(ms), 0 이하이면 진행 중인 요청만 공유
+     * @param loader    upstream 요청
+     * @return Mono
+     */
+    public Mono<V> get(String key, long ttlMillis, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            final long now = System.currentTimeMillis();
+            synchronized (entries) {
+                Entry<V> entry = entries.get(key);
+                if (null != entry && (!entry.done || entry.expiresAt > now)) {
+                    hitCount.incrementAndGet();
+                    if (!entry.done) coalescedCount.incrementAndGet();
+                    return entry.mono;
+                }
+
+                missCount.incrementAndGet();
+                final Entry<V> created = new Entry<>(now + ttlMillis);
+                created.mono = loader.get()
+                        .timeout(loadTimeout)
+                        .doOnError(e -> {
+                            if (e instanceof TimeoutException) timeoutCount.incrementAndGet();
+                            remove(key, created);
+                        })
+                        .doOnTerminate(() -> {
+                            created.done = true;
+                            if (ttlMillis <= 0) remove(key, created);
+                        })
+                        .cache();
+                entries.put(key, created);
+                return created.mono;
+            }
+        });
+    }
+
+    private void remove(String key, Entry<V> entry) {
+        synchronized (entries) {
+            if (entries.get(key) == entry) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    public void invalidate(String key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public double getHitRatio() {
+        final long hit = getHitCount();
+        final long total = hit + getMissCount();
+        return total == 0 ? 0d : (double) hit / total;
+    }
+
+    /**
+     * 캐시 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("hit", getHitCount());
+        stats.put("miss", getMissCount());
+        stats.put("coalesced", coalescedCount.get());
+        stats.put("eviction", evictionCount.get());
+        stats.put("timeout", timeoutCount.get());
+        stats.put("hitRatio", getHitRatio());
+        return stats;
+    }
+
+    private static final class Entry<V> {
+        private final long expiresAt;
+        private volatile Mono<V> mono;
+        private volatile boolean done;
+
+        private Entry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+}
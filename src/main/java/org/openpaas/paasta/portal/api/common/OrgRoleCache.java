@@ -0,0 +1,245 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 조직별 사용자 역할 색인(사용자 GUID -> 역할 비트셋)을 일정 시간 동안 보관한다.
+ * 역할을 할당/제거하는 곳에서 invalidate 를 호출하여 캐시를 비워야 한다.
+ * 색인은 map lock 밖에서 만들며, 같은 조직에 대한 동시 요청은 진행 중인 요청 하나를 기다린다. (조직 단위 single-flight)
+ * 사용자 -> 조직 역색인을 함께 두어 invalidateUser 가 전체 조직을 훑지 않도록 한다.
+ */
+@Component
+public class OrgRoleCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrgRoleCache.class);
+
+    public static final int ORG_USER = 1;
+    public static final int ORG_MANAGER = 1 << 1;
+    public static final int BILLING_MANAGER = 1 << 2;
+    public static final int ORG_AUDITOR = 1 << 3;
+
+    @Value("${cloudfoundry.cc.api.roleCacheTtl:60000}")
+    private long ttlMillis = 60000;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, CompletableFuture<Map<String, Integer>>> loading = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Set<String>> orgsByUser = new ConcurrentHashMap<>();
+
+    /**
+     * invalidate 호출 횟수. 색인을 만드는 동안 invalidate 가 있었으면 만든 색인을 보관하지 않는다.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * 역할 이름을 비트로 변환한다. 알 수 없는 역할이면 0 을 반환한다. (색인을 만들 때 모르는 역할은 무시한다)
+     *
+     * @param role OrgManager, BillingManager, OrgAuditor
+     * @return int bit
+     */
+    public static int roleBit(String role) {
+        if (null == role) return 0;
+        switch (role) {
+            case "OrgManager":
+            case "ORGMANAGER":
+                return ORG_MANAGER;
+            case "BillingManager":
+            case "BILLINGMANAGER":
+                return BILLING_MANAGER;
+            case "OrgAuditor":
+            case "ORGAUDITOR":
+                return ORG_AUDITOR;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * 조직의 역할 색인을 반환한다. 없거나 만료되었으면 loader 로 다시 만든다.
+     * 같은 조직에 대한 동시 요청은 한 번만 loader 를 호출한다.
+     *
+     * @param orgId  the org id
+     * @param loader 조직 id 로 역할 색인을 만드는 함수
+     * @return Map user GUID -> role bits
+     */
+    public Map<String, Integer> getRoleIndex(String orgId, Function<String, Map<String, Integer>> loader) {
+        Entry entry = entries.get(orgId);
+        if (null != entry && entry.expiresAt > System.currentTimeMillis()) {
+            hitCount.incrementAndGet();
+            return entry.roles;
+        }
+
+        final CompletableFuture<Map<String, Integer>> created = new CompletableFuture<>();
+        final CompletableFuture<Map<String, Integer>> inFlight = loading.putIfAbsent(orgId, created);
+        if (null != inFlight) {
+            coalescedCount.incrementAndGet();
+            return join(inFlight);
+        }
+
+        try {
+            // 기다리는 사이 다른 요청이 색인을 만들었을 수 있다.
+            entry = entries.get(orgId);
+            if (null != entry && entry.expiresAt > System.currentTimeMillis()) {
+                hitCount.incrementAndGet();
+                created.complete(entry.roles);
+                return entry.roles;
+            }
+
+            missCount.incrementAndGet();
+            final long generation = invalidations.get();
+            final Map<String, Integer> roles = Collections.unmodifiableMap(new HashMap<>(loader.apply(orgId)));
+            if (generation == invalidations.get()) {
+                store(orgId, new Entry(roles, System.currentTimeMillis() + ttlMillis));
+            }
+            created.complete(roles);
+            return roles;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(orgId, created);
+        }
+    }
+
+    /**
+     * 사용자가 조직에서 해당 역할을 가지고 있는지 확인한다.
+     *
+     * @param orgId   the org id
+     * @param userId  the user id
+     * @param roleBit the role bit (roleBit 로 변환한 값, 0 이면 오류)
+     * @param loader  조직 id 로 역할 색인을 만드는 함수
+     * @return boolean
+     */
+    public boolean hasRole(String orgId, String userId, int roleBit, Function<String, Map<String, Integer>> loader) {
+        if (roleBit <= 0) {
+            throw new IllegalArgumentException("Unknown org role bit : " + roleBit);
+        }
+        final Integer roles = getRoleIndex(orgId, loader).get(userId);
+        return null != roles && (roles & roleBit) == roleBit;
+    }
+
+    /**
+     * 조직의 역할 색인을 제거한다.
+     *
+     * @param orgId the org id
+     */
+    public void invalidate(String orgId) {
+        if (null == orgId) return;
+        invalidations.incrementAndGet();
+        if (remove(orgId)) {
+            LOGGER.debug("Invalidate org role index : {}", orgId);
+        }
+    }
+
+    /**
+     * 사용자가 포함된 모든 조직의 역할 색인을 제거한다. (조직 id 를 알 수 없는 공간 역할 변경 시 사용)
+     *
+     * @param userId the user id
+     */
+    public void invalidateUser(String userId) {
+        if (null == userId) return;
+        invalidations.incrementAndGet();
+        final Set<String> orgIds = orgsByUser.remove(userId);
+        if (null == orgIds) return;
+        for (String orgId : orgIds) {
+            remove(orgId);
+        }
+    }
+
+    private void store(String orgId, Entry entry) {
+        final Entry previous = entries.put(orgId, entry);
+        if (null != previous) unindex(orgId, previous);
+        for (String userId : entry.roles.keySet()) {
+            orgsByUser.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(orgId);
+        }
+    }
+
+    private boolean remove(String orgId) {
+        final Entry removed = entries.remove(orgId);
+        if (null == removed) return false;
+        unindex(orgId, removed);
+        return true;
+    }
+
+    private void unindex(String orgId, Entry entry) {
+        for (String userId : entry.roles.keySet()) {
+            orgsByUser.computeIfPresent(userId, (key, orgIds) -> {
+                orgIds.remove(orgId);
+                return orgIds.isEmpty() ? null : orgIds;
+            });
+        }
+    }
+
+    private static Map<String, Integer> join(CompletableFuture<Map<String, Integer>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+        orgsByUser.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 캐시 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("hit", getHitCount());
+        stats.put("miss", getMissCount());
+        stats.put("coalesced", coalescedCount.get());
+        stats.put("loading", loading.size());
+        stats.put("users", orgsByUser.size());
+        return stats;
+    }
+
+    private static final class Entry {
+        private final Map<String, Integer> roles;
+        private final long expiresAt;
+
+        private Entry(Map<String, Integer> roles, long expiresAt) {
+            this.roles = roles;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.cloudfoundry.reactor.TokenProvider;
+import org.cloudfoundry.reactor.client.ReactorCloudFoundryClient;
+import org.openpaas.paasta.portal.api.config.cloudfoundry.provider.TokenGrantTokenProvider;
+import org.openpaas.paasta.portal.api.util.JwtUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 같은 권한(토큰)으로 동시에 들어온 동일한 CC 조회 요청을 하나의 in-flight Mono 로 합친다. (single-flight)
+ * 결과는 보관하지 않으므로 요청이 끝난 뒤의 조회는 다시 CC 를 호출한다.
+ * 권한 범위를 알 수 없는 요청(토큰을 확인할 수 없는 클라이언트)은 합치지 않는다.
+ * 합친 요청이 timeout 안에 끝나지 않으면 기다리던 요청 모두 오류로 끝나고, 다음 요청은 CC 를 새로 호출한다.
+ */
+@Component
+public class RequestCoalescer {
+
+    @Value("${cloudfoundry.cc.api.coalesce:true}")
+    private boolean enabled = true;
+
+    @Value("${cloudfoundry.cc.api.coalesceMaxSize:4096}")
+    private int maxSize = 4096;
+
+    @Value("${cloudfoundry.cc.api.coalesceTimeout:30000}")
+    private long timeoutMillis = 30000;
+
+    private MonoCache<Object> inFlight;
+
+    @PostConstruct
+    public void init() {
+        inFlight = new MonoCache<>(maxSize, Duration.ofMillis(timeoutMillis));
+    }
+
+    /**
+     * 요청을 합친다.
+     *
+     * @param operation 조회 종류 (orgSummary, spaceSummary 등)
+     * @param scope     권한 범위 (scopeOf 로 계산, null 이면 합치지 않음)
+     * @param key       조회 대상 (guid 등)
+     * @param loader    CC 조회
+     * @return Mono
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> coalesce(String operation, String scope, String key, Supplier<Mono<T>> loader) {
+        if (!enabled || null == scope || null == inFlight) {
+            return Mono.defer(loader);
+        }
+        return (Mono<T>) inFlight.get(operation + ":" + scope + ":" + key, 0L, (Supplier<Mono<Object>>) (Supplier<?>) loader);
+    }
+
+    /**
+     * 토큰의 권한 범위를 반환한다.
+     *
+     * @param token the token
+     * @return String scope
+     */
+    public static String scopeOf(String token) {
+        return null == token ? null : JwtUtils.digest(JwtUtils.stripBearer(token));
+    }
+
+    /**
+     * 클라이언트의 권한 범위를 반환한다. 토큰을 확인할 수 없으면 null 을 반환한다.
+     *
+     * @param client the client
+     * @return String scope
+     */
+    public static String scopeOf(ReactorCloudFoundryClient client) {
+        if (null == client) return null;
+        final TokenProvider tokenProvider = client.getTokenProvider();
+        if (tokenProvider instanceof TokenGrantTokenProvider) {
+            return scopeOf(((TokenGrantTokenProvider) tokenProvider).getToken());
+        }
+        return null;
+    }
+
+    public Map<String, Object> stats() {
+        return null == inFlight ? new HashMap<>() : inFlight.stats();
+    }
+}
@@ -0,0 +1,426 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 카탈로그 샘플 앱 파일을 로컬 디스크에 내용 해시(SHA-256) 이름으로 보관한다.
+ * URL 별 참조 파일(.ref)에 내용 해시, 크기, ETag/Last-Modified 를 기록하며, 같은 URL 의 반복 배포는 다운로드 없이 보관된 파일을 사용한다.
+ * 보관 기간(ttl)이 지난 항목은 조건부 요청(If-None-Match/If-Modified-Since)으로 확인하고, 바뀌었으면 새로 받는다.
+ * 새로 받는 파일은 읽는 쪽(업로드)으로 흘려보내면서 함께 기록하며, 끝까지 읽은 경우에만 보관한다.
+ */
+@Component
+public class SampleArtifactCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SampleArtifactCache.class);
+
+    private static final String ARTIFACT_SUFFIX = ".bin";
+
+    private static final String REF_SUFFIX = ".ref";
+
+    private static final String PART_SUFFIX = ".part";
+
+    @Value("${paasta.portal.api.catalog.sampleCache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${paasta.portal.api.catalog.sampleCache.dir:${java.io.tmpdir}/paasta-catalog-samples}")
+    private String dir = System.getProperty("java.io.tmpdir") + "/paasta-catalog-samples";
+
+    @Value("${paasta.portal.api.catalog.sampleCache.maxSize:1073741824}")
+    private long maxSizeBytes = 1073741824L;
+
+    @Value("${paasta.portal.api.catalog.sampleCache.ttl:86400000}")
+    private long ttlMillis = 86400000L;
+
+    @Value("${paasta.portal.api.http.connectTimeout:5000}")
+    private int connectTimeout = 5000;
+
+    @Value("${paasta.portal.api.http.readTimeout:60000}")
+    private int readTimeout = 60000;
+
+    private Path root;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong revalidatedCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+        try {
+            root = Files.createDirectories(Paths.get(dir));
+            try (Stream<Path> files = Files.list(root)) {
+                files.filter(path -> path.getFileName().toString().endsWith(PART_SUFFIX)).forEach(SampleArtifactCache::deleteQuietly);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Sample artifact cache disabled : {} {}", dir, e.getMessage());
+            root = null;
+        }
+    }
+
+    /**
+     * 샘플 파일을 연다. 보관된 파일이 있으면 그 파일을, 없으면 URL 에서 받는 stream 을 반환한다.
+     * 반환된 Artifact 는 반드시 닫아야 한다.
+     *
+     * @param url 샘플 파일 URL
+     * @return Artifact
+     * @throws IOException the exception
+     */
+    public Artifact open(String url) throws IOException {
+        if (null == root) {
+            missCount.incrementAndGet();
+            final URLConnection connection = connect(url, null);
+            return new Artifact(connection.getInputStream(), connection.getContentLengthLong(), false);
+        }
+
+        final Path refPath = root.resolve(sha256Hex(url.getBytes(StandardCharsets.UTF_8)) + REF_SUFFIX);
+        final Properties ref = readRef(refPath);
+        final Path cached = null == ref ? null : artifactPath(ref);
+
+        if (null != cached) {
+            if (System.currentTimeMillis() - Long.parseLong(ref.getProperty("fetchedAt", "0")) < ttlMillis) {
+                hitCount.incrementAndGet();
+                return openCached(cached);
+            }
+        }
+
+        final URLConnection connection;
+        final InputStream source;
+        try {
+            connection = connect(url, null == cached ? null : ref);
+            final int status = connection instanceof HttpURLConnection ? ((HttpURLConnection) connection).getResponseCode() : HttpURLConnection.HTTP_OK;
+            if (null != cached && status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                ((HttpURLConnection) connection).disconnect();
+                ref.setProperty("fetchedAt", String.valueOf(System.currentTimeMillis()));
+                writeRef(refPath, ref);
+                revalidatedCount.incrementAndGet();
+                return openCached(cached);
+            }
+            if (null != cached && (status < 200 || status >= 300)) {
+                // 원본이 오류(4xx, 5xx)를 반환하면 보관된 파일을 그대로 사용한다.
+                ((HttpURLConnection) connection).disconnect();
+                LOGGER.warn("Sample artifact revalidation returned {}, using cached : {}", status, url);
+                hitCount.incrementAndGet();
+                return openCached(cached);
+            }
+            source = connection.getInputStream();
+        } catch (IOException e) {
+            if (null == cached) throw e;
+            // 원본을 확인할 수 없으면 보관된 파일을 그대로 사용한다.
+            LOGGER.warn("Sample artifact revalidation failed, using cached : {} {}", url, e.getMessage());
+            hitCount.incrementAndGet();
+            return openCached(cached);
+        }
+
+        missCount.incrementAndGet();
+        final Properties created = new Properties();
+        created.setProperty("url", url);
+        if (null != connection.getHeaderField("ETag")) created.setProperty("etag", connection.getHeaderField("ETag"));
+        if (null != connection.getHeaderField("Last-Modified")) created.setProperty("lastModified", connection.getHeaderField("Last-Modified"));
+        return new Artifact(new RecordingInputStream(source, refPath, created), connection.getContentLengthLong(), false);
+    }
+
+    private Artifact openCached(Path cached) throws IOException {
+        Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+        return new Artifact(Files.newInputStream(cached), Files.size(cached), true);
+    }
+
+    private URLConnection connect(String url, Properties ref) throws IOException {
+        final URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        if (null != ref) {
+            if (null != ref.getProperty("etag")) connection.setRequestProperty("If-None-Match", ref.getProperty("etag"));
+            if (null != ref.getProperty("lastModified")) connection.setRequestProperty("If-Modified-Since", ref.getProperty("lastModified"));
+        }
+        return connection;
+    }
+
+    /**
+     * 참조 파일이 가리키는 내용 파일을 반환한다. 없거나 크기가 다르면 null 을 반환한다.
+     */
+    private Path artifactPath(Properties ref) {
+        final String sha256 = ref.getProperty("sha256");
+        if (null == sha256) return null;
+        final Path path = root.resolve(sha256 + ARTIFACT_SUFFIX);
+        try {
+            return Files.size(path) == Long.parseLong(ref.getProperty("size", "-1")) ? path : null;
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Properties readRef(Path refPath) {
+        try (Reader reader = Files.newBufferedReader(refPath, StandardCharsets.UTF_8)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            return properties;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.warn("Sample artifact ref unreadable : {} {}", refPath, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRef(Path refPath, Properties ref) throws IOException {
+        final Path part = refPath.resolveSibling(refPath.getFileName() + "." + UUID.randomUUID() + PART_SUFFIX);
+        try (Writer writer = Files.newBufferedWriter(part, StandardCharsets.UTF_8)) {
+            ref.store(writer, null);
+        }
+        Files.move(part, refPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 끝까지 받은 파일을 내용 해시 이름으로 옮기고 참조 파일을 기록한다.
+     */
+    private void commit(Path part, String sha256, long size, Path refPath, Properties ref) throws IOException {
+        final Path artifact = root.resolve(sha256 + ARTIFACT_SUFFIX);
+        Files.move(part, artifact, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ref.setProperty("sha256", sha256);
+        ref.setProperty("size", String.valueOf(size));
+        ref.setProperty("fetchedAt", String.valueOf(System.currentTimeMillis()));
+        writeRef(refPath, ref);
+        LOGGER.info("Sample artifact cached : {} ({} bytes, sha256 {})", ref.getProperty("url"), size, sha256);
+        evict();
+    }
+
+    /**
+     * 보관 용량을 넘으면 가장 오래 사용하지 않은 파일부터 지운다. 참조 파일은 다음 조회 때 크기 확인으로 무효가 된다.
+     */
+    private synchronized void evict() {
+        try (Stream<Path> files = Files.list(root)) {
+            final List<Path> artifacts = files.filter(path -> path.getFileName().toString().endsWith(ARTIFACT_SUFFIX)).collect(Collectors.toList());
+            long total = 0;
+            for (Path artifact : artifacts) {
+                total += sizeQuietly(artifact);
+            }
+            if (total <= maxSizeBytes) return;
+
+            final List<Path> oldestFirst = new ArrayList<>(artifacts);
+            oldestFirst.sort(Comparator.comparingLong(SampleArtifactCache::lastModifiedQuietly));
+            for (Path artifact : oldestFirst) {
+                if (total <= maxSizeBytes) break;
+                total -= sizeQuietly(artifact);
+                deleteQuietly(artifact);
+                evictionCount.incrementAndGet();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Sample artifact cache eviction failed : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 샘플 파일 보관 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", null != root);
+        stats.put("hit", hitCount.get());
+        stats.put("revalidated", revalidatedCount.get());
+        stats.put("miss", missCount.get());
+        stats.put("eviction", evictionCount.get());
+        return stats;
+    }
+
+    private static long sizeQuietly(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static long lastModifiedQuietly(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.warn("Sample artifact delete failed : {} {}", path, e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sha256Hex(byte[] bytes) {
+        return hex(sha256().digest(bytes));
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 샘플 파일 stream. length 는 알 수 없으면 -1 이다.
+     */
+    public static final class Artifact implements AutoCloseable {
+        private final InputStream inputStream;
+        private final long length;
+        private final boolean cached;
+
+        private Artifact(InputStream inputStream, long length, boolean cached) {
+            this.inputStream = inputStream;
+            this.length = length;
+            this.cached = cached;
+        }
+
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public boolean isCached() {
+            return cached;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * 읽은 내용을 임시(.part) 파일과 해시에 함께 기록하는 stream.
+     * 끝까지 읽고 닫으면 보관하고, 중간에 닫히거나 오류가 나면 기록한 파일을 지운다.
+     */
+    private final class RecordingInputStream extends FilterInputStream {
+        private final Path part;
+        private final OutputStream out;
+        private final MessageDigest digest = sha256();
+        private final Path refPath;
+        private final Properties ref;
+        private long size;
+        private boolean eof;
+        private boolean failed;
+        private boolean closed;
+
+        private RecordingInputStream(InputStream in, Path refPath, Properties ref) throws IOException {
+            super(in);
+            this.refPath = refPath;
+            this.ref = ref;
+            this.part = root.resolve(UUID.randomUUID() + PART_SUFFIX);
+            this.out = Files.newOutputStream(part);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] one = new byte[1];
+            final int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n;
+            try {
+                n = super.read(b, off, len);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+            if (n < 0) {
+                eof = true;
+            } else if (!failed) {
+                try {
+                    out.write(b, off, n);
+                    digest.update(b, off, n);
+                    size += n;
+                } catch (IOException e) {
+                    // 기록 실패는 보관만 포기하고 읽기는 계속한다.
+                    failed = true;
+                    LOGGER.warn("Sample artifact recording failed : {}", e.getMessage());
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            failed = true;
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                try {
+                    out.close();
+                    if (eof && !failed) {
+                        commit(part, hex(digest.digest()), size, refPath, ref);
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Sample artifact commit failed : {}", e.getMessage());
+                } finally {
+                    deleteQuietly(part);
+                }
+            }
+        }
+    }
+}
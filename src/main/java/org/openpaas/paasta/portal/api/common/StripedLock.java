@@ -0,0 +1,134 @@
+package org.openpaas.paasta.portal.api.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 키(조직 GUID 등) 단위로 작업을 직렬화하기 위한 lock striping.
+ * 같은 키는 항상 같은 lock 을 사용하므로 순서가 보장되고(fair lock), 다른 키는 대부분 병렬로 실행된다.
+ * lock 획득 횟수와 대기 시간을 통계로 제공한다.
+ */
+public class StripedLock {
+
+    private final ReentrantLock[] locks;
+
+    private final AtomicLong acquireCount = new AtomicLong();
+
+    private final AtomicLong contendedCount = new AtomicLong();
+
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0L);
+
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    public StripedLock(int stripes) {
+        if (stripes <= 0) throw new IllegalArgumentException("stripes must be positive : " + stripes);
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock(true);
+        }
+    }
+
+    /**
+     * 키에 해당하는 lock 을 잡고 작업을 실행한다. 작업에서 예외가 발생해도 lock 은 반드시 해제된다.
+     *
+     * @param key    the key
+     * @param action the action
+     * @return T action result
+     */
+    public <T> T execute(String key, Supplier<T> action) {
+        final ReentrantLock lock = lockFor(key);
+        acquire(lock);
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 키에 해당하는 lock 을 잡고 작업을 실행한다.
+     *
+     * @param key    the key
+     * @param action the action
+     */
+    public void execute(String key, Runnable action) {
+        execute(key, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private ReentrantLock lockFor(String key) {
+        final int hash = null == key ? 0 : key.hashCode();
+        return locks[((hash ^ (hash >>> 16)) & 0x7fffffff) % locks.length];
+    }
+
+    private void acquire(ReentrantLock lock) {
+        // tryLock() 은 fair 설정을 무시하므로 timeout 0 으로 시도하여 대기 순서를 지킨다.
+        try {
+            if (lock.tryLock(0L, TimeUnit.NANOSECONDS)) {
+                acquireCount.incrementAndGet();
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        final long start = System.nanoTime();
+        waitingCount.incrementAndGet();
+        try {
+            lock.lock();
+        } finally {
+            waitingCount.decrementAndGet();
+        }
+        final long waited = System.nanoTime() - start;
+        acquireCount.incrementAndGet();
+        contendedCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulate(waited);
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    public long getContendedCount() {
+        return contendedCount.get();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    public int getWaitingCount() {
+        return waitingCount.get();
+    }
+
+    /**
+     * lock 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("stripes", locks.length);
+        stats.put("acquire", getAcquireCount());
+        stats.put("contended", getContendedCount());
+        stats.put("waiting", getWaitingCount());
+        stats.put("totalWaitMillis", getTotalWaitMillis());
+        stats.put("maxWaitMillis", getMaxWaitMillis());
+        return stats;
+    }
+}
@@ -0,0 +1,226 @@
+package org.openpaas.paasta.portal.api.common;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cloudfoundry.reactor.DefaultConnectionContext;
+import org.cloudfoundry.uaa.tokens.ListTokenKeysRequest;
+import org.cloudfoundry.uaa.tokens.TokenKey;
+import org.openpaas.paasta.portal.api.util.JwtUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 토큰의 사용자 이름(user_name)을 토큰 다이제스트 단위로 보관한다.
+ * 서명 검증을 통과한 토큰만 보관하며, 토큰 만료 시각(exp)과 ttl 중 이른 시각까지 사용한다.
+ * localVerify 가 true 이면 UAA 토큰 서명 키(token_keys)를 한 번 읽어 두고 서명을 직접 검증하므로, 토큰 하나를 처음 볼 때에도 UAA 를 호출하지 않는다.
+ * false 이면 기존과 같이 UAA 클라이언트(getUsername)로 검증한다.
+ */
+@Component
+public class TokenIdentityCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenIdentityCache.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    /**
+     * 모르는 서명 키(kid)로 인해 token_keys 를 다시 읽는 최소 간격(ms)
+     */
+    private static final long KEY_RELOAD_INTERVAL = 60000;
+
+    @Value("${cloudfoundry.cc.api.tokenCacheTtl:300000}")
+    private long ttlMillis = 300000;
+
+    @Value("${cloudfoundry.cc.api.tokenCacheMaxSize:10000}")
+    private int maxSize = 10000;
+
+    @Value("${cloudfoundry.cc.api.tokenLocalVerify:false}")
+    private boolean localVerify;
+
+    @Value("${cloudfoundry.cc.api.uaaUrl:}")
+    private String uaaUrl;
+
+    /**
+     * 서명을 직접 검증할 때 허용하는 발급자(iss). 비어 있으면 uaaUrl + "/oauth/token" 을 사용한다.
+     */
+    @Value("${cloudfoundry.cc.api.tokenIssuer:}")
+    private String issuer;
+
+    @Value("${cloudfoundry.cc.api.tokenAudience:cloud_controller}")
+    private String audience = "cloud_controller";
+
+    @Autowired
+    private AdminCredentialHolder adminCredentialHolder;
+
+    @Autowired
+    private DefaultConnectionContext connectionContext;
+
+    private MonoCache<String> usernames;
+
+    private final MonoCache<Map<String, PublicKey>> keyLoader = new MonoCache<>(1);
+
+    private volatile Map<String, PublicKey> signingKeys;
+
+    private volatile long keysLoadedAt;
+
+    private final AtomicLong localVerifyCount = new AtomicLong();
+
+    private final AtomicLong remoteVerifyCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        usernames = new MonoCache<>(maxSize);
+        if (null == issuer || issuer.isEmpty()) {
+            issuer = (null == uaaUrl ? "" : uaaUrl.replaceAll("/+$", "")) + "/oauth/token";
+        }
+    }
+
+    /**
+     * 토큰의 사용자 이름을 반환한다. 서명이 올바르지 않거나 만료된 토큰이면 오류를 반환한다.
+     *
+     * @param token the token
+     * @return Mono<String> user name
+     */
+    public Mono<String> getUsername(String token) {
+        return Mono.defer(() -> {
+            final String jwt = JwtUtils.stripBearer(token);
+            final long expiresAt = JwtUtils.getExpirationMillis(jwt);
+            final long ttl = expiresAt < 0 ? 0L : Math.min(ttlMillis, expiresAt - System.currentTimeMillis());
+            return usernames.get(JwtUtils.digest(jwt), ttl, () -> localVerify ? verifyLocally(jwt) : verifyRemotely(jwt));
+        });
+    }
+
+    private Mono<String> verifyRemotely(String jwt) {
+        remoteVerifyCount.incrementAndGet();
+        return Common.uaaClient(connectionContext, Common.tokenProvider(jwt)).getUsername();
+    }
+
+    private Mono<String> verifyLocally(String jwt) {
+        final String[] parts = jwt.split("\\.");
+        if (parts.length != 3) {
+            return Mono.error(new IllegalArgumentException("Invalid token format"));
+        }
+        final Map<String, Object> header;
+        try {
+            header = OBJECT_MAPPER.readValue(Base64.getUrlDecoder().decode(parts[0]), MAP_TYPE);
+        } catch (Exception e) {
+            return Mono.error(new IllegalArgumentException("Invalid token header"));
+        }
+        if (!"RS256".equals(header.get("alg"))) {
+            // RS256 이 아닌 토큰은 UAA 로 검증한다.
+            return verifyRemotely(jwt);
+        }
+        final String keyId = String.valueOf(header.get("kid"));
+        return signingKey(keyId).map(key -> {
+            localVerifyCount.incrementAndGet();
+            try {
+                Signature signature = Signature.getInstance("SHA256withRSA");
+                signature.initVerify(key);
+                signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+                if (!signature.verify(Base64.getUrlDecoder().decode(parts[2]))) {
+                    throw new IllegalArgumentException("Invalid token signature");
+                }
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Cannot verify token : " + e.getMessage());
+            }
+            final Map<String, Object> claims = JwtUtils.getClaims(jwt);
+            final long expiresAt = JwtUtils.getExpirationMillis(jwt);
+            if (expiresAt < 0 || expiresAt <= System.currentTimeMillis()) {
+                throw new IllegalArgumentException("Token expired");
+            }
+            if (!issuer.equals(claims.get("iss"))) {
+                throw new IllegalArgumentException("Invalid token issuer");
+            }
+            if (!JwtUtils.getAudience(claims).contains(audience)) {
+                throw new IllegalArgumentException("Invalid token audience");
+            }
+            final Object username = claims.get("user_name");
+            if (null == username) {
+                throw new IllegalStateException("Unable to retrieve username from token");
+            }
+            return username.toString();
+        });
+    }
+
+    /**
+     * kid 에 해당하는 서명 키를 반환한다. 모르는 kid 이면(키 교체) token_keys 를 다시 읽는다.
+     */
+    private Mono<PublicKey> signingKey(String keyId) {
+        return Mono.defer(() -> {
+            final Map<String, PublicKey> keys = signingKeys;
+            if (null != keys && keys.containsKey(keyId)) {
+                return Mono.just(keys.get(keyId));
+            }
+            if (null != keys && "null".equals(keyId) && keys.size() == 1) {
+                // kid 가 없는 토큰(단일 키 UAA)은 유일한 키로 검증한다.
+                return Mono.just(keys.values().iterator().next());
+            }
+            if (null != keys && System.currentTimeMillis() - keysLoadedAt < KEY_RELOAD_INTERVAL) {
+                return Mono.error(new IllegalArgumentException("Unknown token key : " + keyId));
+            }
+            return keyLoader.get("keys", 0L, this::loadKeys)
+                    .flatMap(loaded -> {
+                        if (loaded.containsKey(keyId)) return Mono.just(loaded.get(keyId));
+                        if ("null".equals(keyId) && loaded.size() == 1) return Mono.just(loaded.values().iterator().next());
+                        return Mono.error(new IllegalArgumentException("Unknown token key : " + keyId));
+                    });
+        });
+    }
+
+    private Mono<Map<String, PublicKey>> loadKeys() {
+        return Common.uaaClient(connectionContext, adminCredentialHolder.tokenProvider()).tokens()
+                .listKeys(ListTokenKeysRequest.builder().build())
+                .map(response -> {
+                    final Map<String, PublicKey> keys = new HashMap<>();
+                    for (TokenKey tokenKey : response.getKeys()) {
+                        if (null == tokenKey.getN() || null == tokenKey.getE()) continue;
+                        try {
+                            RSAPublicKeySpec spec = new RSAPublicKeySpec(new BigInteger(1, Base64.getUrlDecoder().decode(tokenKey.getN())), new BigInteger(1, Base64.getUrlDecoder().decode(tokenKey.getE())));
+                            keys.put(String.valueOf(tokenKey.getId()), KeyFactory.getInstance("RSA").generatePublic(spec));
+                        } catch (Exception e) {
+                            LOGGER.warn("Cannot read token key {} : {}", tokenKey.getId(), e.getMessage());
+                        }
+                    }
+                    return keys;
+                })
+                .doOnNext(keys -> {
+                    signingKeys = keys;
+                    keysLoadedAt = System.currentTimeMillis();
+                    LOGGER.info("Token signing keys loaded : {}", keys.keySet());
+                });
+    }
+
+    /**
+     * 캐시 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>(usernames.stats());
+        stats.put("localVerify", localVerify);
+        stats.put("localVerified", localVerifyCount.get());
+        stats.put("remoteVerified", remoteVerifyCount.get());
+        stats.put("signingKeys", null == signingKeys ? 0 : signingKeys.size());
+        return stats;
+    }
+}
@@ -0,0 +1,342 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.cloudfoundry.reactor.DefaultConnectionContext;
+import org.cloudfoundry.reactor.uaa.ReactorUaaClient;
+import org.cloudfoundry.uaa.users.ListUsersRequest;
+import org.cloudfoundry.uaa.users.User;
+import org.openpaas.paasta.portal.api.util.PageUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * UAA 사용자 색인(GUID -> 사용자, 사용자 이름 -> 사용자)을 보관한다.
+ * 처음 조회될 때 전체 사용자를 백그라운드에서 한 번에 읽어 만들고, 이후에는 refreshInterval 마다 meta.lastModified 가
+ * 마지막으로 읽은 시각 이후인 사용자만 다시 읽는다. 삭제된 사용자는 fullRefreshInterval 마다 전체를 다시 읽어 반영한다.
+ * 색인에 없는 사용자는 여러 명을 하나의 filter(or) 조회로 묶어 UAA 에서 읽는다.
+ */
+@Component
+public class UserDirectory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserDirectory.class);
+
+    /**
+     * 색인에 없는 사용자를 한 번의 UAA filter 조회로 묶어 읽는 최대 수
+     */
+    private static final int LOOKUP_BATCH_SIZE = 50;
+
+    private static final String UAA_ORIGIN = "uaa";
+
+    @Value("${cloudfoundry.cc.api.userDirectory:true}")
+    private boolean enabled = true;
+
+    @Value("${cloudfoundry.cc.api.userDirectoryRefreshInterval:60000}")
+    private long refreshIntervalMillis = 60000;
+
+    @Value("${cloudfoundry.cc.api.userDirectoryFullRefreshInterval:3600000}")
+    private long fullRefreshIntervalMillis = 3600000;
+
+    @Autowired
+    private AdminCredentialHolder adminCredentialHolder;
+
+    @Autowired
+    private DefaultConnectionContext connectionContext;
+
+    private final MonoCache<Index> loader = new MonoCache<>(4, Duration.ofMinutes(10));
+
+    /**
+     * evict 될 때마다 증가한다. 삭제/변경 전에 시작된 전체 조회 결과가 그대로 반영되지 않도록 한다.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong lookupCount = new AtomicLong();
+
+    private final AtomicLong fullRefreshCount = new AtomicLong();
+
+    private final AtomicLong incrementalRefreshCount = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-directory");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Index index = new Index();
+
+    private volatile boolean loaded;
+
+    private volatile boolean scheduled;
+
+    /**
+     * GUID 로 사용자를 찾는다.
+     *
+     * @param userId the user guid
+     * @return Mono<User> 없으면 empty
+     */
+    public Mono<User> findById(String userId) {
+        return findByIds(Collections.singleton(userId)).flatMap(users -> Mono.justOrEmpty(users.get(userId)));
+    }
+
+    /**
+     * 사용자 이름으로 사용자를 찾는다. (대소문자 구분 없음)
+     *
+     * @param username the user name
+     * @return Mono<User> 없으면 empty
+     */
+    public Mono<User> findByUsername(String username) {
+        return findByUsernames(Collections.singleton(username)).flatMap(users -> Mono.justOrEmpty(users.get(username)));
+    }
+
+    /**
+     * 여러 GUID 의 사용자를 한 번에 찾는다.
+     *
+     * @param userIds the user guid 목록
+     * @return Mono<Map> GUID -> 사용자 (찾지 못한 GUID 는 포함하지 않는다)
+     */
+    public Mono<Map<String, User>> findByIds(Collection<String> userIds) {
+        return find(userIds, userId -> index.byId.get(userId), "id");
+    }
+
+    /**
+     * 여러 사용자 이름의 사용자를 한 번에 찾는다.
+     *
+     * @param usernames the user name 목록
+     * @return Mono<Map> 사용자 이름(요청한 그대로) -> 사용자 (찾지 못한 이름은 포함하지 않는다)
+     */
+    public Mono<Map<String, User>> findByUsernames(Collection<String> usernames) {
+        return find(usernames, username -> index.byUsername.get(usernameKey(username)), "userName");
+    }
+
+    private Mono<Map<String, User>> find(Collection<String> keys, Function<String, User> indexLookup, String attribute) {
+        return Mono.defer(() -> {
+            warmUp();
+            final Map<String, User> found = new LinkedHashMap<>();
+            final Set<String> missing = new LinkedHashSet<>();
+            for (String key : keys) {
+                if (null == key) continue;
+                final User user = enabled ? indexLookup.apply(key) : null;
+                if (null != user) {
+                    found.put(key, user);
+                } else {
+                    missing.add(key);
+                }
+            }
+            hitCount.addAndGet(found.size());
+            if (missing.isEmpty()) {
+                return Mono.just(found);
+            }
+            missCount.addAndGet(missing.size());
+            return Flux.fromIterable(partition(new ArrayList<>(missing)))
+                    .flatMap(chunk -> lookup(attribute, chunk), PageUtils.DEFAULT_CONCURRENCY)
+                    .doOnNext(this::put)
+                    .collectList()
+                    .map(users -> {
+                        final Map<String, User> fetched = new HashMap<>();
+                        for (User user : users) {
+                            final String key = "id".equals(attribute) ? user.getId() : usernameKey(user.getUserName());
+                            final User previous = fetched.get(key);
+                            if (null == previous || UAA_ORIGIN.equals(user.getOrigin())) fetched.put(key, user);
+                        }
+                        for (String key : missing) {
+                            final User user = fetched.get("id".equals(attribute) ? key : usernameKey(key));
+                            if (null != user) found.put(key, user);
+                        }
+                        return found;
+                    });
+        });
+    }
+
+    /**
+     * 사용자 정보가 바뀌었거나 삭제되었을 때 색인에서 지운다. 다음 조회는 UAA 에서 다시 읽는다.
+     *
+     * @param userId   the user guid (모르면 null)
+     * @param username the user name (모르면 null)
+     */
+    public void evict(String userId, String username) {
+        generation.incrementAndGet();
+        final Index current = index;
+        if (null != userId) {
+            final User removed = current.byId.remove(userId);
+            if (null != removed) current.byUsername.remove(usernameKey(removed.getUserName()), removed);
+        }
+        if (null != username) {
+            final User removed = current.byUsername.remove(usernameKey(username));
+            if (null != removed) current.byId.remove(removed.getId(), removed);
+        }
+    }
+
+    private void put(User user) {
+        if (!enabled || null == user.getId()) return;
+        index.put(user);
+    }
+
+    private Flux<User> lookup(String attribute, List<String> values) {
+        final StringBuilder filter = new StringBuilder();
+        for (String value : values) {
+            if (filter.length() > 0) filter.append(" or ");
+            filter.append(attribute).append(" eq \"").append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"");
+        }
+        lookupCount.incrementAndGet();
+        return PageUtils.requestAllUaaResources(startIndex -> uaaClient().users().list(ListUsersRequest.builder().filter(filter.toString()).startIndex(startIndex).count(PageUtils.UAA_PAGE_SIZE).build()), PageUtils.DEFAULT_CONCURRENCY);
+    }
+
+    private ReactorUaaClient uaaClient() {
+        return Common.uaaClient(connectionContext, adminCredentialHolder.tokenProvider());
+    }
+
+    /**
+     * 색인이 아직 없으면 전체 사용자 조회를 백그라운드로 시작한다. 조회가 끝날 때까지는 UAA 조회로 대신한다.
+     */
+    private void warmUp() {
+        if (!enabled || loaded) return;
+        loadAll().subscribe(ignore -> { }, e -> LOGGER.error("User directory warm up failed : {}", e.getMessage()));
+    }
+
+    private Mono<Index> loadAll() {
+        final long gen = generation.get();
+        return loader.get("full:" + gen, 0L, () -> PageUtils.requestAllUaaResources(startIndex -> uaaClient().users().list(ListUsersRequest.builder().startIndex(startIndex).count(PageUtils.UAA_PAGE_SIZE).build()), PageUtils.DEFAULT_CONCURRENCY)
+                .collect(Index::new, Index::put)
+                .doOnNext(created -> {
+                    fullRefreshCount.incrementAndGet();
+                    if (generation.get() != gen) {
+                        // 조회 중에 사용자가 변경/삭제되었으면 반영하지 않는다. (다음 조회/갱신 주기에 다시 읽는다)
+                        LOGGER.debug("User directory changed while loading, discard loaded index");
+                        return;
+                    }
+                    index = created;
+                    loaded = true;
+                    LOGGER.info("User directory loaded : {} users", created.byId.size());
+                    scheduleRefresh();
+                }));
+    }
+
+    /**
+     * meta.lastModified 가 마지막으로 읽은 시각 이후인 사용자만 다시 읽는다.
+     */
+    private Mono<Long> refreshIncremental() {
+        final Index current = index;
+        final String watermark = current.watermark;
+        if (null == watermark) {
+            return loadAll().map(created -> (long) created.byId.size());
+        }
+        final String filter = "meta.lastModified ge \"" + watermark + "\"";
+        return PageUtils.requestAllUaaResources(startIndex -> uaaClient().users().list(ListUsersRequest.builder().filter(filter).startIndex(startIndex).count(PageUtils.UAA_PAGE_SIZE).build()), PageUtils.DEFAULT_CONCURRENCY)
+                .doOnNext(current::put)
+                .count()
+                .doOnNext(count -> {
+                    incrementalRefreshCount.incrementAndGet();
+                    if (count > 0) LOGGER.debug("User directory refreshed : {} users changed since {}", count, watermark);
+                });
+    }
+
+    private synchronized void scheduleRefresh() {
+        if (scheduled || scheduler.isShutdown()) return;
+        scheduled = true;
+        if (refreshIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    refreshIncremental().block();
+                } catch (Exception e) {
+                    LOGGER.error("User directory refresh failed : {}", e.getMessage());
+                }
+            }, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (fullRefreshIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    loadAll().block();
+                } catch (Exception e) {
+                    LOGGER.error("User directory full refresh failed : {}", e.getMessage());
+                }
+            }, fullRefreshIntervalMillis, fullRefreshIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static List<List<String>> partition(List<String> values) {
+        final List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += LOOKUP_BATCH_SIZE) {
+            chunks.add(values.subList(i, Math.min(i + LOOKUP_BATCH_SIZE, values.size())));
+        }
+        return chunks;
+    }
+
+    private static String usernameKey(String username) {
+        return null == username ? "" : username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 색인 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> stats() {
+        final Index current = index;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("loaded", loaded);
+        stats.put("users", current.byId.size());
+        stats.put("watermark", current.watermark);
+        stats.put("hit", hitCount.get());
+        stats.put("miss", missCount.get());
+        stats.put("lookup", lookupCount.get());
+        stats.put("fullRefresh", fullRefreshCount.get());
+        stats.put("incrementalRefresh", incrementalRefreshCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * GUID, 사용자 이름 색인과 마지막으로 읽은 meta.lastModified
+     */
+    private static final class Index {
+        private final ConcurrentHashMap<String, User> byId = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, User> byUsername = new ConcurrentHashMap<>();
+        private volatile String watermark;
+
+        private synchronized void put(User user) {
+            final User previous = byId.put(user.getId(), user);
+            if (null != previous && !usernameKey(previous.getUserName()).equals(usernameKey(user.getUserName()))) {
+                byUsername.remove(usernameKey(previous.getUserName()), previous);
+            }
+            // 같은 이름이 여러 origin 에 있으면 uaa origin 사용자를 우선한다.
+            byUsername.merge(usernameKey(user.getUserName()), user, (existing, added) ->
+                    existing.getId().equals(added.getId()) || UAA_ORIGIN.equals(added.getOrigin()) || !UAA_ORIGIN.equals(existing.getOrigin()) ? added : existing);
+            final String lastModified = null == user.getMeta() ? null : user.getMeta().getLastModified();
+            // UAA 의 lastModified 는 같은 형식(ISO-8601, UTC)이므로 문자열 비교로 최신 시각을 구한다.
+            if (null != lastModified && (null == watermark || lastModified.compareTo(watermark) > 0)) {
+                watermark = lastModified;
+            }
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package org.openpaas.paasta.portal.api.config.cloudfoundry;
 
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.ssl.TrustStrategy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
@@ -14,24 +23,128 @@ import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 공통 API, 스토리지 API, 모니터링 API 호출에 함께 사용하는 RestTemplate 설정
+ * 연결은 PoolingHttpClientConnectionManager 로 재사용(keep-alive)하며, 유휴 연결은 백그라운드에서 정리한다.
+ * 공통/스토리지/모니터링 API 는 JVM truststore 로 인증서를 검증하고,
+ * CC/UAA 직접 호출(uaaHttpClient, uaaRestTemplate)만 cloudfoundry.cc.api.sslSkipValidation 이 true 일 때 인증서 검증을 생략한다. 두 연결 풀은 따로 쓴다.
+ */
 @Configuration
 public class RestConfig {
 
-    @Bean
-    public RestTemplate restTemplate() throws KeyStoreException, NoSuchAlgorithmException, KeyManagementException {
+    @Value("${paasta.portal.api.http.maxTotal:200}")
+    private int maxTotal = 200;
+
+    @Value("${paasta.portal.api.http.maxPerRoute:50}")
+    private int maxPerRoute = 50;
+
+    @Value("${paasta.portal.api.http.connectTimeout:5000}")
+    private int connectTimeout = 5000;
+
+    @Value("${paasta.portal.api.http.readTimeout:60000}")
+    private int readTimeout = 60000;
+
+    @Value("${paasta.portal.api.http.connectionRequestTimeout:5000}")
+    private int connectionRequestTimeout = 5000;
+
+    @Value("${paasta.portal.api.http.idleTimeout:30000}")
+    private long idleTimeout = 30000;
+
+    @Value("${cloudfoundry.cc.api.sslSkipValidation:false}")
+    private boolean sslSkipValidation;
+
+    /**
+     * 공통/스토리지/모니터링 API 연결 풀 (JVM truststore 로 인증서 검증)
+     */
+    @Bean(destroyMethod = "shutdown")
+    @Primary
+    public PoolingHttpClientConnectionManager httpClientConnectionManager() {
+        return connectionManager(SSLConnectionSocketFactory.getSystemSocketFactory());
+    }
+
+    /**
+     * CC/UAA 직접 호출 연결 풀 (sslSkipValidation 이 true 일 때만 인증서 검증 생략)
+     */
+    @Bean(destroyMethod = "shutdown")
+    public PoolingHttpClientConnectionManager uaaHttpClientConnectionManager() throws KeyStoreException, NoSuchAlgorithmException, KeyManagementException {
+        if (!sslSkipValidation) {
+            return connectionManager(SSLConnectionSocketFactory.getSystemSocketFactory());
+        }
+
         TrustStrategy acceptingTrustStrategy = (X509Certificate[] chain, String authType) -> true;
 
         SSLContext sslContext = org.apache.http.ssl.SSLContexts.custom()
                 .loadTrustMaterial(null, acceptingTrustStrategy)
                 .build();
 
-        SSLConnectionSocketFactory csf = new SSLConnectionSocketFactory(sslContext);
+        return connectionManager(new SSLConnectionSocketFactory(sslContext));
+    }
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    public CloseableHttpClient httpClient() {
+        return httpClient(httpClientConnectionManager());
+    }
+
+    /**
+     * CC/UAA 직접 호출(앱 파일 업로드, 비밀번호 재설정/변경)용 HttpClient
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient uaaHttpClient() throws KeyStoreException, NoSuchAlgorithmException, KeyManagementException {
+        return httpClient(uaaHttpClientConnectionManager());
+    }
 
-        CloseableHttpClient httpClient = HttpClients.custom()
-                .setSSLSocketFactory(csf)
+    /**
+     * 공통/스토리지/모니터링 API 호출용 RestTemplate
+     */
+    @Bean
+    @Primary
+    public RestTemplate restTemplate() {
+        return restTemplate(httpClient());
+    }
+
+    /**
+     * UAA 직접 호출(비밀번호 재설정/변경)용 RestTemplate
+     */
+    @Bean
+    public RestTemplate uaaRestTemplate() throws KeyStoreException, NoSuchAlgorithmException, KeyManagementException {
+        return restTemplate(uaaHttpClient());
+    }
+
+    private PoolingHttpClientConnectionManager connectionManager(SSLConnectionSocketFactory sslSocketFactory) {
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslSocketFactory)
+                .build();
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry);
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        // 오래 쉬었던 연결은 재사용 전에 끊김 여부를 확인한다.
+        connectionManager.setValidateAfterInactivity(2000);
+        return connectionManager;
+    }
+
+    private CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout, TimeUnit.MILLISECONDS)
                 .build();
+    }
 
+    private RestTemplate restTemplate(CloseableHttpClient httpClient) {
         HttpComponentsClientHttpRequestFactory requestFactory =
                 new HttpComponentsClientHttpRequestFactory();
 
@@ -39,4 +152,28 @@ public class RestConfig {
         RestTemplate restTemplate = new RestTemplate(requestFactory);
         return restTemplate;
     }
+
+    /**
+     * 연결 풀 통계를 반환한다. (전체 및 route 별 leased/available/pending/max)
+     *
+     * @param connectionManager the connection manager
+     * @return Map
+     */
+    public static Map<String, Object> poolStats(PoolingHttpClientConnectionManager connectionManager) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("total", poolStats(connectionManager.getTotalStats()));
+        Map<String, Object> routes = new HashMap<>();
+        connectionManager.getRoutes().forEach(route -> routes.put(route.getTargetHost().toURI(), poolStats(connectionManager.getStats(route))));
+        stats.put("routes", routes);
+        return stats;
+    }
+
+    private static Map<String, Object> poolStats(PoolStats poolStats) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("leased", poolStats.getLeased());
+        stats.put("available", poolStats.getAvailable());
+        stats.put("pending", poolStats.getPending());
+        stats.put("max", poolStats.getMax());
+        return stats;
+    }
 }
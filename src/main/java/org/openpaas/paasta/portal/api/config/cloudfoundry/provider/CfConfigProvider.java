@@ -4,18 +4,46 @@ package org.openpaas.paasta.portal.api.config.cloudfoundry.provider;
 import org.cloudfoundry.reactor.DefaultConnectionContext;
 import org.cloudfoundry.reactor.tokenprovider.PasswordGrantTokenProvider;
 import org.openpaas.paasta.portal.api.common.Common;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CF(Cloud Controller, UAA) 호출에 사용하는 ConnectionContext, TokenProvider 설정
+ * ConnectionContext 는 애플리케이션 전체에서 하나만 만들어 같은 Netty 연결 풀과 event loop 를 함께 사용한다.
+ * 따라서 동시 요청 수가 늘어나도 소켓(FD) 수는 connectionPoolSize 를 넘지 않는다.
+ */
 @Configuration
 public class CfConfigProvider {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CfConfigProvider.class);
 
+    @Value("${cloudfoundry.cc.api.connectionPoolSize:64}")
+    private int connectionPoolSize = 64;
 
-    @Bean
+    @Value("${cloudfoundry.cc.api.threadPoolSize:0}")
+    private int threadPoolSize;
+
+    @Value("${cloudfoundry.cc.api.keepAlive:true}")
+    private boolean keepAlive = true;
+
+    @Value("${cloudfoundry.cc.api.connectTimeout:10000}")
+    private long connectTimeout = 10000;
+
+    @Bean(destroyMethod = "dispose")
     DefaultConnectionContext connectionContext(@Value("${cloudfoundry.cc.api.url}") String apiHost, @Value("${cloudfoundry.cc.api.sslSkipValidation}") Boolean sslSkipValidation) {
-        return Common.crateConnectionContext(apiHost, sslSkipValidation);
+        // threadPoolSize 가 0 이하이면 CPU 수만큼 event loop 를 만든다.
+        final int eventLoops = threadPoolSize > 0 ? threadPoolSize : Runtime.getRuntime().availableProcessors();
+        return Common.crateConnectionContext(apiHost, sslSkipValidation, connectionPoolSize, eventLoops, keepAlive, connectTimeout);
     }
 
     @Bean
@@ -26,4 +54,57 @@ public class CfConfigProvider {
                 .username(username)
                 .build();
     }
+
+    /**
+     * 사용 중인 연결 수를 읽을 수 없을 때 activeConnections 에 넣는 값
+     */
+    private static final String UNAVAILABLE = "unavailable";
+
+    /**
+     * ConnectionContext 연결 풀 통계를 반환한다. (설정값, 대상 host 수, 사용 중인 연결 수, 프로세스 FD 수)
+     *
+     * @param connectionContext the connection context
+     * @return Map
+     */
+    public static Map<String, Object> poolStats(DefaultConnectionContext connectionContext) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("apiHost", connectionContext.getApiHost());
+        stats.put("connectionPoolSize", connectionContext.getConnectionPoolSize());
+        stats.put("threadPoolSize", connectionContext.getThreadPoolSize());
+        stats.put("keepAlive", connectionContext.getKeepAlive().orElse(false));
+        stats.put("connectTimeout", connectionContext.getConnectTimeout().map(duration -> duration.toMillis()).orElse(-1L));
+        stats.put("activeConnections", UNAVAILABLE);
+        connectionContext.getConnectionPool().ifPresent(pool -> activeConnections(pool, stats));
+
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            stats.put("openFileDescriptors", ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount());
+            stats.put("maxFileDescriptors", ((com.sun.management.UnixOperatingSystemMXBean) os).getMaxFileDescriptorCount());
+        }
+        return stats;
+    }
+
+    /**
+     * reactor-netty 0.7 PoolResources 는 통계 API 를 제공하지 않으므로 host 별 풀(channelPools)의 activeConnections 를 읽는다.
+     * 두 필드는 reactor-netty 0.7.x 의 DefaultPoolResources, DefaultPoolResources.Pool 내부 필드이므로 reactor-netty(cf-java-client) 버전을 올리면 없어지거나 바뀔 수 있다.
+     * 필드를 모두 읽은 경우에만 hosts, activeConnections 를 채우며, 읽을 수 없으면 activeConnections 는 "unavailable" 로 남긴다.
+     */
+    private static void activeConnections(Object poolResources, Map<String, Object> stats) {
+        try {
+            Field channelPoolsField = poolResources.getClass().getDeclaredField("channelPools");
+            channelPoolsField.setAccessible(true);
+            Map<?, ?> channelPools = (Map<?, ?>) channelPoolsField.get(poolResources);
+
+            int active = 0;
+            for (Object pool : channelPools.values()) {
+                Field activeField = pool.getClass().getDeclaredField("activeConnections");
+                activeField.setAccessible(true);
+                active += ((AtomicInteger) activeField.get(pool)).get();
+            }
+            stats.put("hosts", channelPools.size());
+            stats.put("activeConnections", active);
+        } catch (Exception e) {
+            LOGGER.debug("Cannot read connection pool stats : {}", e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package org.openpaas.paasta.portal.api.config.cloudfoundry.provider;
+
+import org.cloudfoundry.client.lib.CloudFoundryException;
+import org.cloudfoundry.reactor.ConnectionContext;
+import org.cloudfoundry.reactor.TokenProvider;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * 토큰 발급(/oauth/token) 요청 전용 TokenProvider.
+ * 토큰 발급 요청은 client 인증으로 보내므로 사용자 토큰을 제공하지 않는다.
+ * 401(잘못된 사용자 정보) 응답 시 라이브러리가 토큰을 무효화하고 같은 요청을 다시 보내지 않도록 invalidate 에서 오류를 던진다.
+ */
+public class ClientAuthTokenProvider implements TokenProvider {
+
+    @Override
+    public Mono<String> getToken(ConnectionContext connectionContext) {
+        return Mono.just("");
+    }
+
+    @Override
+    public void invalidate(ConnectionContext connectionContext) {
+        throw new CloudFoundryException(HttpStatus.UNAUTHORIZED, "Error requesting access token.");
+    }
+}
@@ -18,4 +18,8 @@ public class TokenGrantTokenProvider implements TokenProvider{
 
         return Mono.just(token);
     }
+
+    public String getToken() {
+        return token;
+    }
 }
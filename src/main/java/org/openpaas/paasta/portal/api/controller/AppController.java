@@ -14,7 +14,13 @@ import org.openpaas.paasta.portal.api.service.AppService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Mono;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
@@ -62,10 +68,13 @@ public class AppController extends Common {
      * @throws Exception the exception
      */
     @RequestMapping(value = {Constants.V2_URL + "/apps/{guid}/stats"}, method = RequestMethod.GET)
-    public ApplicationStatisticsResponse getAppStats(@PathVariable String guid, HttpServletRequest request) throws Exception {
+    public DeferredResult<ApplicationStatisticsResponse> getAppStats(@PathVariable String guid, HttpServletRequest request) throws Exception {
+        if (reactiveEnabled) {
+            return deferredResult(appService.getAppStatsMono(guid, this.getToken()));
+        }
         //service call
         ApplicationStatisticsResponse applicationStatisticsResponse = appService.getAppStats(guid, this.getToken());
-        return applicationStatisticsResponse;
+        return deferredResult(Mono.justOrEmpty(applicationStatisticsResponse));
     }
 
     /**
@@ -364,6 +373,50 @@ public class AppController extends Common {
         return mapLog;
     }
 
+    /**
+     * 앱 최근 로그를 NDJSON 으로 스트리밍한다. (Accept: application/x-ndjson)
+     *
+     * @param guid           the app guid
+     * @param limit          최대 envelope 수 (0 이면 제한 없음)
+     * @param sourceType     APP, RTR, STG 등
+     * @param sourceInstance 인스턴스 index
+     * @param messageType    OUT, ERR
+     * @param sort           timestamp 정렬 여부
+     * @return ResponseEntity<ResponseBodyEmitter>
+     */
+    @GetMapping(value = Constants.V2_URL + "/apps/{guid}/recentlogs", produces = Constants.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> streamRecentLog(@PathVariable String guid,
+                                                               @RequestParam(value = "limit", defaultValue = "0") int limit,
+                                                               @RequestParam(value = "sourceType", required = false) String sourceType,
+                                                               @RequestParam(value = "instance", required = false) String sourceInstance,
+                                                               @RequestParam(value = "messageType", required = false) String messageType,
+                                                               @RequestParam(value = "sort", defaultValue = "false") boolean sort) {
+        LOGGER.info("streamRecentLog : " + guid);
+        return ndjson(appService.getRecentLogFlux(guid, this.getToken(), sourceType, sourceInstance, messageType, limit, sort));
+    }
+
+    /**
+     * 앱 최근 로그를 Server-Sent Events 로 스트리밍한다. (Accept: text/event-stream, event 이름 : log)
+     *
+     * @param guid           the app guid
+     * @param limit          최대 envelope 수 (0 이면 제한 없음)
+     * @param sourceType     APP, RTR, STG 등
+     * @param sourceInstance 인스턴스 index
+     * @param messageType    OUT, ERR
+     * @param sort           timestamp 정렬 여부
+     * @return SseEmitter
+     */
+    @GetMapping(value = Constants.V2_URL + "/apps/{guid}/recentlogs", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRecentLogEvents(@PathVariable String guid,
+                                            @RequestParam(value = "limit", defaultValue = "0") int limit,
+                                            @RequestParam(value = "sourceType", required = false) String sourceType,
+                                            @RequestParam(value = "instance", required = false) String sourceInstance,
+                                            @RequestParam(value = "messageType", required = false) String messageType,
+                                            @RequestParam(value = "sort", defaultValue = "false") boolean sort) {
+        LOGGER.info("streamRecentLogEvents : " + guid);
+        return sse(appService.getRecentLogFlux(guid, this.getToken(), sourceType, sourceInstance, messageType, limit, sort), "log");
+    }
+
     /**
      * 앱 최근 로그를 가져온다.
      *
@@ -392,6 +445,24 @@ public class AppController extends Common {
         return mapLog;
     }
 
+    /**
+     * 앱 실시간 로그를 Server-Sent Events 로 구독한다. (Accept: text/event-stream, event 이름 : log)
+     *
+     * @param guid           the app guid
+     * @param sourceType     APP, RTR, STG 등
+     * @param sourceInstance 인스턴스 index
+     * @param messageType    OUT, ERR
+     * @return SseEmitter
+     */
+    @GetMapping(value = Constants.V2_URL + "/apps/{guid}/taillogs", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTailLogs(@PathVariable String guid,
+                                     @RequestParam(value = "sourceType", required = false) String sourceType,
+                                     @RequestParam(value = "instance", required = false) String sourceInstance,
+                                     @RequestParam(value = "messageType", required = false) String messageType) {
+        LOGGER.info("streamTailLogs : " + guid);
+        return appService.streamTailLog(guid, sourceType, sourceInstance, messageType);
+    }
+
     /**
      * 유저 프로바이드 credentials을 가져온다.
      *
@@ -11,13 +11,17 @@ import org.cloudfoundry.reactor.client.ReactorCloudFoundryClient;
 import org.openpaas.paasta.portal.api.common.Common;
 import org.openpaas.paasta.portal.api.common.Constants;
 import org.openpaas.paasta.portal.api.model.Catalog;
+import org.openpaas.paasta.portal.api.service.CatalogDeploymentService;
 import org.openpaas.paasta.portal.api.service.CatalogService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Mono;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -33,9 +37,11 @@ public class CatalogController extends Common {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CatalogController.class);
     private final CatalogService catalogService;
+    private final CatalogDeploymentService catalogDeploymentService;
     @Autowired
-    public CatalogController(CatalogService catalogService) {
+    public CatalogController(CatalogService catalogService, CatalogDeploymentService catalogDeploymentService) {
         this.catalogService = catalogService;
+        this.catalogDeploymentService = catalogDeploymentService;
     }
 
     /**
@@ -122,32 +128,64 @@ public class CatalogController extends Common {
     }
 
     /**
-     * 앱을 생성한다.
+     * 앱을 생성한다. 배포는 백그라운드에서 진행되며, async 가 true 이면 배포 id 를 바로 응답한다.
      *
      * @param param Catalog(모델클래스)
-     * @param token,token2   HttpServletRequest(자바클래스)
-     * @param response   HttpServletResponse(자바클래스)
+     * @param token HttpServletRequest(자바클래스)
+     * @param async 배포 완료를 기다리지 않고 바로 응답할지 여부
      * @return Map(자바클래스)
      * @throws Exception Exception(자바클래스)
      */
     @PostMapping(Constants.V2_URL+"/catalogs/app")
-    public Map<String, Object> createApp(@RequestBody Catalog param,   @RequestHeader(AUTHORIZATION_HEADER_KEY) String token, @RequestHeader("User-Agent") String token2, HttpServletResponse response) throws  Exception{
-        token = adminToken(token);
-        return catalogService.createApp(param, token, token2, response);
+    public DeferredResult<Map<String, Object>> createApp(@RequestBody Catalog param, @RequestHeader(AUTHORIZATION_HEADER_KEY) String token, @RequestParam(value = "async", required = false, defaultValue = "false") boolean async) throws  Exception{
+        return deploymentResult(catalogDeploymentService.deploy(param, adminToken(token), token, false), async);
     }
 
     /**
-     * 앱 템플릿을 생성한다.
+     * 앱 템플릿을 생성한다. 배포는 백그라운드에서 진행되며, async 가 true 이면 배포 id 를 바로 응답한다.
      *
      * @param param Catalog(모델클래스)
-     * @param token,token2   HttpServletRequest(자바클래스)
-     * @param response   HttpServletResponse(자바클래스)
+     * @param token HttpServletRequest(자바클래스)
+     * @param async 배포 완료를 기다리지 않고 바로 응답할지 여부
      * @return Map(자바클래스)
      * @throws Exception Exception(자바클래스)
      */
     @PostMapping(Constants.V2_URL+"/catalogs/apptemplate")
-    public Map<String, Object> createAppTemplate(@RequestBody Catalog param,   @RequestHeader(AUTHORIZATION_HEADER_KEY) String token, @RequestHeader("User-Agent") String token2, HttpServletResponse response) throws  Exception{
-        return catalogService.createAppTemplate(param, token, token2, response);
+    public DeferredResult<Map<String, Object>> createAppTemplate(@RequestBody Catalog param, @RequestHeader(AUTHORIZATION_HEADER_KEY) String token, @RequestParam(value = "async", required = false, defaultValue = "false") boolean async) throws  Exception{
+        return deploymentResult(catalogDeploymentService.deploy(param, token, token, true), async);
+    }
+
+    /**
+     * 카탈로그 배포 진행 상황을 조회한다.
+     *
+     * @param deploymentId 배포 id
+     * @param token        배포를 시작한 토큰
+     * @return Map(자바클래스)
+     */
+    @GetMapping(Constants.V2_URL+"/catalogs/deployments/{deploymentId}")
+    public Map<String, Object> getDeployment(@PathVariable String deploymentId, @RequestHeader(AUTHORIZATION_HEADER_KEY) String token) {
+        return catalogDeploymentService.getDeployment(deploymentId, token).toMap();
+    }
+
+    /**
+     * 카탈로그 배포 진행 상황을 Server-Sent Events("progress")로 받는다. 배포가 끝나면 연결을 닫는다.
+     *
+     * @param deploymentId 배포 id
+     * @param token        배포를 시작한 토큰
+     * @return SseEmitter
+     */
+    @GetMapping(value = Constants.V2_URL+"/catalogs/deployments/{deploymentId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDeployment(@PathVariable String deploymentId, @RequestHeader(AUTHORIZATION_HEADER_KEY) String token) {
+        return sse(catalogDeploymentService.getDeployment(deploymentId, token).events(), "progress");
+    }
+
+    private DeferredResult<Map<String, Object>> deploymentResult(CatalogDeploymentService.Deployment deployment, boolean async) {
+        if (async) {
+            Map<String, Object> result = deployment.toMap();
+            result.put("RESULT", Constants.RESULT_STATUS_SUCCESS);
+            return deferredResult(Mono.just(result));
+        }
+        return deferredResult(deployment.result(), Constants.STREAMING_TIMEOUT);
     }
 
     /**
@@ -0,0 +1,63 @@
+package org.openpaas.paasta.portal.api.controller;
+
+import org.cloudfoundry.client.lib.CloudFoundryException;
+import org.openpaas.paasta.portal.api.common.Common;
+import org.openpaas.paasta.portal.api.common.Constants;
+import org.openpaas.paasta.portal.api.common.JobRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CC 비동기 작업(조직/공간 삭제 등)의 진행 상태를 조회하는 컨트롤러
+ */
+@RestController
+public class JobController extends Common {
+
+    /**
+     * 한 번에 조회할 수 있는 최대 작업 수
+     */
+    private static final int MAX_BATCH_SIZE = 100;
+
+    private final JobRegistry jobRegistry;
+
+    @Autowired
+    public JobController(JobRegistry jobRegistry) {
+        this.jobRegistry = jobRegistry;
+    }
+
+    /**
+     * 작업 상태를 조회한다.
+     *
+     * @param jobId the job guid
+     * @param token the token
+     * @return Map job 상태 (id, status, operation, resourceId, error ...)
+     */
+    @GetMapping(Constants.V2_URL + "/jobs/{jobId}")
+    public DeferredResult<Map<String, Object>> getJob(@PathVariable String jobId, @RequestHeader(AUTHORIZATION_HEADER_KEY) String token) {
+        return deferredResult(jobRegistry.get(jobId, token));
+    }
+
+    /**
+     * 여러 작업의 상태를 한 번에 조회한다. (예 : /v2/jobs?ids=guid1,guid2)
+     *
+     * @param ids   the job guid 목록
+     * @param token the token
+     * @return Map job guid -> job 상태
+     */
+    @GetMapping(Constants.V2_URL + "/jobs")
+    public DeferredResult<Map<String, Map<String, Object>>> getJobs(@RequestParam List<String> ids, @RequestHeader(AUTHORIZATION_HEADER_KEY) String token) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new CloudFoundryException(HttpStatus.BAD_REQUEST, "Bad Request", "Too many job ids (max " + MAX_BATCH_SIZE + ")");
+        }
+        return deferredResult(jobRegistry.getAll(ids, token));
+    }
+}
@@ -0,0 +1,98 @@
+package org.openpaas.paasta.portal.api.controller;
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.openpaas.paasta.portal.api.common.CatalogIndex;
+import org.openpaas.paasta.portal.api.common.Common;
+import org.openpaas.paasta.portal.api.common.Constants;
+import org.openpaas.paasta.portal.api.common.JobRegistry;
+import org.openpaas.paasta.portal.api.common.LogTailHub;
+import org.openpaas.paasta.portal.api.common.OrgRoleCache;
+import org.openpaas.paasta.portal.api.common.RequestCoalescer;
+import org.openpaas.paasta.portal.api.common.SampleArtifactCache;
+import org.openpaas.paasta.portal.api.common.TokenIdentityCache;
+import org.openpaas.paasta.portal.api.common.UserDirectory;
+import org.openpaas.paasta.portal.api.config.cloudfoundry.RestConfig;
+import org.openpaas.paasta.portal.api.config.cloudfoundry.provider.CfConfigProvider;
+import org.openpaas.paasta.portal.api.service.LoginService;
+import org.openpaas.paasta.portal.api.service.MonitoringService;
+import org.openpaas.paasta.portal.api.service.OrgService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 포털 API 내부 캐시/풀/lock 통계를 조회하는 컨트롤러
+ */
+@RestController
+public class MetricsController extends Common {
+
+    @Autowired
+    private OrgService orgService;
+
+    @Autowired
+    private OrgRoleCache orgRoleCache;
+
+    @Autowired
+    private LogTailHub logTailHub;
+
+    @Autowired
+    private MonitoringService monitoringService;
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private CatalogIndex catalogIndex;
+
+    @Autowired
+    private SampleArtifactCache sampleArtifactCache;
+
+    @Autowired
+    private JobRegistry jobRegistry;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
+    @Autowired
+    private TokenIdentityCache tokenIdentityCache;
+
+    @Autowired
+    private LoginService loginService;
+
+    @Autowired
+    private PoolingHttpClientConnectionManager httpClientConnectionManager;
+
+    @Autowired
+    @Qualifier("uaaHttpClientConnectionManager")
+    private PoolingHttpClientConnectionManager uaaHttpClientConnectionManager;
+
+    /**
+     * 내부 통계를 조회한다.
+     *
+     * @return Map metrics
+     */
+    @GetMapping(Constants.V2_URL + "/metrics")
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("cloudFoundryClientRegistry", Common.cloudFoundryClientRegistry().stats());
+        metrics.put("orgRoleCache", orgRoleCache.stats());
+        metrics.put("orgLock", orgService.getOrgLockStats());
+        metrics.put("logTail", logTailHub.stats());
+        metrics.put("httpPool", RestConfig.poolStats(httpClientConnectionManager));
+        metrics.put("uaaHttpPool", RestConfig.poolStats(uaaHttpClientConnectionManager));
+        metrics.put("connectionContext", CfConfigProvider.poolStats(connectionContext()));
+        metrics.put("monitoringCache", monitoringService.getCacheStats());
+        metrics.put("requestCoalescer", requestCoalescer.stats());
+        metrics.put("catalogIndex", catalogIndex.stats());
+        metrics.put("sampleArtifactCache", sampleArtifactCache.stats());
+        metrics.put("jobRegistry", jobRegistry.stats());
+        metrics.put("userDirectory", userDirectory.stats());
+        metrics.put("tokenIdentityCache", tokenIdentityCache.stats());
+        metrics.put("loginTokenStore", loginService.getTokenStoreStats());
+        return metrics;
+    }
+}
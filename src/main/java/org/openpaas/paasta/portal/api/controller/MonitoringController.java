@@ -69,4 +69,19 @@ public class MonitoringController{
     public Map getNetworkByte(@PathVariable String guid, @PathVariable long idx, @RequestParam(value = "defaultTimeRange") String defaultTimeRange, @RequestParam(value = "groupBy") String groupBy, @RequestParam(value = "type") String type){
         return monitoringService.getNetworkByte(guid, idx, defaultTimeRange, groupBy, type);
     }
+
+    /**
+     * CPU, 메모리, 네트워크 사용량을 한 번에 가져온다.
+     *
+     * @param guid the String
+     * @param idx the long
+     * @param defaultTimeRange the String
+     * @param groupBy the String
+     * @param type the String
+     * @return the map (cpu, memory, network)
+     */
+    @RequestMapping(value = {"/{guid}/{idx}/allUsage"}, method = RequestMethod.GET)
+    public Map getAllUsage(@PathVariable String guid, @PathVariable long idx, @RequestParam(value = "defaultTimeRange") String defaultTimeRange, @RequestParam(value = "groupBy") String groupBy, @RequestParam(value = "type") String type){
+        return monitoringService.getAllUsage(guid, idx, defaultTimeRange, groupBy, type);
+    }
 }
@@ -23,7 +23,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
 
@@ -94,11 +98,14 @@ public class OrgController extends Common {
      * @return summary of the organization
      */
     @GetMapping(V2_URL + "/orgs/{orgId}/summary")
-    public Map getOrgSummary(@PathVariable String orgId, @RequestHeader(AUTHORIZATION_HEADER_KEY) String token) {
+    public DeferredResult<Map> getOrgSummary(@PathVariable String orgId, @RequestHeader(AUTHORIZATION_HEADER_KEY) String token) {
         LOGGER.info("org summary : " + orgId);
+        if (reactiveEnabled) {
+            return deferredResult(adminTokenMono(token).flatMap(adminToken -> orgService.getOrgSummaryMapMono(orgId, Common.cloudFoundryClient(connectionContext(), tokenProvider(adminToken)))));
+        }
         token = adminToken(token);
         ReactorCloudFoundryClient reactorClients = Common.cloudFoundryClient(connectionContext(), tokenProvider(token));
-        return orgService.getOrgSummaryMap(orgId, reactorClients);
+        return deferredResult(Mono.justOrEmpty(orgService.getOrgSummaryMap(orgId, reactorClients)));
     }
 
     /**
@@ -138,6 +145,29 @@ public class OrgController extends Common {
     	LOGGER.debug("Org list for admin");
     	return orgService.getOrgsForAdmin();
     }
+
+    /**
+     * 사용자의 조직 목록을 NDJSON 으로 스트리밍한다. (Accept: application/x-ndjson)
+     *
+     * @param token the token
+     * @return ResponseEntity<ResponseBodyEmitter>
+     */
+    @GetMapping(value = V2_URL + "/orgs", produces = Constants.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> streamOrgsForUser(@RequestHeader(AUTHORIZATION_HEADER_KEY) String token) {
+        LOGGER.debug("Org list stream by user");
+        return ndjson(orgService.getAllOrgsForUserFlux(adminToken(token)));
+    }
+
+    /**
+     * 관리자 권한으로 조직 목록을 NDJSON 으로 스트리밍한다. (Accept: application/x-ndjson)
+     *
+     * @return ResponseEntity<ResponseBodyEmitter>
+     */
+    @GetMapping(value = V2_URL + "/orgs-admin", produces = Constants.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> streamOrgsForAdmin() {
+        LOGGER.debug("Org list stream for admin");
+        return ndjson(orgService.getOrgsForAdminFlux());
+    }
     /**
      * 관리자 권한으로 조직 목록을 조회한다.
      * @return ListOrganizationsResponse
@@ -171,6 +201,20 @@ public class OrgController extends Common {
         return result;
     }
 
+    /**
+     * 조직의 공간 목록을 NDJSON 으로 스트리밍한다. (Accept: application/x-ndjson)
+     *
+     * @param orgId the org id
+     * @param token the token
+     * @return ResponseEntity<ResponseBodyEmitter>
+     */
+    @GetMapping(value = V2_URL + "/orgs/{orgId}/spaces", produces = Constants.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> streamSpaces(@PathVariable String orgId, @RequestHeader(AUTHORIZATION_HEADER_KEY) String token) {
+        LOGGER.debug("Get Spaces stream " + orgId);
+        token = adminToken(token);
+        return ndjson(spaceService.getSpacesFlux(orgId, Common.cloudFoundryClient(connectionContext(), tokenProvider(token))));
+    }
+
     /**
      * 공간 목록을 조회한다.(관리자)
      * 특정 조직을 인자로 받아 해당 조직의 공간을 조회한다.
@@ -23,7 +23,9 @@ import org.openpaas.paasta.portal.api.service.ServiceService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
@@ -235,6 +237,17 @@ public class ServiceController extends Common {
         return serviceService.getServicePlans(request.getHeader(AUTHORIZATION_HEADER_KEY));
     }
 
+    /**
+     * 서비스 플랜 목록을 NDJSON 으로 스트리밍한다. (Accept: application/x-ndjson)
+     *
+     * @return ResponseEntity<ResponseBodyEmitter>
+     */
+    @GetMapping(value = Constants.V2_URL + "/serviceplans", produces = Constants.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> streamServicePlans() {
+        LOGGER.info("streamServicePlans Start:");
+        return ndjson(serviceService.getServicePlansFlux());
+    }
+
     /**
      * 해당 서비스 제어 상세내용을 조회한다.
      *
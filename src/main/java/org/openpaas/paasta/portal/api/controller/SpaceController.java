@@ -17,10 +17,16 @@ import org.openpaas.paasta.portal.api.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeoutException;
 
 
 @RestController
@@ -45,6 +51,18 @@ public class SpaceController extends Common {
     @Autowired
     AppService appService;
 
+    /**
+     * summarylist 조회 시 앱 통계를 동시에 조회할 최대 개수
+     */
+    @Value("${cloudfoundry.cc.api.statsConcurrency:8}")
+    int statsConcurrency;
+
+    /**
+     * summarylist 조회 시 앱 하나의 통계 조회 제한시간(ms)
+     */
+    @Value("${cloudfoundry.cc.api.statsTimeout:5000}")
+    long statsTimeout;
+
     /**
      * 공간 요약 정보를 조회한다.
      *
@@ -85,76 +103,123 @@ public class SpaceController extends Common {
      * @throws Exception the exception
      */
     @GetMapping(Constants.V2_URL+"/spaces/{spaceid}/summarylist")
-    public Map getSpaceSummary2(@PathVariable String spaceid, @RequestHeader(AUTHORIZATION_HEADER_KEY) String token) throws Exception {
+    public DeferredResult<Map> getSpaceSummary2(@PathVariable String spaceid, @RequestHeader(AUTHORIZATION_HEADER_KEY) String token) throws Exception {
         LOGGER.info("Get SpaceSummary Start : " + spaceid);
+        if (reactiveEnabled) {
+            return deferredResult(orgService.adminTokenMono(token)
+                    .flatMap(adminToken -> spaceService.getSpaceSummaryMono(spaceid, Common.cloudFoundryClient(connectionContext(), tokenProvider(adminToken))))
+                    .flatMap(respSapceSummary -> getTokenMono().flatMap(adminToken -> getSpaceSummaryWithUsageMono(respSapceSummary, adminToken)))
+                    .doOnSuccess(resultMap -> LOGGER.info("Get SpaceSummary End ")));
+        }
         token = orgService.adminToken(token);
         GetSpaceSummaryResponse respSapceSummary = spaceService.getSpaceSummary(spaceid, Common.cloudFoundryClient(connectionContext(), tokenProvider(token)));
 
-        Map<String, Object> resultMap = new HashMap<>();
-        List<SpaceApplicationSummary> appsArray = new ArrayList<>();
-        List<Map<String, Object>> appArray = new ArrayList<>();
-//        appArray = respSapceSummary.getApplications();
+        Map resultMap = getSpaceSummaryWithUsageMono(respSapceSummary, this.getToken()).block();
+
+        LOGGER.info("Get SpaceSummary End ");
+
+        return deferredResult(Mono.justOrEmpty(resultMap));
+    }
+
+    /**
+     * 공간 요약 정보에 앱별 사용률을 더한 결과를 non-blocking 으로 조회한다.
+     * 실행중인 앱의 통계는 최대 statsConcurrency 개까지 동시에 조회하며, statsTimeout 을 넘긴 앱은 사용률 0 과 statsTimeout=true 로 채운다.
+     *
+     * @param respSapceSummary the space summary
+     * @param adminToken       앱 통계 조회에 사용할 관리자 토큰
+     * @return Mono<Map> resultMap
+     */
+    private Mono<Map> getSpaceSummaryWithUsageMono(GetSpaceSummaryResponse respSapceSummary, String adminToken) {
+        return Flux.fromIterable(respSapceSummary.getApplications())
+                .flatMapSequential(sapceApplicationSummary -> {
+                    Mono<Map<String, Object>> usage = sapceApplicationSummary.getState().equals("STARTED")
+                            ? appService.getAppStatsMono(sapceApplicationSummary.getId(), adminToken)
+                                    .timeout(Duration.ofMillis(statsTimeout))
+                                    .map(stats -> getAppUsage(sapceApplicationSummary, stats))
+                                    .onErrorResume(TimeoutException.class, e -> {
+                                        LOGGER.warn("App stats timeout : " + sapceApplicationSummary.getId());
+                                        Map<String, Object> resultMap2 = getAppUsage(sapceApplicationSummary, null);
+                                        resultMap2.put("statsTimeout", true);
+                                        return Mono.just(resultMap2);
+                                    })
+                            : Mono.fromCallable(() -> getAppUsage(sapceApplicationSummary, null));
+                    return usage.onErrorResume(e -> {
+                                // 통계를 가져오지 못한 앱도 사용률 없이 목록에 포함한다.
+                                LOGGER.error("App stats failed : " + sapceApplicationSummary.getId(), e);
+                                return Mono.just(getAppUsage(sapceApplicationSummary, null));
+                            })
+                            .map(resultMap2 -> new AbstractMap.SimpleEntry<>(sapceApplicationSummary, resultMap2));
+                }, Math.max(statsConcurrency, 1))
+                .collectList()
+                .map(entries -> {
+                    Map<String, Object> resultMap = getSpaceSummaryMap(respSapceSummary);
+                    List<SpaceApplicationSummary> appsArray = new ArrayList<>();
+                    List<Map<String, Object>> appArray = new ArrayList<>();
+                    for (Map.Entry<SpaceApplicationSummary, Map<String, Object>> entry : entries) {
+                        appsArray.add(entry.getKey());
+                        appArray.add(entry.getValue());
+                    }
+                    resultMap.put("apps", appsArray);
+                    resultMap.put("appsPer", appArray);
+                    return resultMap;
+                });
+    }
 
-        //TODO
+    private Map<String, Object> getSpaceSummaryMap(GetSpaceSummaryResponse respSapceSummary) {
+        Map<String, Object> resultMap = new HashMap<>();
         resultMap.put("apps", respSapceSummary.getApplications());
         resultMap.put("guid", respSapceSummary.getId());
         resultMap.put("name", respSapceSummary.getName());
         resultMap.put("services", respSapceSummary.getServices());
+        return resultMap;
+    }
 
-        for(SpaceApplicationSummary sapceApplicationSummary : respSapceSummary.getApplications()) {
-            Map<String, Object> resultMap2 = new HashMap<>();
-
-            try {
-                if(sapceApplicationSummary.getState().equals("STARTED")) {
-                    ApplicationStatisticsResponse applicationStatisticsResponse = appService.getAppStats(sapceApplicationSummary.getId(), this.getToken());
-
-                    Double cpu = 0.0;
-                    Double mem = 0.0;
-                    Double disk = 0.0;
-                    int cnt = 0;
-                    for(int i = 0; i < applicationStatisticsResponse.getInstances().size(); i++) {
-                        if(applicationStatisticsResponse.getInstances().get(Integer.toString(i)).getState().equals("RUNNING")) {
-                            Double instanceCpu = applicationStatisticsResponse.getInstances().get(Integer.toString(i)).getStatistics().getUsage().getCpu();
-                            Long instanceMem = applicationStatisticsResponse.getInstances().get(Integer.toString(i)).getStatistics().getUsage().getMemory();
-                            Long instanceMemQuota = applicationStatisticsResponse.getInstances().get(Integer.toString(i)).getStatistics().getMemoryQuota();
-                            Long instanceDisk = applicationStatisticsResponse.getInstances().get(Integer.toString(i)).getStatistics().getUsage().getDisk();
-                            Long instanceDiskQuota = applicationStatisticsResponse.getInstances().get(Integer.toString(i)).getStatistics().getDiskQuota();
-
-                            if(instanceCpu != null) cpu = cpu + instanceCpu * 100;
-                            if(instanceMem != null) mem = mem + (double)instanceMem / (double)instanceMemQuota * 100;
-                            if(instanceDisk != null) disk = disk + (double)instanceDisk / (double)instanceDiskQuota * 100;
-
-                            cnt++;
-                        }
-                    }
+    /**
+     * 앱 인스턴스 통계로 앱의 평균 cpu/memory/disk 사용률을 계산한다. 통계가 없으면(중지된 앱) 0 으로 채운다.
+     *
+     * @param sapceApplicationSummary        the app summary
+     * @param applicationStatisticsResponse the app stats
+     * @return Map guid, cpuPer, memPer, diskPer
+     */
+    private Map<String, Object> getAppUsage(SpaceApplicationSummary sapceApplicationSummary, ApplicationStatisticsResponse applicationStatisticsResponse) {
+        Map<String, Object> resultMap2 = new HashMap<>();
+        resultMap2.put("guid", sapceApplicationSummary.getId());
+
+        if (null == applicationStatisticsResponse) {
+            resultMap2.put("cpuPer", 0);
+            resultMap2.put("memPer", 0);
+            resultMap2.put("diskPer", 0);
+            return resultMap2;
+        }
 
-                    cpu = cpu / cnt;
-                    mem = mem / cnt;
-                    disk = disk / cnt;
-
-                    resultMap2.put("guid", sapceApplicationSummary.getId());
-                    resultMap2.put("cpuPer", Double.parseDouble(String.format("%.2f%n", cpu)));
-                    resultMap2.put("memPer", Math.round(mem));
-                    resultMap2.put("diskPer", Math.round(disk));
-                } else {
-                    resultMap2.put("guid", sapceApplicationSummary.getId());
-                    resultMap2.put("cpuPer", 0);
-                    resultMap2.put("memPer", 0);
-                    resultMap2.put("diskPer", 0);
-                }
-
-                appsArray.add(sapceApplicationSummary);
-                appArray.add(resultMap2);
-            } catch(Exception e) {
-                e.printStackTrace();
+        Double cpu = 0.0;
+        Double mem = 0.0;
+        Double disk = 0.0;
+        int cnt = 0;
+        for(int i = 0; i < applicationStatisticsResponse.getInstances().size(); i++) {
+            if(applicationStatisticsResponse.getInstances().get(Integer.toString(i)).getState().equals("RUNNING")) {
+                Double instanceCpu = applicationStatisticsResponse.getInstances().get(Integer.toString(i)).getStatistics().getUsage().getCpu();
+                Long instanceMem = applicationStatisticsResponse.getInstances().get(Integer.toString(i)).getStatistics().getUsage().getMemory();
+                Long instanceMemQuota = applicationStatisticsResponse.getInstances().get(Integer.toString(i)).getStatistics().getMemoryQuota();
+                Long instanceDisk = applicationStatisticsResponse.getInstances().get(Integer.toString(i)).getStatistics().getUsage().getDisk();
+                Long instanceDiskQuota = applicationStatisticsResponse.getInstances().get(Integer.toString(i)).getStatistics().getDiskQuota();
+
+                if(instanceCpu != null) cpu = cpu + instanceCpu * 100;
+                if(instanceMem != null) mem = mem + (double)instanceMem / (double)instanceMemQuota * 100;
+                if(instanceDisk != null) disk = disk + (double)instanceDisk / (double)instanceDiskQuota * 100;
+
+                cnt++;
             }
         }
-        resultMap.put("apps", appsArray);
-        resultMap.put("appsPer", appArray);
 
-        LOGGER.info("Get SpaceSummary End ");
+        cpu = cpu / cnt;
+        mem = mem / cnt;
+        disk = disk / cnt;
 
-        return resultMap;
+        resultMap2.put("cpuPer", Double.parseDouble(String.format("%.2f%n", cpu)));
+        resultMap2.put("memPer", Math.round(mem));
+        resultMap2.put("diskPer", Math.round(disk));
+        return resultMap2;
     }
 
     @GetMapping(V2_URL + "/spaces/{spaceid}")
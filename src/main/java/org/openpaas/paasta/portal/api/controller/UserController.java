@@ -1,5 +1,6 @@
 package org.openpaas.paasta.portal.api.controller;
 
+import org.cloudfoundry.client.lib.CloudFoundryException;
 import org.cloudfoundry.client.v2.users.GetUserResponse;
 import org.cloudfoundry.uaa.users.UpdateUserResponse;
 import org.cloudfoundry.uaa.users.User;
@@ -10,7 +11,10 @@ import org.openpaas.paasta.portal.api.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -37,6 +41,11 @@ public class UserController extends Common {
      */
     private static final String V2_URL = Constants.V2_URL;
 
+    /**
+     * 한 번에 조회할 수 있는 최대 유저 수
+     */
+    private static final int MAX_BATCH_SIZE = 100;
+
 
     /**
      * Update user password map.
@@ -123,6 +132,16 @@ public class UserController extends Common {
         return userInfo;
     }
 
+    /**
+     * 전체 사용자 목록을 NDJSON 으로 스트리밍한다. (Accept: application/x-ndjson)
+     *
+     * @return ResponseEntity<ResponseBodyEmitter>
+     */
+    @GetMapping(value = V2_URL + "/users", produces = Constants.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> streamAllUsers() {
+        return ndjson(userService.allUsersFlux());
+    }
+
 
     /**
      * 유저의 이름과 Guid를 목록으로 가져온다.
@@ -174,6 +193,17 @@ public class UserController extends Common {
         return userService.getUsernameByUserId(userId);
     }
 
+    /**
+     * 유저 GUID(user id)로 유저의 이름(user name)을 가져온다.
+     *
+     * @param userId  user Id
+     * @return User name
+     */
+    @GetMapping(V2_URL + "/user/{userId}/username")
+    public String getUserName(@PathVariable String userId) {
+        return userService.getUserNameByUserId(userId);
+    }
+
     /**
      * 실행중인 응용 프로그램에 대한 시큐리티 그룹 조회
      *
@@ -196,6 +226,24 @@ public class UserController extends Common {
         }
     }
 
+    /**
+     * 여러 유저의 정보를 한 번에 조회한다. (조직/공간 멤버 목록 등)
+     *
+     * @param identifiers user id 또는 user name 목록
+     * @param type        "id"(기본) 또는 "name"
+     * @return Map identifier -> User (찾을 수 없는 유저는 포함하지 않는다)
+     */
+    @PostMapping(V2_URL + "/user/summaries")
+    public Map<String, User> getUserSummaries(@RequestBody List<String> identifiers, @RequestParam(required = false) String type) {
+        if (identifiers.size() > MAX_BATCH_SIZE) {
+            throw new CloudFoundryException(HttpStatus.BAD_REQUEST, "Bad Request", "Too many user identifiers (max " + MAX_BATCH_SIZE + ")");
+        }
+        if ("name".equals(type)) {
+            return userService.getUserSummariesByUsername(identifiers);
+        }
+        return userService.getUserSummaries(identifiers);
+    }
+
     /**
      * 사용자 포탈 접속 가능 유무 수정
      *
@@ -22,16 +22,22 @@ import org.cloudfoundry.client.v2.userprovidedserviceinstances.*;
 import org.cloudfoundry.doppler.Envelope;
 import org.cloudfoundry.doppler.LogMessage;
 import org.cloudfoundry.doppler.RecentLogsRequest;
-import org.cloudfoundry.operations.DefaultCloudFoundryOperations;
-import org.cloudfoundry.operations.applications.LogsRequest;
 import org.cloudfoundry.reactor.TokenProvider;
 import org.cloudfoundry.reactor.client.ReactorCloudFoundryClient;
 import org.cloudfoundry.reactor.doppler.ReactorDopplerClient;
 import org.openpaas.paasta.portal.api.common.Common;
+import org.openpaas.paasta.portal.api.common.LogTailHub;
+import org.openpaas.paasta.portal.api.common.RequestCoalescer;
 import org.openpaas.paasta.portal.api.model.App;
+import org.openpaas.paasta.portal.api.util.EnvelopeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -43,11 +49,22 @@ public class AppService extends Common {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AppService.class);
 
+    @Value("${cloudfoundry.cc.api.logSortBuffer:1000}")
+    private int logSortBuffer = 1000;
+
+    @Autowired
+    private LogTailHub logTailHub;
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
 
     //@HystrixCommand(commandKey = "getAppSummary")
     public SummaryApplicationResponse getAppSummary(String guid, String token) {
 
-        SummaryApplicationResponse summaryApplicationResponse = Common.cloudFoundryClient(connectionContext(), tokenProvider(token)).applicationsV2().summary(SummaryApplicationRequest.builder().applicationId(guid).build()).log().block();
+        final ReactorCloudFoundryClient reactorCloudFoundryClient = Common.cloudFoundryClient(connectionContext(), tokenProvider(token));
+        SummaryApplicationResponse summaryApplicationResponse = requestCoalescer.coalesce("appSummary", RequestCoalescer.scopeOf(reactorCloudFoundryClient), guid,
+                () -> reactorCloudFoundryClient.applicationsV2().summary(SummaryApplicationRequest.builder().applicationId(guid).build()).log()).block();
 
         return summaryApplicationResponse;
     }
@@ -69,6 +86,17 @@ public class AppService extends Common {
         return applicationStatisticsResponse;
     }
 
+    /**
+     * 앱 실시간 상태를 조회한다. 호출 스레드를 점유하지 않는 Mono 를 반환한다.
+     *
+     * @param guid  the app guid
+     * @param token the client
+     * @return Mono<ApplicationStatisticsResponse> the app stats
+     */
+    public Mono<ApplicationStatisticsResponse> getAppStatsMono(String guid, String token) {
+        return cloudFoundryClient(connectionContext(), tokenProvider(token)).applicationsV2().statistics(ApplicationStatisticsRequest.builder().applicationId(guid).build());
+    }
+
     /**
      * 앱을 변경한다.
      *
@@ -487,27 +515,75 @@ public class AppService extends Common {
 
     //@HystrixCommand(commandKey = "getRecentLog")
     public List<Envelope> getRecentLog(String guid, String token) {
+        List<Envelope> getRecentLog = getRecentLogFlux(guid, token).collectList().block();
+        return getRecentLog;
+    }
+
+    /**
+     * 앱 최근 로그를 envelope 이 도착하는 대로 흘려보낸다.
+     *
+     * @param guid  the app guid
+     * @param token the token
+     * @return Flux<Envelope>
+     */
+    public Flux<Envelope> getRecentLogFlux(String guid, String token) {
         TokenProvider tokenProvider = tokenProvider(token);
         ReactorDopplerClient reactorDopplerClient = Common.dopplerClient(connectionContext(), tokenProvider);
 
         RecentLogsRequest.Builder requestBuilder = RecentLogsRequest.builder();
         requestBuilder.applicationId(guid);
 
-        List<Envelope> getRecentLog = reactorDopplerClient.recentLogs(requestBuilder.build()).collectList().block();
-        return getRecentLog;
+        return reactorDopplerClient.recentLogs(requestBuilder.build());
     }
 
+    /**
+     * 앱 최근 로그를 조건에 맞게 걸러서 흘려보낸다.
+     * 정렬 시에는 logSortBuffer 크기의 버퍼 안에서 timestamp 순으로 정렬하며, limit 은 필터와 정렬 이후에 적용한다.
+     *
+     * @param guid           the app guid
+     * @param token          the token
+     * @param sourceType     APP, RTR, STG 등 (없으면 전체)
+     * @param sourceInstance 인스턴스 index (없으면 전체)
+     * @param messageType    OUT, ERR (없으면 전체)
+     * @param limit          최대 envelope 수 (0 이하면 제한 없음)
+     * @param sort           timestamp 정렬 여부
+     * @return Flux<Envelope>
+     */
+    public Flux<Envelope> getRecentLogFlux(String guid, String token, String sourceType, String sourceInstance, String messageType, int limit, boolean sort) {
+        Flux<Envelope> envelopes = getRecentLogFlux(guid, token).filter(EnvelopeUtils.filter(sourceType, sourceInstance, messageType));
+        if (sort) {
+            envelopes = EnvelopeUtils.sortByTimestamp(envelopes, logSortBuffer);
+        }
+        return limit > 0 ? envelopes.take(limit) : envelopes;
+    }
+
+    /**
+     * 앱 최근 로그 메시지를 timestamp 순으로 조회한다.
+     *
+     * @param guid  the app guid
+     * @param token the token
+     * @return List<LogMessage>
+     */
     //@HystrixCommand(commandKey = "getTailLog")
     public List<LogMessage> getTailLog(String guid, String token) {
-        DefaultCloudFoundryOperations cloudFoundryOperations = cloudFoundryOperations(connectionContext(), tokenProvider(token), "demo.org", "dev");
-
-        cloudFoundryOperations.applications().logs(LogsRequest.builder().name("github-test-app2").build()).subscribe((msg) -> {
-            printLog(msg);
-        }, (error) -> {
-            error.printStackTrace();
-        });
+        return getRecentLogFlux(guid, token, null, null, null, 0, true)
+                .filter(envelope -> null != envelope.getLogMessage())
+                .map(Envelope::getLogMessage)
+                .collectList()
+                .block();
+    }
 
-        return null;
+    /**
+     * 앱 실시간 로그를 SSE 로 구독한다. 같은 앱의 구독자들은 하나의 Doppler stream 을 공유한다.
+     *
+     * @param guid           the app guid
+     * @param sourceType     APP, RTR, STG 등 (없으면 전체)
+     * @param sourceInstance 인스턴스 index (없으면 전체)
+     * @param messageType    OUT, ERR (없으면 전체)
+     * @return SseEmitter
+     */
+    public SseEmitter streamTailLog(String guid, String sourceType, String sourceInstance, String messageType) {
+        return logTailHub.subscribe(guid, EnvelopeUtils.filter(sourceType, sourceInstance, messageType));
     }
 
     public Map userProvideCredentials(String guid, String token){
@@ -532,28 +608,4 @@ public class AppService extends Common {
         resultMap.put("List", resultlist);
         return resultMap;
     }
-
-    private void printLog(LogMessage msg) {
-        LOGGER.info(" [" + msg.getSourceType() + "/" + msg.getSourceInstance() + "] [" + msg.getMessageType() + msg.getMessageType() + "] " + msg.getMessage());
-    }
-
-    //@HystrixCommand(commandKey = "socketTailLogs")
-//    public SocketIOClient socketTailLogs(SocketIOClient client, String appName, String orgName, String spaceName, String token) {
-//        DefaultCloudFoundryOperations cloudFoundryOperations = cloudFoundryOperations(connectionContext(), tokenProvider(token), orgName, spaceName);
-//
-//        cloudFoundryOperations.applications()
-//                .logs(LogsRequest.builder()
-//                        .name(appName)
-//                        .build()
-//                ).subscribe((msg) -> {
-//                    printLog(msg);
-//                    client.sendEvent("message", " [" + msg.getSourceType() + "/" + msg.getSourceInstance() + "] [" + msg.getMessageType() + msg.getMessageType() + "] " + msg.getMessage());
-//                },
-//                (error) -> {
-//                    error.printStackTrace();
-//                }
-//        );
-//        return client;
-//    }
-
 }
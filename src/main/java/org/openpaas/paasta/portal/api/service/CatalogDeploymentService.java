@@ -0,0 +1,492 @@
+package org.openpaas.paasta.portal.api.service;
+
+import org.cloudfoundry.client.lib.CloudFoundryException;
+import org.cloudfoundry.client.lib.org.codehaus.jackson.map.ObjectMapper;
+import org.cloudfoundry.client.lib.org.codehaus.jackson.type.TypeReference;
+import org.cloudfoundry.client.v2.ClientV2Exception;
+import org.cloudfoundry.client.v2.applications.CreateApplicationRequest;
+import org.cloudfoundry.client.v2.applications.DeleteApplicationRequest;
+import org.cloudfoundry.client.v2.applications.UpdateApplicationRequest;
+import org.cloudfoundry.client.v2.routemappings.CreateRouteMappingRequest;
+import org.cloudfoundry.client.v2.routes.CreateRouteRequest;
+import org.cloudfoundry.client.v2.routes.DeleteRouteRequest;
+import org.cloudfoundry.client.v2.servicebindings.CreateServiceBindingRequest;
+import org.cloudfoundry.client.v2.serviceinstances.CreateServiceInstanceRequest;
+import org.cloudfoundry.client.v2.serviceinstances.DeleteServiceInstanceRequest;
+import org.cloudfoundry.reactor.client.ReactorCloudFoundryClient;
+import org.openpaas.paasta.portal.api.common.ApplicationBitsUploader;
+import org.openpaas.paasta.portal.api.common.Common;
+import org.openpaas.paasta.portal.api.common.Constants;
+import org.openpaas.paasta.portal.api.common.SampleArtifactCache;
+import org.openpaas.paasta.portal.api.model.Catalog;
+import org.openpaas.paasta.portal.api.util.JwtUtils;
+import org.openpaas.paasta.portal.api.util.RetryUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.publisher.ReplayProcessor;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * 카탈로그 앱(템플릿) 배포를 진행한다.
+ * 서로 의존하지 않는 단계(앱 생성, 라우트 생성, 서비스 인스턴스 생성)는 동시에 진행하고, 앱 시작은 재시도 정책으로 처리한다.
+ * 배포는 호출 스레드와 무관하게 진행되며, 진행 상황은 배포 id 로 조회하거나 구독할 수 있다.
+ * 앱/라우트/라우트 매핑/업로드/이력 등록이 실패하면 만든 자원을 지우고 실패로 끝나며, 그 밖의 단계(서비스, 시작) 실패는 기록만 한다.
+ */
+@Service
+public class CatalogDeploymentService extends Common {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CatalogDeploymentService.class);
+
+    private static final String DUMMY_APP_GUID = "(id_dummy)";
+
+    public static final String RUNNING = "RUNNING";
+
+    public static final String SUCCESS = "SUCCESS";
+
+    public static final String FAIL = "FAIL";
+
+    @Value("${cloudfoundry.cc.api.catalogStartRetries:5}")
+    private int startRetries = 5;
+
+    @Value("${cloudfoundry.cc.api.catalogStartBackoff:500}")
+    private long startBackoffMillis = 500;
+
+    /**
+     * CC 오류 코드 : 앱 패키지(bits)가 아직 준비되지 않음 (CF-AppPackageInvalid)
+     */
+    private static final int APP_PACKAGE_INVALID = 150001;
+
+    /**
+     * CC 오류 코드 : 앱 스테이징이 끝나지 않음 (CF-NotStaged)
+     */
+    private static final int NOT_STAGED = 170002;
+
+    @Value("${cloudfoundry.cc.api.catalogRollbackRetries:10}")
+    private int rollbackRetries = 10;
+
+    @Value("${cloudfoundry.cc.api.catalogDeploymentRetention:500}")
+    private int retention = 500;
+
+    private final CommonService commonService;
+
+    private final SampleArtifactCache sampleArtifactCache;
+
+    private final ApplicationBitsUploader applicationBitsUploader;
+
+    /**
+     * 최근 배포 목록 (retention 개를 넘으면 끝난 배포 중 오래된 것부터 지운다)
+     */
+    private final LinkedHashMap<String, Deployment> deployments = new LinkedHashMap<>();
+
+    @Autowired
+    public CatalogDeploymentService(CommonService commonService, SampleArtifactCache sampleArtifactCache, ApplicationBitsUploader applicationBitsUploader) {
+        this.commonService = commonService;
+        this.sampleArtifactCache = sampleArtifactCache;
+        this.applicationBitsUploader = applicationBitsUploader;
+    }
+
+    /**
+     * 카탈로그 앱 배포를 시작한다. 결과는 Deployment.result() 로 받는다.
+     *
+     * @param param       Catalog
+     * @param token       CC 호출에 쓸 토큰
+     * @param ownerToken  호출자의 토큰 (이 토큰으로만 배포를 조회할 수 있다)
+     * @param template    앱 템플릿(서비스 포함) 여부
+     * @return Deployment
+     */
+    public Deployment deploy(Catalog param, String token, String ownerToken, boolean template) {
+        final Deployment deployment = new Deployment(template ? "apptemplate" : "app", param.getAppName(), ownerOf(ownerToken));
+        synchronized (deployments) {
+            deployments.put(deployment.id, deployment);
+            trimDeployments();
+        }
+        final ReactorCloudFoundryClient reactorCloudFoundryClient = Common.cloudFoundryClient(connectionContext(), tokenProvider(token));
+        pipeline(deployment, param, token, template, reactorCloudFoundryClient)
+                .subscribeOn(Schedulers.elastic())
+                .subscribe(deployment::finish, error -> deployment.finish(failResult(error)));
+        return deployment;
+    }
+
+    /**
+     * 배포를 조회한다. 배포를 시작한 토큰이 아니면 없는 배포와 같이 처리한다.
+     *
+     * @param deploymentId the deployment id
+     * @param token        호출자의 토큰
+     * @return Deployment
+     */
+    public Deployment getDeployment(String deploymentId, String token) {
+        final Deployment deployment;
+        synchronized (deployments) {
+            deployment = deployments.get(deploymentId);
+        }
+        if (null == deployment || null == deployment.owner || !deployment.owner.equals(ownerOf(token))) {
+            throw new CloudFoundryException(HttpStatus.NOT_FOUND, "Not Found", "Deployment not found : " + deploymentId);
+        }
+        return deployment;
+    }
+
+    private static String ownerOf(String token) {
+        return null == token ? null : JwtUtils.digest(token);
+    }
+
+    /**
+     * 끝난 배포를 오래된 것부터 지워 retention 개 이하로 만든다. 진행 중인 배포는 지우지 않는다.
+     */
+    private void trimDeployments() {
+        final Iterator<Deployment> iterator = deployments.values().iterator();
+        while (deployments.size() > retention && iterator.hasNext()) {
+            if (!RUNNING.equals(iterator.next().status)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private Mono<Map<String, Object>> pipeline(Deployment deployment, Catalog param, String token, boolean template, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        final Mono<String> app = deployment.step("createApplication", () -> createApplication(param, reactorCloudFoundryClient))
+                .doOnNext(id -> deployment.applicationId = id)
+                .cache();
+        final Mono<String> route = deployment.step("createRoute", () -> createRoute(param, reactorCloudFoundryClient))
+                .doOnNext(id -> deployment.routeId = id)
+                .cache();
+        // 서비스 인스턴스는 앱이 만들어진 뒤에 만든다. (앱 생성이 실패하면 만들지 않는다)
+        final Mono<List<Tuple2<Catalog, String>>> serviceInstances = app.flatMap(applicationId -> createServiceInstances(deployment, param, template, reactorCloudFoundryClient)).cache();
+
+        final Mono<?> mapped = Mono.zipDelayError(app, route)
+                .flatMap(ids -> deployment.step("mapRoute", () -> reactorCloudFoundryClient.routeMappings()
+                        .create(CreateRouteMappingRequest.builder().applicationId(ids.getT1()).routeId(ids.getT2()).build())));
+        // 앱 파일이 없는 앱은 시작할 수 없으므로 업로드 실패는 배포 실패로 처리한다. (앱 생성 실패는 app 에서 한 번만 보고한다)
+        final Mono<?> uploaded = app.onErrorResume(e -> Mono.empty()).flatMap(applicationId -> deployment.step("upload", () -> upload(param, applicationId, token)));
+
+        return Mono.whenDelayError(mapped, uploaded, serviceInstances)
+                .then(app)
+                .flatMap(applicationId -> bindServices(deployment, applicationId, serviceInstances, reactorCloudFoundryClient).thenReturn(applicationId))
+                .flatMap(applicationId -> Constants.USE_YN_Y.equals(param.getAppSampleStartYn())
+                        ? deployment.step("startApplication", () -> startApplication(applicationId, reactorCloudFoundryClient)).onErrorResume(e -> Mono.empty()).thenReturn(applicationId)
+                        : Mono.just(applicationId))
+                .flatMap(applicationId -> deployment.step("history", () -> Mono.fromCallable(() -> commonService.procCommonApiRestTemplate("/v2/history", HttpMethod.POST, param, null))
+                        .subscribeOn(Schedulers.elastic())))
+                .then(Mono.fromSupplier(() -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("RESULT", Constants.RESULT_STATUS_SUCCESS);
+                    return result;
+                }))
+                .onErrorResume(e -> rollback(deployment, serviceInstances, reactorCloudFoundryClient).then(Mono.fromSupplier(() -> failResult(e))));
+    }
+
+    private Mono<String> createApplication(Catalog param, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        final CreateApplicationRequest.Builder builder = CreateApplicationRequest.builder()
+                .buildpack(param.getBuildPackName())
+                .memory(param.getMemorySize())
+                .name(param.getAppName())
+                .diskQuota(param.getDiskSize())
+                .spaceId(param.getSpaceId());
+        if (param.getBuildPackName().toLowerCase().contains(Constants.CATALOG_EGOV_BUILD_PACK_CHECK_STRING)) {
+            builder.environmentJsons(Collections.singletonMap(Constants.CATALOG_EGOV_BUILD_PACK_ENVIRONMENT_KEY, Constants.CATALOG_EGOV_BUILD_PACK_ENVIRONMENT_VALUE));
+        }
+        return reactorCloudFoundryClient.applicationsV2().create(builder.build()).map(response -> response.getMetadata().getId());
+    }
+
+    private Mono<String> createRoute(Catalog param, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        return reactorCloudFoundryClient.routes()
+                .create(CreateRouteRequest.builder().host(param.getHostName()).domainId(param.getDomainId()).spaceId(param.getSpaceId()).build())
+                .map(response -> response.getMetadata().getId());
+    }
+
+    /**
+     * 샘플 앱 파일을 받는 대로 업로드한다. (SampleArtifactCache 에 보관된 파일이 있으면 그 파일을 사용)
+     */
+    private Mono<Boolean> upload(Catalog param, String applicationId, String token) {
+        return Mono.fromCallable(() -> {
+            try (SampleArtifactCache.Artifact artifact = sampleArtifactCache.open(param.getAppSampleFilePath())) {
+                LOGGER.info("Upload sample app : {} (cached : {}, length : {})", param.getAppSampleFileName(), artifact.isCached(), artifact.getLength());
+                applicationBitsUploader.upload(applicationId, token, param.getAppSampleFileName(), artifact.getInputStream());
+            }
+            return Boolean.TRUE;
+        }).subscribeOn(Schedulers.elastic());
+    }
+
+    /**
+     * 앱을 시작한다. 업로드한 패키지가 아직 준비되지 않아 생기는 오류(CF-AppPackageInvalid, CF-NotStaged)와 일시적인 오류는 간격을 늘려가며 재시도한다.
+     */
+    private Mono<?> startApplication(String applicationId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        return Mono.defer(() -> reactorCloudFoundryClient.applicationsV2()
+                .update(UpdateApplicationRequest.builder().applicationId(applicationId).state("STARTED").build()))
+                .retryWhen(RetryUtils.retry(startRetries, Duration.ofMillis(startBackoffMillis),
+                        e -> RetryUtils.isTransient(e) || isPackageNotReady(e)));
+    }
+
+    private static boolean isPackageNotReady(Throwable e) {
+        if (!(e instanceof ClientV2Exception)) return false;
+        final Integer code = ((ClientV2Exception) e).getCode();
+        return null != code && (code == APP_PACKAGE_INVALID || code == NOT_STAGED);
+    }
+
+    /**
+     * 비동기 서비스 브로커의 생성 작업이 끝나지 않아 생기는 오류(409 operation in progress)인지 확인한다.
+     */
+    private static boolean isOperationInProgress(Throwable e) {
+        return e instanceof ClientV2Exception && ((ClientV2Exception) e).getStatusCode() == 409;
+    }
+
+    /**
+     * 템플릿의 서비스 인스턴스를 동시에 생성한다. 실패한 서비스는 기록만 하고 건너뛴다.
+     *
+     * @return 생성된 (서비스 정보, 서비스 인스턴스 guid) 목록
+     */
+    private Mono<List<Tuple2<Catalog, String>>> createServiceInstances(Deployment deployment, Catalog param, boolean template, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        if (!template || null == param.getServicePlanList()) {
+            return Mono.just(Collections.emptyList());
+        }
+        return Flux.fromIterable(param.getServicePlanList())
+                .flatMap(serviceplan -> deployment.step("createServiceInstance:" + serviceplan.getName(), () -> Mono.fromCallable(() -> jsonMap(serviceplan.getParameter()))
+                        .flatMap(parameters -> reactorCloudFoundryClient.serviceInstances().create(CreateServiceInstanceRequest.builder()
+                                .name(serviceplan.getName())
+                                .spaceId(param.getSpaceId())
+                                .parameters(parameters)
+                                .servicePlanId(serviceplan.getServicePlan())
+                                .build())))
+                        .map(response -> {
+                            final String serviceInstanceId = response.getMetadata().getId();
+                            serviceplan.setSpaceId(param.getSpaceId());
+                            serviceplan.setServiceInstanceGuid(serviceInstanceId);
+                            deployment.serviceInstanceIds.add(serviceInstanceId);
+                            return Tuples.of(serviceplan, serviceInstanceId);
+                        })
+                        .onErrorResume(e -> Mono.empty()))
+                .collectList();
+    }
+
+    /**
+     * 생성된 서비스 인스턴스를 앱에 바인드한다. (앱 guid 가 (id_dummy) 인 서비스는 바인드하지 않는다)
+     */
+    private Mono<Void> bindServices(Deployment deployment, String applicationId, Mono<List<Tuple2<Catalog, String>>> serviceInstances, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        return serviceInstances
+                .flatMapMany(Flux::fromIterable)
+                .filter(serviceInstance -> !DUMMY_APP_GUID.equals(serviceInstance.getT1().getAppGuid()))
+                .flatMap(serviceInstance -> {
+                    final Catalog serviceplan = serviceInstance.getT1();
+                    serviceplan.setAppGuid(applicationId);
+                    return deployment.step("bindService:" + serviceplan.getName(), () -> Mono.fromCallable(() -> jsonMap(serviceplan.getApp_bind_parameter()))
+                            .flatMap(parameters -> reactorCloudFoundryClient.serviceBindingsV2().create(CreateServiceBindingRequest.builder()
+                                    .applicationId(applicationId)
+                                    .serviceInstanceId(serviceInstance.getT2())
+                                    .parameters(parameters)
+                                    .build()))
+                            .then(Mono.fromCallable(() -> {
+                                if (serviceplan.getCatalogType() != null) {
+                                    commonService.procCommonApiRestTemplate("/v2/history", HttpMethod.POST, serviceplan, null);
+                                }
+                                return Boolean.TRUE;
+                            }).subscribeOn(Schedulers.elastic())))
+                            .onErrorResume(e -> Mono.empty());
+                })
+                .then();
+    }
+
+    /**
+     * 배포 중 만든 서비스 인스턴스, 라우트, 앱을 지운다. 지우다 생긴 오류는 기록만 한다.
+     * 비동기 브로커의 서비스 인스턴스는 생성 작업이 끝날 때까지(409) 간격을 늘려가며 다시 지운다.
+     */
+    private Mono<Void> rollback(Deployment deployment, Mono<List<Tuple2<Catalog, String>>> serviceInstances, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        final Mono<Void> deleteServiceInstances = serviceInstances.onErrorResume(e -> Mono.just(Collections.emptyList()))
+                .thenMany(Flux.fromIterable(new ArrayList<>(deployment.serviceInstanceIds)))
+                .flatMap(serviceInstanceId -> Mono.defer(() -> reactorCloudFoundryClient.serviceInstances()
+                        .delete(DeleteServiceInstanceRequest.builder().serviceInstanceId(serviceInstanceId).recursive(true).acceptsIncomplete(true).build()))
+                        .retryWhen(RetryUtils.retry(rollbackRetries, Duration.ofMillis(startBackoffMillis),
+                                e -> RetryUtils.isTransient(e) || isOperationInProgress(e)))
+                        .onErrorResume(e -> logRollbackError("serviceInstance " + serviceInstanceId, e)))
+                .then();
+        final Mono<Void> deleteRoute = null == deployment.routeId ? Mono.empty() : reactorCloudFoundryClient.routes()
+                .delete(DeleteRouteRequest.builder().routeId(deployment.routeId).build())
+                .onErrorResume(e -> logRollbackError("route " + deployment.routeId, e))
+                .then();
+        final Mono<Void> deleteApplication = null == deployment.applicationId ? Mono.empty() : reactorCloudFoundryClient.applicationsV2()
+                .delete(DeleteApplicationRequest.builder().applicationId(deployment.applicationId).build())
+                .onErrorResume(e -> logRollbackError("application " + deployment.applicationId, e));
+
+        return deployment.step("rollback", () -> deleteServiceInstances.then(deleteRoute).then(deleteApplication).thenReturn(Boolean.TRUE))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private <T> Mono<T> logRollbackError(String target, Throwable e) {
+        LOGGER.error("Catalog deployment rollback failed : {} {}", target, e.getMessage());
+        return Mono.empty();
+    }
+
+    private static Map<String, Object> failResult(Throwable e) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("RESULT", Constants.RESULT_STATUS_FAIL);
+        result.put("msg", errorMessage(e));
+        return result;
+    }
+
+    /**
+     * 오류 메시지를 반환한다. 동시에 진행한 단계들이 함께 실패했으면 첫 번째 오류의 메시지를 사용한다.
+     */
+    private static String errorMessage(Throwable e) {
+        final Throwable cause = Exceptions.isMultiple(e) ? Exceptions.unwrapMultiple(e).get(0) : e;
+        return null == cause.getMessage() ? cause.getClass().getSimpleName() : cause.getMessage();
+    }
+
+    private static Map<String, Object> jsonMap(String json) throws Exception {
+        if (null == json || json.trim().isEmpty()) {
+            return new HashMap<>();
+        }
+        return new ObjectMapper().readValue(json, new TypeReference<Map<String, Object>>() {
+        });
+    }
+
+    /**
+     * 카탈로그 배포 하나의 진행 상황.
+     * 단계별 상태 변화는 progress 이벤트로 발행되며, 늦게 구독한 쪽도 처음부터 받는다.
+     */
+    public static final class Deployment {
+        private final String id = UUID.randomUUID().toString();
+        private final String type;
+        private final String appName;
+        private final String owner;
+        private final long createdAt = System.currentTimeMillis();
+        private final List<Map<String, Object>> steps = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> serviceInstanceIds = Collections.synchronizedList(new ArrayList<>());
+        private final ReplayProcessor<Map<String, Object>> events = ReplayProcessor.create();
+        private final MonoProcessor<Map<String, Object>> result = MonoProcessor.create();
+        private volatile String status = RUNNING;
+        private volatile long finishedAt;
+        private volatile String applicationId;
+        private volatile String routeId;
+
+        private Deployment(String type, String appName, String owner) {
+            this.type = type;
+            this.appName = appName;
+            this.owner = owner;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        /**
+         * 배포 결과 (RESULT, msg). 배포가 끝나면 값을 받는다.
+         *
+         * @return Mono<Map>
+         */
+        public Mono<Map<String, Object>> result() {
+            return result;
+        }
+
+        /**
+         * 진행 이벤트 (단계 이름, 상태, 오류). 배포가 끝나면 완료된다.
+         *
+         * @return Flux<Map>
+         */
+        public Flux<Map<String, Object>> events() {
+            return events;
+        }
+
+        /**
+         * 배포 상태를 반환한다.
+         *
+         * @return Map
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("deploymentId", id);
+            map.put("type", type);
+            map.put("appName", appName);
+            map.put("status", status);
+            map.put("applicationId", applicationId);
+            map.put("createdAt", createdAt);
+            map.put("finishedAt", finishedAt);
+            synchronized (steps) {
+                map.put("steps", new ArrayList<>(steps));
+            }
+            if (result.isTerminated()) {
+                map.put("result", result.peek());
+            }
+            return map;
+        }
+
+        /**
+         * 단계 하나를 진행하며 시작/성공/실패를 기록한다.
+         */
+        private <T> Mono<T> step(String name, Supplier<Mono<T>> action) {
+            return Mono.defer(() -> {
+                final Map<String, Object> step = new LinkedHashMap<>();
+                step.put("step", name);
+                step.put("status", RUNNING);
+                step.put("startedAt", System.currentTimeMillis());
+                steps.add(step);
+                publish(step);
+                return action.get()
+                        .doOnSuccess(value -> update(step, SUCCESS, null))
+                        .doOnError(e -> {
+                            LOGGER.warn("Catalog deployment step failed : {} {} {}", id, name, e.getMessage());
+                            update(step, FAIL, errorMessage(e));
+                        });
+            });
+        }
+
+        private void update(Map<String, Object> step, String stepStatus, String error) {
+            synchronized (steps) {
+                step.put("status", stepStatus);
+                step.put("finishedAt", System.currentTimeMillis());
+                if (null != error) step.put("error", error);
+            }
+            publish(step);
+        }
+
+        private void publish(Map<String, Object> step) {
+            final Map<String, Object> event;
+            synchronized (steps) {
+                event = new LinkedHashMap<>(step);
+            }
+            event.put("deploymentId", id);
+            synchronized (events) {
+                events.onNext(event);
+            }
+        }
+
+        private void finish(Map<String, Object> deploymentResult) {
+            status = Constants.RESULT_STATUS_SUCCESS.equals(deploymentResult.get("RESULT")) ? SUCCESS : FAIL;
+            finishedAt = System.currentTimeMillis();
+            final Map<String, Object> event = new LinkedHashMap<>();
+            event.put("step", "deployment");
+            event.put("status", status);
+            event.put("deploymentId", id);
+            event.put("result", deploymentResult);
+            synchronized (events) {
+                events.onNext(event);
+                events.onComplete();
+            }
+            result.onNext(deploymentResult);
+            LOGGER.info("Catalog deployment finished : {} {} {}", id, appName, status);
+        }
+    }
+}
@@ -20,7 +20,7 @@ import java.util.Map;
 public class CommonService {
     private static final Logger LOGGER = LoggerFactory.getLogger(CommonService.class);
 
-    RestTemplate restTemplate;
+    private final RestTemplate restTemplate;
     private static final String AUTHORIZATION_HEADER_KEY = "Authorization";
     private static final String CF_AUTHORIZATION_HEADER_KEY = "cf-Authorization";
 
@@ -48,10 +48,12 @@ public class CommonService {
      * Instantiates a new Common service.
      *
      * @param messageSource the message source
+     * @param restTemplate  the pooled rest template (RestConfig)
      */
     @Autowired
-    public CommonService(MessageSource messageSource) {
+    public CommonService(MessageSource messageSource, RestTemplate restTemplate) {
         this.messageSource = messageSource;
+        this.restTemplate = restTemplate;
     }
 
 
@@ -104,7 +106,6 @@ public class CommonService {
      */
     //@HystrixCommand(commandKey = "procCommonApiRestTemplate")
     public Map<String, Object> procCommonApiRestTemplate(String reqUrl, HttpMethod httpMethod, Object obj, String reqToken) {
-        restTemplate = new RestTemplate();
         HttpHeaders reqHeaders = new HttpHeaders();
         reqHeaders.add(AUTHORIZATION_HEADER_KEY, base64Authorization);
         if (null != reqToken && !"".equals(reqToken)) reqHeaders.add(CF_AUTHORIZATION_HEADER_KEY, reqToken);
@@ -129,8 +130,6 @@ public class CommonService {
      */
     //@HystrixCommand(commandKey = "procStorageApiRestTemplate")
     public <T> ResponseEntity<T> procStorageApiRestTemplate(String reqUrl, HttpMethod httpMethod, Object bodyObject, String reqToken, Class<T> resClazz) {
-        restTemplate = new RestTemplate();
-
         // create url
         String storageRequestURL = storageApiUrl + "/v2/" + storageApiType + '/';
         if (null != reqUrl && false == "".equals( reqUrl ))
@@ -2,33 +2,84 @@ package org.openpaas.paasta.portal.api.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.cloudfoundry.client.lib.CloudCredentials;
-import org.cloudfoundry.client.lib.CloudFoundryClient;
 import org.cloudfoundry.client.lib.CloudFoundryException;
+import org.cloudfoundry.reactor.uaa.ReactorUaaClient;
+import org.cloudfoundry.uaa.UaaException;
 import org.cloudfoundry.uaa.tokens.AbstractToken;
-import org.cloudfoundry.uaa.tokens.GetTokenByAuthorizationCodeRequest;
+import org.cloudfoundry.uaa.tokens.GetTokenByPasswordRequest;
 import org.cloudfoundry.uaa.tokens.RefreshTokenRequest;
-import org.cloudfoundry.uaa.tokens.TokenFormat;
+import org.openpaas.paasta.portal.api.common.AccessTokenStore;
 import org.openpaas.paasta.portal.api.common.Common;
+import org.openpaas.paasta.portal.api.config.cloudfoundry.provider.ClientAuthTokenProvider;
+import org.openpaas.paasta.portal.api.util.JwtUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
 import org.springframework.security.oauth2.common.DefaultOAuth2RefreshToken;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class LoginService extends Common {
     private static final Logger LOGGER = LoggerFactory.getLogger(LoginService.class);
 
-    ConcurrentHashMap<String, OAuth2AccessToken> tokenCaches = new ConcurrentHashMap<>();
-    
+    /**
+     * 토큰 만료 시각을 알 수 없을 때 보관하는 시간(ms)
+     */
+    private static final long DEFAULT_TOKEN_TTL = 3600000;
+
+    @Value("${cloudfoundry.user.uaaClient.tokenClientId:cf}")
+    private String tokenClientId = "cf";
+
+    @Value("${cloudfoundry.user.uaaClient.tokenClientSecret:}")
+    private String tokenClientSecret = "";
+
+    /**
+     * 토큰 발급(password, refresh_token grant) 전용 UAA 클라이언트. 공유 DefaultConnectionContext 를 사용한다.
+     */
+    private volatile ReactorUaaClient tokenClient;
+
+    @Value("${cloudfoundry.cc.api.tokenStoreMaxSize:10000}")
+    private int tokenStoreMaxSize = 10000;
+
+    @Value("${cloudfoundry.cc.api.tokenStoreSweepInterval:30000}")
+    private long tokenStoreSweepInterval = 30000;
+
+    @Value("${cloudfoundry.cc.api.tokenStoreRefresh:false}")
+    private boolean tokenStoreRefresh;
+
+    @Value("${cloudfoundry.cc.api.tokenStoreRefreshAhead:60000}")
+    private long tokenStoreRefreshAhead = 60000;
+
+    /**
+     * 로그인한 토큰 값 -> 최신 토큰 (refresh 된 경우 새 토큰)
+     */
+    AccessTokenStore tokenCaches = new AccessTokenStore(10000);
+
+    private final AtomicLong backgroundRefreshCount = new AtomicLong();
+
+    private final AtomicLong backgroundRefreshFailureCount = new AtomicLong();
+
+    private final ScheduledExecutorService tokenStoreScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "login-token-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     TypeReference<Map<String, String>> typeRef = new TypeReference<Map<String, String>>(){};
     ObjectMapper objectMapper = new ObjectMapper();
 
@@ -43,37 +94,120 @@ public class LoginService extends Common {
      */
 
     public OAuth2AccessToken login(String id, String password) throws MalformedURLException, URISyntaxException {
-        CloudCredentials cc = new CloudCredentials(id, password);
-        OAuth2AccessToken token = new CloudFoundryClient(cc, getTargetURL(apiTarget), true).login();
-        tokenCaches.put(token.getValue(), token);
+        OAuth2AccessToken token = requestToken(tokenClient().tokens().getByPassword(GetTokenByPasswordRequest.builder().clientId(tokenClientId).clientSecret(tokenClientSecret).username(id).password(password).build()));
+        tokenCaches.put(token.getValue(), token, expirationOf(token));
         return token;
     }
 
+    @PostConstruct
+    public void initTokenStore() {
+        tokenCaches = new AccessTokenStore(tokenStoreMaxSize);
+        if (tokenStoreSweepInterval > 0) {
+            tokenStoreScheduler.scheduleWithFixedDelay(this::sweepTokens, tokenStoreSweepInterval, tokenStoreSweepInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdownTokenStore() {
+        tokenStoreScheduler.shutdownNow();
+    }
+
+    /**
+     * 만료된 토큰을 지운다. tokenStoreRefresh 가 true 이면 곧 만료될 토큰을 refresh token 으로 미리 갱신한다.
+     */
+    void sweepTokens() {
+        final long now = System.currentTimeMillis();
+        if (tokenStoreRefresh) {
+            for (String key : tokenCaches.expiringBefore(now + tokenStoreRefreshAhead)) {
+                final OAuth2AccessToken oAuthToken = tokenCaches.get(key);
+                if (null == oAuthToken || null == oAuthToken.getRefreshToken() || expirationOf(oAuthToken) <= now) continue;
+                try {
+                    OAuth2AccessToken newOAuthToken = refresh(oAuthToken);
+                    tokenCaches.put(key, newOAuthToken, expirationOf(newOAuthToken));
+                    backgroundRefreshCount.incrementAndGet();
+                } catch (Exception e) {
+                    backgroundRefreshFailureCount.incrementAndGet();
+                    LOGGER.warn("Background token refresh failed : {}", e.getMessage());
+                }
+            }
+        }
+        final int expired = tokenCaches.expire(now);
+        if (expired > 0) LOGGER.debug("Expired login tokens : {}", expired);
+    }
+
+    private static long expirationOf(OAuth2AccessToken token) {
+        if (null != token.getExpiration()) return token.getExpiration().getTime();
+        final long expiresAt = JwtUtils.getExpirationMillis(token.getValue());
+        return expiresAt > 0 ? expiresAt : System.currentTimeMillis() + DEFAULT_TOKEN_TTL;
+    }
+
+    /**
+     * 로그인 토큰 저장소 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> getTokenStoreStats() {
+        Map<String, Object> stats = tokenCaches.stats();
+        stats.put("backgroundRefresh", tokenStoreRefresh);
+        stats.put("refreshed", backgroundRefreshCount.get());
+        stats.put("refreshFailed", backgroundRefreshFailureCount.get());
+        return stats;
+    }
+
     //@HystrixCommand(commandKey = "refresh")
     public OAuth2AccessToken refresh(String token, String refreshToken) throws MalformedURLException, URISyntaxException {
-        CloudCredentials cc = new CloudCredentials(getOAuth2Token(token, refreshToken), true);
-        OAuth2AccessToken newToken = new CloudFoundryClient(cc, getTargetURL(apiTarget), true).login();
-
-        return newToken;
+        return refresh(getOAuth2Token(token, refreshToken));
     }
 
     //@HystrixCommand(commandKey = "refresh")
     public OAuth2AccessToken refresh(OAuth2AccessToken token) throws MalformedURLException, URISyntaxException {
-        CloudCredentials cc = new CloudCredentials(token, true);
-        OAuth2AccessToken newToken = new CloudFoundryClient(cc, getTargetURL(apiTarget), true).login();
+        if (null == token.getRefreshToken()) {
+            throw new CloudFoundryException(HttpStatus.BAD_REQUEST, "Cannot refresh token without refresh token");
+        }
+        return requestToken(tokenClient().tokens().refresh(RefreshTokenRequest.builder().clientId(tokenClientId).clientSecret(tokenClientSecret).refreshToken(token.getRefreshToken().getValue()).build()));
+    }
+
+    /**
+     * UAA 토큰 발급 응답을 기존(cloudfoundry-client-lib)과 같은 OAuth2AccessToken 형태로 반환한다.
+     * UAA 오류는 기존과 같이 CloudFoundryException 으로 바꾼다.
+     */
+    private OAuth2AccessToken requestToken(Mono<? extends AbstractToken> tokenResponse) {
+        try {
+            return tokenResponse.map(this::getOAuth2TokenFromTokenResponse).block();
+        } catch (UaaException e) {
+            HttpStatus status = HttpStatus.UNAUTHORIZED;
+            try {
+                status = HttpStatus.valueOf(e.getStatusCode());
+            } catch (Exception ignore) {
+            }
+            throw new CloudFoundryException(status, e.getError(), e.getErrorDescription());
+        }
+    }
 
-        return newToken;
+    private ReactorUaaClient tokenClient() {
+        ReactorUaaClient client = tokenClient;
+        if (null == client) {
+            synchronized (this) {
+                client = tokenClient;
+                if (null == client) {
+                    client = Common.uaaClient(connectionContext(), new ClientAuthTokenProvider());
+                    tokenClient = client;
+                }
+            }
+        }
+        return client;
     }
 
     //@HystrixCommand(commandKey = "refresh")
     public OAuth2AccessToken refresh(String oldToken) throws MalformedURLException, URISyntaxException {
-        if (tokenCaches.containsKey(oldToken)) {
-            OAuth2AccessToken oAuthToken = tokenCaches.get(oldToken);
+        OAuth2AccessToken oAuthToken = tokenCaches.get(oldToken);
+        if (null != oAuthToken) {
             final long current = System.currentTimeMillis();
-            if (oAuthToken.getExpiration().getTime() - current <= 60_000L) {
+            if (expirationOf(oAuthToken) - current <= 60_000L) {
                 OAuth2AccessToken newOAuthToken = refresh(oAuthToken);
-                tokenCaches.put(oldToken, newOAuthToken);
+                tokenCaches.put(oldToken, newOAuthToken, expirationOf(newOAuthToken));
                 LOGGER.info("Refresh token : {} ----> {}", oAuthToken.getValue(), newOAuthToken.getValue());
+                return newOAuthToken;
             }
             return oAuthToken;
         } else {
@@ -93,6 +227,17 @@ public class LoginService extends Common {
     //@HystrixCommand(commandKey = "getOAuth2TokenFromTokenResponse")
     private final OAuth2AccessToken getOAuth2TokenFromTokenResponse(AbstractToken tokenResponse) {
         final Map<String, String> tokenMap = objectMapper.convertValue( tokenResponse, typeRef );
-        return DefaultOAuth2AccessToken.valueOf( tokenMap );
+        final DefaultOAuth2AccessToken oAuthToken = new DefaultOAuth2AccessToken( DefaultOAuth2AccessToken.valueOf( tokenMap ) );
+
+        // 토큰 응답의 추가 항목(jti 등, 기존 v1 클라이언트와 같음)에 user_id claim 만 더한다.
+        // 다른 claim(scope, exp 등)을 넣으면 토큰 직렬화 시 표준 항목과 겹치므로 넣지 않는다.
+        final Map<String, Object> additionalInformation = new LinkedHashMap<>();
+        oAuthToken.getAdditionalInformation().forEach( (key, value) -> {
+            if (null != value) additionalInformation.put( key, value );
+        } );
+        final Object userId = JwtUtils.getClaims( oAuthToken.getValue() ).get( "user_id" );
+        if (null != userId) additionalInformation.putIfAbsent( "user_id", userId );
+        oAuthToken.setAdditionalInformation( additionalInformation );
+        return oAuthToken;
     }
 }
@@ -1,15 +1,20 @@
 package org.openpaas.paasta.portal.api.service;
 
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.openpaas.paasta.portal.api.common.Common;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
 import java.util.Map;
 
 /**
@@ -19,13 +24,33 @@ import java.util.Map;
 public class MonitoringRestTemplateService extends Common {
     private static final Logger LOGGER = LoggerFactory.getLogger(MonitoringRestTemplateService.class);
 
+    @Autowired
+    private CloseableHttpClient httpClient;
+
+    @Value("${monitoring.api.timeout:5000}")
+    private int timeoutMillis = 5000;
+
+    private RestTemplate restTemplate;
+
+    /**
+     * 공유 연결 풀(RestConfig)을 쓰되, 모니터링 API 는 요청마다 연결/응답 대기 제한시간을 monitoring.api.timeout 으로 둔다.
+     * 제한시간이 지나면 소켓 단에서 요청이 끝나므로 스레드와 연결을 오래 점유하지 않는다.
+     */
+    @PostConstruct
+    public void init() {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectTimeout(timeoutMillis);
+        requestFactory.setReadTimeout(timeoutMillis);
+        requestFactory.setConnectionRequestTimeout(timeoutMillis);
+        restTemplate = new RestTemplate(requestFactory);
+    }
+
     public Map send(String reqUrl, HttpMethod httpMethod, Object bodyObject){
         HttpHeaders reqHeaders = new HttpHeaders();
         reqHeaders.add("Accept", "application/json");
         reqHeaders.add("Content-Type", "application/json; charset=utf-8");
         HttpEntity<Object> reqEntity = new HttpEntity<>(bodyObject, reqHeaders);
 //        LOGGER.info("####### monitoringApiTarget Url ::: " + monitoringApiTarget + reqUrl);
-        RestTemplate restTemplate = new RestTemplate();
         ResponseEntity<Map> resEntity = restTemplate.exchange(monitoringApiTarget + reqUrl, httpMethod , reqEntity, Map.class);
         Map body = resEntity.getBody();
         LOGGER.info("Response Type: {}", resEntity.getBody().getClass());
@@ -1,102 +1,220 @@
 package org.openpaas.paasta.portal.api.service;
 
+import org.openpaas.paasta.portal.api.common.MonoCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
-
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Created by hrjin on 2017-10-16.
  */
 @Service
 public class MonitoringService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MonitoringService.class);
+
     private final MonitoringRestTemplateService monitoringRestTemplateService;
     private static final String url = "/v2/paas/app/instance";
 
-    @Autowired
-    public MonitoringService(MonitoringRestTemplateService monitoringRestTemplateService) {
-        this.monitoringRestTemplateService = monitoringRestTemplateService;
+    private static final Pattern DURATION_PATTERN = Pattern.compile("^(\\d+)(ms|s|m|h|d)$");
+
+    private static final String CPU = "cpu";
+    private static final String MEMORY = "memory";
+    private static final String NETWORK = "network";
+
+    /**
+     * 지표 이름 -> 모니터링 API 경로
+     */
+    private static final Map<String, String> METRIC_PATHS = new LinkedHashMap<>();
+
+    static {
+        METRIC_PATHS.put(CPU, "/cpu/usages");
+        METRIC_PATHS.put(MEMORY, "/memory/usages");
+        METRIC_PATHS.put(NETWORK, "/network/bytes");
     }
 
-    public Map getCpuUsage(String guid, long idx, String defaultTimeRange, String groupBy, String type) {
-        Map returnMap = new HashMap();
-        List<Map> dataList = new ArrayList<Map>();
+    @Value("${monitoring.api.concurrency:8}")
+    private int concurrency = 8;
 
-        if(type.equals("All")) {
-            for(int i = 0 ; i <= idx; i++){
-                Map data = new HashMap();
-                Map result = monitoringRestTemplateService.send(url + "/" + guid + "/" + i + "/cpu/usages?defaultTimeRange=" + defaultTimeRange + "&groupBy=" + groupBy, HttpMethod.GET, null);
+    @Value("${monitoring.api.timeout:5000}")
+    private long timeoutMillis = 5000;
 
-                data.put("name", i);
-                data.put("data", result);
-                dataList.add(data);
-            }
-        } else {
-            Map data = new HashMap();
-            Map result = monitoringRestTemplateService.send(url + "/" + guid + "/" + type + "/cpu/usages?defaultTimeRange=" + defaultTimeRange + "&groupBy=" + groupBy, HttpMethod.GET, null);
+    @Value("${monitoring.cache.enabled:true}")
+    private boolean cacheEnabled = true;
 
-            data.put("name", type);
-            data.put("data", result);
-            dataList.add(data);
-        }
+    @Value("${monitoring.cache.maxSize:2000}")
+    private int cacheMaxSize = 2000;
 
-        returnMap.put("data", dataList);
-        return returnMap;
-    }
+    @Value("${monitoring.cache.maxTtl:60000}")
+    private long cacheMaxTtlMillis = 60000;
 
-    public Map getMemoryUsage(String guid, long idx, String defaultTimeRange, String groupBy, String type) {
-        Map returnMap = new HashMap();
-        List<Map> dataList = new ArrayList<Map>();
+    @Value("${monitoring.cache.defaultTtl:10000}")
+    private long cacheDefaultTtlMillis = 10000;
 
-        if(type.equals("All")) {
-            for(int i = 0 ; i <= idx; i++){
-                Map data = new HashMap();
-                Map result = monitoringRestTemplateService.send(url + "/" + guid + "/" + i + "/memory/usages?defaultTimeRange=" + defaultTimeRange + "&groupBy=" + groupBy, HttpMethod.GET, null);
+    private MonoCache<Map> responseCache;
 
-                data.put("name", i);
-                data.put("data", result);
-                dataList.add(data);
-            }
-        } else {
-            Map data = new HashMap();
-            Map result = monitoringRestTemplateService.send(url + "/" + guid + "/" + type + "/memory/usages?defaultTimeRange=" + defaultTimeRange + "&groupBy=" + groupBy, HttpMethod.GET, null);
+    @Autowired
+    public MonitoringService(MonitoringRestTemplateService monitoringRestTemplateService) {
+        this.monitoringRestTemplateService = monitoringRestTemplateService;
+    }
 
-            data.put("name", type);
-            data.put("data", result);
-            dataList.add(data);
-        }
+    @PostConstruct
+    public void initCache() {
+        responseCache = new MonoCache<>(cacheMaxSize);
+    }
+
+    /**
+     * 모니터링 응답 캐시 통계를 반환한다.
+     *
+     * @return Map
+     */
+    public Map<String, Object> getCacheStats() {
+        return null == responseCache ? new HashMap<>() : responseCache.stats();
+    }
 
-        returnMap.put("data", dataList);
-        return returnMap;
+    public Map getCpuUsage(String guid, long idx, String defaultTimeRange, String groupBy, String type) {
+        return getUsage(guid, idx, defaultTimeRange, groupBy, type, Collections.singletonList(CPU)).get(CPU);
+    }
+
+    public Map getMemoryUsage(String guid, long idx, String defaultTimeRange, String groupBy, String type) {
+        return getUsage(guid, idx, defaultTimeRange, groupBy, type, Collections.singletonList(MEMORY)).get(MEMORY);
     }
 
     public Map getNetworkByte(String guid, long idx, String defaultTimeRange, String groupBy, String type) {
-        Map returnMap = new HashMap();
-        List<Map> dataList = new ArrayList<Map>();
+        return getUsage(guid, idx, defaultTimeRange, groupBy, type, Collections.singletonList(NETWORK)).get(NETWORK);
+    }
 
-        if(type.equals("All")) {
-            for(int i = 0 ; i <= idx; i++){
-                Map data = new HashMap();
-                Map result = monitoringRestTemplateService.send(url + "/" + guid + "/" + i + "/network/bytes?defaultTimeRange=" + defaultTimeRange + "&groupBy=" + groupBy, HttpMethod.GET, null);
+    /**
+     * CPU, 메모리, 네트워크 사용량을 한 번에 가져온다. 모든 인스턴스/지표 요청을 함께 동시에 조회한다.
+     *
+     * @param guid             the String
+     * @param idx              the long
+     * @param defaultTimeRange the String
+     * @param groupBy          the String
+     * @param type             the String
+     * @return Map cpu, memory, network
+     */
+    public Map getAllUsage(String guid, long idx, String defaultTimeRange, String groupBy, String type) {
+        return getUsage(guid, idx, defaultTimeRange, groupBy, type, Arrays.asList(CPU, MEMORY, NETWORK));
+    }
 
-                data.put("name", i);
-                data.put("data", result);
-                dataList.add(data);
+    /**
+     * 지표별로 인스턴스 사용량을 조회한다. type 이 "All" 이면 0 ~ idx 인스턴스를 모두 조회한다.
+     * 요청은 최대 concurrency 개까지 동시에 보내며, timeout 을 넘기거나 실패한 인스턴스는 data 를 비우고 error 를 남긴다.
+     *
+     * @return Map 지표 이름 -> {data : [{name, data}]}
+     */
+    private Map<String, Map> getUsage(String guid, long idx, String defaultTimeRange, String groupBy, String type, List<String> metrics) {
+        final List<Object> instances = new ArrayList<>();
+        if (type.equals("All")) {
+            for (int i = 0; i <= idx; i++) {
+                instances.add(i);
             }
         } else {
-            Map data = new HashMap();
-            Map result = monitoringRestTemplateService.send(url + "/" + guid + "/" + type + "/network/bytes?defaultTimeRange=" + defaultTimeRange + "&groupBy=" + groupBy, HttpMethod.GET, null);
+            instances.add(type);
+        }
 
-            data.put("name", type);
-            data.put("data", result);
-            dataList.add(data);
+        final List<Tuple2<String, Map>> results = Flux.fromIterable(metrics)
+                .flatMapIterable(metric -> {
+                    List<Tuple2<String, Object>> requests = new ArrayList<>();
+                    instances.forEach(instance -> requests.add(Tuples.of(metric, instance)));
+                    return requests;
+                })
+                .flatMapSequential(request -> send(guid, request.getT2(), METRIC_PATHS.get(request.getT1()), defaultTimeRange, groupBy)
+                        .map(data -> Tuples.of(request.getT1(), data)), Math.max(concurrency, 1))
+                .collectList()
+                .block();
+
+        final Map<String, List<Map>> dataLists = new LinkedHashMap<>();
+        results.forEach(result -> dataLists.computeIfAbsent(result.getT1(), key -> new ArrayList<>()).add(result.getT2()));
+
+        final Map<String, Map> usage = new LinkedHashMap<>();
+        for (String metric : metrics) {
+            Map returnMap = new HashMap();
+            returnMap.put("data", dataLists.getOrDefault(metric, new ArrayList<>()));
+            usage.put(metric, returnMap);
         }
+        return usage;
+    }
 
-        returnMap.put("data", dataList);
-        return returnMap;
+    private Mono<Map> send(String guid, Object instance, String metricPath, String defaultTimeRange, String groupBy) {
+        final String reqUrl = url + "/" + guid + "/" + instance + metricPath + "?defaultTimeRange=" + defaultTimeRange + "&groupBy=" + groupBy;
+        final Supplier<Mono<Map>> request = () -> Mono.fromCallable(() -> monitoringRestTemplateService.send(reqUrl, HttpMethod.GET, null))
+                .subscribeOn(Schedulers.elastic())
+                // 요청 자체는 MonitoringRestTemplateService 의 연결/응답 제한시간으로 끝난다. 아래는 응답 대기 상한(backstop)이다.
+                .timeout(Duration.ofMillis(timeoutMillis * 2))
+                .defaultIfEmpty(new HashMap());
+
+        return (cacheEnabled && null != responseCache ? responseCache.get(reqUrl, cacheTtl(groupBy), request) : request.get())
+                .map(result -> {
+                    Map data = new HashMap();
+                    data.put("name", instance);
+                    data.put("data", result);
+                    return data;
+                })
+                .onErrorResume(e -> {
+                    LOGGER.error("Monitoring request failed : {} {}", reqUrl, e.toString());
+                    Map data = new HashMap();
+                    data.put("name", instance);
+                    data.put("data", new HashMap());
+                    data.put("error", e.getClass().getSimpleName());
+                    return Mono.just(data);
+                });
+    }
+
+    /**
+     * groupBy(예 : 30s, 1m, 1h) 간격에 맞춘 캐시 보관 시간을 계산한다.
+     * 시계열은 groupBy 간격마다 새 점이 생기므로, 현재 간격이 끝나는 시점(최대 maxTtl)까지 보관한다.
+     *
+     * @param groupBy the groupBy
+     * @return long ttl(ms)
+     */
+    private long cacheTtl(String groupBy) {
+        final long bucket = Math.min(parseDurationMillis(groupBy, cacheDefaultTtlMillis), cacheMaxTtlMillis);
+        if (bucket <= 0) return 0L;
+        final long now = System.currentTimeMillis();
+        return (now / bucket + 1) * bucket - now;
+    }
+
+    private static long parseDurationMillis(String value, long defaultMillis) {
+        if (null == value) return defaultMillis;
+        final Matcher matcher = DURATION_PATTERN.matcher(value.trim());
+        if (!matcher.matches()) return defaultMillis;
+        final long amount = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "ms":
+                return amount;
+            case "s":
+                return TimeUnit.SECONDS.toMillis(amount);
+            case "m":
+                return TimeUnit.MINUTES.toMillis(amount);
+            case "h":
+                return TimeUnit.HOURS.toMillis(amount);
+            case "d":
+                return TimeUnit.DAYS.toMillis(amount);
+            default:
+                return defaultMillis;
+        }
     }
 }
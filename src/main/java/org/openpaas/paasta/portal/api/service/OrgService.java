@@ -43,8 +43,13 @@ import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.junit.internal.builders.NullBuilder;
 import org.openpaas.paasta.portal.api.common.Common;
+import org.openpaas.paasta.portal.api.common.JobRegistry;
+import org.openpaas.paasta.portal.api.common.OrgRoleCache;
+import org.openpaas.paasta.portal.api.common.RequestCoalescer;
+import org.openpaas.paasta.portal.api.common.StripedLock;
 import org.openpaas.paasta.portal.api.model.Org;
 import org.openpaas.paasta.portal.api.model.UserRole;
+import org.openpaas.paasta.portal.api.util.PageUtils;
 import org.slf4j.Logger;
 import org.springframework.beans.NullValueInNestedPathException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -52,10 +57,10 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.stream.Stream;
 
 import static org.slf4j.LoggerFactory.getLogger;
@@ -77,11 +82,19 @@ public class OrgService extends Common {
     @Autowired
     private OrgQuotaService orgQuotaService;
 
-    private BlockingQueue<Object> blockingQueue = new ArrayBlockingQueue<>(2);
+    @Autowired
+    private OrgRoleCache orgRoleCache;
 
-    protected OrgService() {
-        blockingQueue.add(new Object());
-    }
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private JobRegistry jobRegistry;
+
+    /**
+     * 조직 단위 역할 변경 lock (같은 조직은 순서대로, 다른 조직은 병렬로 처리)
+     */
+    private final StripedLock orgLock = new StripedLock(64);
 
     //////////////////////////////////////////////////////////////////////
     //////   * CLOUD FOUNDRY CLIENT API VERSION 2                   //////
@@ -160,73 +173,89 @@ public class OrgService extends Common {
      */
     //@HystrixCommand(commandKey = "getOrgSummary")
     public SummaryOrganizationResponse getOrgSummary(final String orgId, final String token) {
-        return Common.cloudFoundryClient(connectionContext(), tokenProvider(token)).organizations().summary(SummaryOrganizationRequest.builder().organizationId(orgId).build()).block();
+        return getOrgSummaryMono(orgId, Common.cloudFoundryClient(connectionContext(), tokenProvider(token))).block();
+    }
+
+    /**
+     * 조직 요약 정보를 조회한다. 같은 권한으로 동시에 들어온 같은 조직의 조회는 하나의 CC 호출을 공유한다.
+     *
+     * @param orgId          the org id
+     * @param reactorClients the ReactorCloudFoundryClient
+     * @return Mono<SummaryOrganizationResponse>
+     */
+    public Mono<SummaryOrganizationResponse> getOrgSummaryMono(final String orgId, final ReactorCloudFoundryClient reactorClients) {
+        return requestCoalescer.coalesce("orgSummary", RequestCoalescer.scopeOf(reactorClients), orgId,
+                () -> reactorClients.organizations().summary(SummaryOrganizationRequest.builder().organizationId(orgId).build()));
     }
 
     //@HystrixCommand(commandKey = "getOrgSummaryMap")
     public Map getOrgSummaryMap(final String orgId, final ReactorCloudFoundryClient reactorClients) {
         LOGGER.info(DateTime.now().toString());
         LOGGER.info("===========================");
-        Map map = new HashedMap();
+        Map map;
         try {
-            /*
-             * OrgSummary 정보 추출
-             *
-             */
-            SummaryOrganizationResponse summaryOrganizationResponse = reactorClients.organizations().summary(SummaryOrganizationRequest.builder().organizationId(orgId).build()).block();
-            List<OrganizationSpaceSummary> organizationSpaceSummaries = summaryOrganizationResponse.getSpaces();
-
-
-
-            int memDevTotal = 0;
-            int memProTotal = 0;
-            int appTotal = 0;
-            int serviceTotal = 0;
-            for (OrganizationSpaceSummary organizationSpaceSummary : organizationSpaceSummaries) {
-
-                memDevTotal += organizationSpaceSummary.getMemoryDevelopmentTotal();
-                memProTotal += organizationSpaceSummary.getMemoryProductionTotal();
-                appTotal += organizationSpaceSummary.getApplicationCount();
-                serviceTotal += organizationSpaceSummary.getServiceCount();
-            }
-
-            map.put("all_memoryDevelopmentTotal", memDevTotal);
-            map.put("all_memoryProductionTotal", memProTotal);
-            map.put("all_applicationTotal", appTotal);
-            map.put("all_serviceTotal", serviceTotal);
-
-
-            List<Map> summaryOrganization = objectMapper.convertValue(organizationSpaceSummaries, List.class);
-            map.put("resource", summaryOrganization);
-            /*
-             * Org quota 정보 추출
-             */
-            GetOrganizationResponse getOrganizationResponse = getOrg(orgId, reactorClients);
-            LOGGER.info("Org name :: " + getOrganizationResponse.getEntity().getName());
-            LOGGER.info("Org Quotaid :: " + getOrganizationResponse.getEntity().getQuotaDefinitionId());
-            String quotaDefinitionId = getOrganizationResponse.getEntity().getQuotaDefinitionId();
-
-            //GetOrganizationQuotaDefinitionResponse getOrganizationQuotaDefinitionResponse = orgQuotaService.getOrgQuotaDefinitions(quotaDefinitionId, token);
-            GetOrganizationQuotaDefinitionResponse getOrganizationQuotaDefinitionResponse = reactorClients
-                    .organizationQuotaDefinitions()
-                    .get(GetOrganizationQuotaDefinitionRequest.builder()
-                            .organizationQuotaDefinitionId(quotaDefinitionId)
-                            .build()
-                    ).log()
-                    .block();
-            Map quota = objectMapper.convertValue(getOrganizationQuotaDefinitionResponse, Map.class);
-            quota.remove("metadata");
-            map.put("quota", quota.get("entity"));
-
+            map = getOrgSummaryMapMono(orgId, reactorClients).block();
         } catch (Exception e) {
-            e.printStackTrace();
-            map.clear();
+            // 기존과 같이 오류가 발생하면 빈 Map 을 반환한다.
+            map = new HashedMap();
         }
         LOGGER.info("===========================");
         LOGGER.info(DateTime.now().toString());
         return map;
     }
 
+    /**
+     * 조직 요약 정보(공간별 요약, 합계, 할당량)를 조회한다. 호출 스레드를 점유하지 않는 Mono 를 반환한다.
+     * 조직 요약(공간별 메모리/앱/서비스 수 포함)과 할당량 조회를 동시에 요청한 뒤 합치며,
+     * 합계는 공간 목록을 한 번 순회하며 계산한다. 조회 중 오류가 발생하면 기록한 뒤 오류를 그대로 전달한다.
+     *
+     * @param orgId          the org id
+     * @param reactorClients the ReactorCloudFoundryClient
+     * @return Mono<Map> summary of the organization
+     */
+    public Mono<Map> getOrgSummaryMapMono(final String orgId, final ReactorCloudFoundryClient reactorClients) {
+        return Mono.zip(getOrgSummaryMono(orgId, reactorClients), getOrgQuotaMono(orgId, reactorClients))
+                .map(tuple -> {
+                    /*
+                     * OrgSummary 정보 추출
+                     */
+                    List<OrganizationSpaceSummary> organizationSpaceSummaries = tuple.getT1().getSpaces();
+
+                    int memDevTotal = 0;
+                    int memProTotal = 0;
+                    int appTotal = 0;
+                    int serviceTotal = 0;
+                    for (OrganizationSpaceSummary organizationSpaceSummary : organizationSpaceSummaries) {
+                        memDevTotal += nullToZero(organizationSpaceSummary.getMemoryDevelopmentTotal());
+                        memProTotal += nullToZero(organizationSpaceSummary.getMemoryProductionTotal());
+                        appTotal += nullToZero(organizationSpaceSummary.getApplicationCount());
+                        serviceTotal += nullToZero(organizationSpaceSummary.getServiceCount());
+                    }
+
+                    Map map = new HashedMap();
+                    map.put("all_memoryDevelopmentTotal", memDevTotal);
+                    map.put("all_memoryProductionTotal", memProTotal);
+                    map.put("all_applicationTotal", appTotal);
+                    map.put("all_serviceTotal", serviceTotal);
+
+                    List<Map> summaryOrganization = objectMapper.convertValue(organizationSpaceSummaries, List.class);
+                    map.put("resource", summaryOrganization);
+
+                    /*
+                     * Org quota 정보 추출
+                     */
+                    Map quota = objectMapper.convertValue(tuple.getT2(), Map.class);
+                    quota.remove("metadata");
+                    map.put("quota", quota.get("entity"));
+                    return map;
+                })
+                .doOnError(e -> LOGGER.error("Org summary failed : " + orgId, e));
+    }
+
+    private static int nullToZero(Integer value) {
+        return null == value ? 0 : value;
+    }
+
 
     /**
      * 조직 목록을 조회한다. 단, 내부의 resources만 추출해서 반환한다.
@@ -266,7 +295,17 @@ public class OrgService extends Common {
      * @since 2018.8.17
      */
     public ListOrganizationsResponse getAllOrgsForUser(final String token) {
-        return Common.cloudFoundryClient(connectionContext(), tokenProvider(token)).organizations().list(ListOrganizationsRequest.builder().build()).block();
+        return toListOrganizationsResponse(getAllOrgsForUserFlux(token));
+    }
+
+    /**
+     * 사용자 권한으로 모든 조직을 조회한다. 모든 페이지를 동시에 조회하며, 조직을 하나씩 흘려보낸다. (NDJSON 응답용)
+     *
+     * @param token the token
+     * @return Flux<OrganizationResource>
+     */
+    public Flux<OrganizationResource> getAllOrgsForUserFlux(final String token) {
+        return listAllOrgs(Common.cloudFoundryClient(connectionContext(), tokenProvider(token)));
     }
 
 
@@ -284,7 +323,25 @@ public class OrgService extends Common {
      */
     //@HystrixCommand(commandKey = "getOrgsForAdmin")
     public ListOrganizationsResponse getOrgsForAdmin() {
-        return Common.cloudFoundryClient(connectionContext(), tokenProvider()).organizations().list(ListOrganizationsRequest.builder().build()).block();
+        return toListOrganizationsResponse(getOrgsForAdminFlux());
+    }
+
+    /**
+     * 관리자 권한으로 모든 조직을 조회한다. 모든 페이지를 동시에 조회하며, 조직을 하나씩 흘려보낸다. (NDJSON 응답용)
+     *
+     * @return Flux<OrganizationResource>
+     */
+    public Flux<OrganizationResource> getOrgsForAdminFlux() {
+        return listAllOrgs(Common.cloudFoundryClient(connectionContext(), tokenProvider()));
+    }
+
+    private Flux<OrganizationResource> listAllOrgs(ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        return PageUtils.requestAllResources(page -> reactorCloudFoundryClient.organizations().list(ListOrganizationsRequest.builder().page(page).resultsPerPage(PageUtils.MAX_RESULTS_PER_PAGE).build()));
+    }
+
+    private ListOrganizationsResponse toListOrganizationsResponse(Flux<OrganizationResource> organizations) {
+        final List<OrganizationResource> resources = organizations.collectList().block();
+        return ListOrganizationsResponse.builder().resources(resources).totalResults(resources.size()).totalPages(1).build();
     }
 
 
@@ -374,6 +431,7 @@ public class OrgService extends Common {
                 DeleteOrganizationResponse eleteOrganizationResponse = Common.cloudFoundryClient(connectionContext(), tokenProvider(this.getToken())).organizations().delete(DeleteOrganizationRequest.builder().organizationId(orgId).recursive(true).async(true).build()).block();
 
                 resultMap.put("result", true);
+                putJob(resultMap, eleteOrganizationResponse, orgId, token);
                 return resultMap;
             }
 
@@ -398,6 +456,7 @@ public class OrgService extends Common {
                         .cloudFoundryClient(connectionContext(), tokenProvider()).organizations().delete(DeleteOrganizationRequest.builder().organizationId(orgId).recursive(recursive).async(true).build()).block();
 
                 resultMap.put("result", true);
+                putJob(resultMap, eleteOrganizationResponse, orgId, token);
                 return resultMap;
 
             /*
@@ -420,6 +479,17 @@ public class OrgService extends Common {
         return resultMap;
     }
 
+    /**
+     * 조직 삭제 작업(CC job)을 추적에 등록하고, 작업 guid 와 상태를 결과에 담는다.
+     * 작업 상태는 /v2/jobs/{jobId} 로 조회할 수 있다.
+     */
+    private void putJob(Map resultMap, DeleteOrganizationResponse response, String orgId, String token) {
+        if (null == response || null == response.getMetadata()) return;
+        final String jobId = response.getMetadata().getId();
+        resultMap.put("jobId", jobId);
+        resultMap.put("job", jobRegistry.track(jobId, response.getEntity(), "deleteOrg", orgId, token));
+    }
+
 
     /**
      * 운영자/사용자 포털에서 스페이스 목록을 요청했을때, 해당 조직의 모든 스페이스 목록을 응답한다.
@@ -451,10 +521,21 @@ public class OrgService extends Common {
      */
     //@HystrixCommand(commandKey = "getOrgQuota")
     public GetOrganizationQuotaDefinitionResponse getOrgQuota(String orgId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
-        GetOrganizationResponse org = getOrg(orgId, reactorCloudFoundryClient);
-        String quotaId = org.getEntity().getQuotaDefinitionId();
+        return getOrgQuotaMono(orgId, reactorCloudFoundryClient).block();
+    }
 
-        return reactorCloudFoundryClient.organizationQuotaDefinitions().get(GetOrganizationQuotaDefinitionRequest.builder().organizationQuotaDefinitionId(quotaId).build()).block();
+    /**
+     * 조직에 할당된 Quota 를 조회한다. 같은 권한으로 동시에 들어온 같은 조직의 조회는 하나의 CC 호출을 공유한다.
+     *
+     * @param orgId                     the org id
+     * @param reactorCloudFoundryClient the ReactorCloudFoundryClient
+     * @return Mono<GetOrganizationQuotaDefinitionResponse>
+     */
+    public Mono<GetOrganizationQuotaDefinitionResponse> getOrgQuotaMono(String orgId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        return requestCoalescer.coalesce("orgQuota", RequestCoalescer.scopeOf(reactorCloudFoundryClient), orgId,
+                () -> reactorCloudFoundryClient.organizations().get(GetOrganizationRequest.builder().organizationId(orgId).build())
+                        .flatMap(org -> reactorCloudFoundryClient.organizationQuotaDefinitions()
+                                .get(GetOrganizationQuotaDefinitionRequest.builder().organizationQuotaDefinitionId(org.getEntity().getQuotaDefinitionId()).build())));
     }
 
     /**
@@ -493,41 +574,48 @@ public class OrgService extends Common {
     }
 
     protected List<UserResource> listAllOrgUsers(String orgId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
-        final ListOrganizationUsersResponse response = reactorCloudFoundryClient.organizations().listUsers(ListOrganizationUsersRequest.builder().organizationId(orgId).orderDirection(OrderDirection.ASCENDING).build()).block();
-        return response.getResources();
+        return listAllOrgUsersMono(orgId, reactorCloudFoundryClient).block();
     }
 
-    private List<UserResource> listOrgManagerUsers(String orgId,ReactorCloudFoundryClient reactorCloudFoundryClient) {
-        final ListOrganizationManagersResponse response = reactorCloudFoundryClient.organizations().listManagers(ListOrganizationManagersRequest.builder().organizationId(orgId).orderDirection(OrderDirection.ASCENDING).build()).block();
-
-        return response.getResources();
+    private Mono<List<UserResource>> listAllOrgUsersMono(String orgId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        return PageUtils.requestAllResources(page -> reactorCloudFoundryClient.organizations().listUsers(ListOrganizationUsersRequest.builder().organizationId(orgId).orderDirection(OrderDirection.ASCENDING).page(page).resultsPerPage(PageUtils.MAX_RESULTS_PER_PAGE).build())).collectList();
     }
 
-    private List<UserResource> listBillingManagerUsers(String orgId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
-        final ListOrganizationBillingManagersResponse response = reactorCloudFoundryClient.organizations().listBillingManagers(ListOrganizationBillingManagersRequest.builder().organizationId(orgId).orderDirection(OrderDirection.ASCENDING).build()).block();
-
-        return response.getResources();
+    private Mono<List<UserResource>> listOrgManagerUsersMono(String orgId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        return PageUtils.requestAllResources(page -> reactorCloudFoundryClient.organizations().listManagers(ListOrganizationManagersRequest.builder().organizationId(orgId).orderDirection(OrderDirection.ASCENDING).page(page).resultsPerPage(PageUtils.MAX_RESULTS_PER_PAGE).build())).collectList();
     }
 
-    private List<UserResource> listOrgAuditorUsers(String orgId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
-        final ListOrganizationAuditorsResponse response = reactorCloudFoundryClient.organizations().listAuditors(ListOrganizationAuditorsRequest.builder().organizationId(orgId).orderDirection(OrderDirection.ASCENDING).build()).block();
+    private Mono<List<UserResource>> listBillingManagerUsersMono(String orgId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        return PageUtils.requestAllResources(page -> reactorCloudFoundryClient.organizations().listBillingManagers(ListOrganizationBillingManagersRequest.builder().organizationId(orgId).orderDirection(OrderDirection.ASCENDING).page(page).resultsPerPage(PageUtils.MAX_RESULTS_PER_PAGE).build())).collectList();
+    }
 
-        return response.getResources();
+    private Mono<List<UserResource>> listOrgAuditorUsersMono(String orgId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        return PageUtils.requestAllResources(page -> reactorCloudFoundryClient.organizations().listAuditors(ListOrganizationAuditorsRequest.builder().organizationId(orgId).orderDirection(OrderDirection.ASCENDING).page(page).resultsPerPage(PageUtils.MAX_RESULTS_PER_PAGE).build())).collectList();
     }
 
+    /**
+     * 조직 사용자와 역할(OrgManager, BillingManager, OrgAuditor)을 조회한다.
+     * 네 가지 목록을 동시에 조회하고(각 목록의 모든 페이지 포함) 사용자 GUID 기준으로 병합한다.
+     *
+     * @param orgId                     the org id
+     * @param reactorCloudFoundryClient the ReactorCloudFoundryClient
+     * @return Map user_roles
+     */
     public Map<String, Collection<UserRole>> getOrgUserRoles(String orgId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
-        Map<String, UserRole> userRoles = new HashMap<>();
-        listAllOrgUsers(orgId, reactorCloudFoundryClient).stream().map(resource -> UserRole.builder().userId(resource.getMetadata().getId()).userEmail(resource.getEntity().getUsername()).modifiableRoles(true).build()).filter(ur -> null != ur).forEach(ur -> userRoles.put(ur.getUserId(), ur));
+        return Mono.zip(listAllOrgUsersMono(orgId, reactorCloudFoundryClient), listOrgManagerUsersMono(orgId, reactorCloudFoundryClient), listBillingManagerUsersMono(orgId, reactorCloudFoundryClient), listOrgAuditorUsersMono(orgId, reactorCloudFoundryClient)).map(lists -> {
+            Map<String, UserRole> userRoles = new LinkedHashMap<>();
+            lists.getT1().stream().map(resource -> UserRole.builder().userId(resource.getMetadata().getId()).userEmail(resource.getEntity().getUsername()).modifiableRoles(true).build()).filter(ur -> null != ur).forEach(ur -> userRoles.put(ur.getUserId(), ur));
 
-        listOrgManagerUsers(orgId, reactorCloudFoundryClient).stream().map(ur -> userRoles.get(ur.getMetadata().getId())).filter(ur -> null != ur).forEach(ur -> ur.addRole("OrgManager"));
+            lists.getT2().stream().map(ur -> userRoles.get(ur.getMetadata().getId())).filter(ur -> null != ur).forEach(ur -> ur.addRole("OrgManager"));
 
-        listBillingManagerUsers(orgId, reactorCloudFoundryClient).stream().map(ur -> userRoles.get(ur.getMetadata().getId())).filter(ur -> null != ur).forEach(ur -> ur.addRole("BillingManager"));
+            lists.getT3().stream().map(ur -> userRoles.get(ur.getMetadata().getId())).filter(ur -> null != ur).forEach(ur -> ur.addRole("BillingManager"));
 
-        listOrgAuditorUsers(orgId, reactorCloudFoundryClient).stream().map(ur -> userRoles.get(ur.getMetadata().getId())).filter(ur -> null != ur).forEach(ur -> ur.addRole("OrgAuditor"));
-        //roles.put( "all_users",  );
-        final Map<String, Collection<UserRole>> result = new HashMap<>();
-        result.put("user_roles", userRoles.values());
-        return result;
+            lists.getT4().stream().map(ur -> userRoles.get(ur.getMetadata().getId())).filter(ur -> null != ur).forEach(ur -> ur.addRole("OrgAuditor"));
+            //roles.put( "all_users",  );
+            final Map<String, Collection<UserRole>> result = new HashMap<>();
+            result.put("user_roles", userRoles.values());
+            return result;
+        }).block();
     }
 
     //@HystrixCommand(commandKey = "getOrgUserRolesByOrgName")
@@ -572,11 +660,25 @@ public class OrgService extends Common {
 
         Objects.requireNonNull(role, "role");
 
-        final String roleKey = "user_roles";
-        Stream<UserRole> userRoles = getOrgUserRoles(orgId, cloudFoundryClient(connectionContext())).get(roleKey).stream().filter(ur -> ur.getRoles().contains(role));
-        boolean matches = userRoles.anyMatch(ur -> ur.getUserId().equals(userId));
+        return orgRoleCache.hasRole(orgId, userId, OrgRoleCache.roleBit(role), this::getOrgRoleIndex);
+    }
 
-        return matches;
+    /**
+     * 조직의 사용자별 역할 비트셋을 만든다. (OrgRoleCache 에 보관)
+     *
+     * @param orgId the org id
+     * @return Map user GUID -> role bits
+     */
+    private Map<String, Integer> getOrgRoleIndex(String orgId) {
+        final Map<String, Integer> roleIndex = new HashMap<>();
+        for (UserRole userRole : getOrgUserRoles(orgId, cloudFoundryClient(connectionContext())).get("user_roles")) {
+            int roles = OrgRoleCache.ORG_USER;
+            for (String role : userRole.getRoles()) {
+                roles |= OrgRoleCache.roleBit(role);
+            }
+            roleIndex.put(userRole.getUserId(), roles);
+        }
+        return roleIndex;
     }
 
     private AssociateOrganizationManagerResponse associateOrgManager(String orgId, String userId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
@@ -608,11 +710,10 @@ public class OrgService extends Common {
      * @return
      */
     public AbstractOrganizationResource associateOrgUserRole(String orgId, String userId, String role, String token) {
-        try {
-            final Object lock = blockingQueue.take();
-            token = adminToken(token);
-            ReactorCloudFoundryClient reactorCloudFoundryClient = Common.cloudFoundryClient(connectionContext(), tokenProvider(token));
-            Objects.requireNonNull(orgId, "Org Id");
+        Objects.requireNonNull(orgId, "Org Id");
+        final String adminToken = adminToken(token);
+        return orgLock.execute(orgId, () -> {
+            ReactorCloudFoundryClient reactorCloudFoundryClient = Common.cloudFoundryClient(connectionContext(), tokenProvider(adminToken));
             Objects.requireNonNull(userId, "User Id");
             Objects.requireNonNull(role, "role");
 
@@ -641,13 +742,10 @@ public class OrgService extends Common {
                 default:
                     throw new CloudFoundryException(HttpStatus.BAD_REQUEST, "Request role is invalid : " + role);
             }
-
-            blockingQueue.put(lock);
+            orgRoleCache.invalidate(orgId);
 
             return response;
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        });
     }
 
     private Set<String> targetSpaceRole(OrgRole orgRole) {
@@ -688,20 +786,24 @@ public class OrgService extends Common {
 
 
     private void removeAllRoles(String orgId, String userId) {
-        try {
-            final Object lock = blockingQueue.take();
-
+        orgLock.execute(orgId, () -> {
             LOGGER.debug("--> Remove all member({})'s roles in org({}).", userId, orgId);
             spaceService.removeAllSpaceUserRolesByOrgId(orgId, userId, targetSpaceRole(OrgRole.OrgManager));
             removeOrgManager(orgId, userId);
             removeBillingManager(orgId, userId);
             removeOrgAuditor(orgId, userId);
+            orgRoleCache.invalidate(orgId);
             LOGGER.debug("--> Done to remove all member({})'s roles in org({}).", userId, orgId);
+        });
+    }
 
-            blockingQueue.put(lock);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+    /**
+     * 조직 역할 변경 lock 통계를 반환한다. (획득 횟수, 대기 횟수, 대기 시간)
+     *
+     * @return Map
+     */
+    public Map<String, Object> getOrgLockStats() {
+        return orgLock.stats();
     }
 
     /**
@@ -726,22 +828,25 @@ public class OrgService extends Common {
                 LOGGER.error("This role is invalid : {}", role);
                 return;
             }
-            switch (roleEnum) {
-                case OrgManager:
-                case ORGMANAGER:
-                    removeOrgManager(orgId, userId);
-                    break;
-                case BillingManager:
-                case BILLINGMANAGER:
-                    removeBillingManager(orgId, userId);
-                    break;
-                case OrgAuditor:
-                case ORGAUDITOR:
-                    removeOrgAuditor(orgId, userId);
-                    break;
-                default:
-                    throw new CloudFoundryException(HttpStatus.BAD_REQUEST, "Request role is invalid : " + role);
-            }
+            orgLock.execute(orgId, () -> {
+                switch (roleEnum) {
+                    case OrgManager:
+                    case ORGMANAGER:
+                        removeOrgManager(orgId, userId);
+                        break;
+                    case BillingManager:
+                    case BILLINGMANAGER:
+                        removeBillingManager(orgId, userId);
+                        break;
+                    case OrgAuditor:
+                    case ORGAUDITOR:
+                        removeOrgAuditor(orgId, userId);
+                        break;
+                    default:
+                        throw new CloudFoundryException(HttpStatus.BAD_REQUEST, "Request role is invalid : " + role);
+                }
+                orgRoleCache.invalidate(orgId);
+            });
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -766,6 +871,7 @@ public class OrgService extends Common {
         try {
             removeAllRoles(orgId, userId);
             Common.cloudFoundryClient(connectionContext(), tokenProvider()).organizations().removeUser(RemoveOrganizationUserRequest.builder().organizationId(orgId).userId(userId).build()).block();
+            orgRoleCache.invalidate(orgId);
 
             return true;
         } catch (Exception ex) {
@@ -850,6 +956,7 @@ public class OrgService extends Common {
                 }
             }
 
+            orgRoleCache.invalidate(orgGuid);
             inviteAcceptMap.put("gubun", "success");
 
             Map<String, Object> inviteAcceptUpdateMap = commonService.procCommonApiRestTemplate("/v2/email/inviteAcceptUpdate", HttpMethod.POST, inviteAcceptMap, null);
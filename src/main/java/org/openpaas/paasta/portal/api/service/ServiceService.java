@@ -12,14 +12,19 @@ import org.cloudfoundry.client.v2.serviceplans.*;
 import org.cloudfoundry.client.v2.serviceplanvisibilities.*;
 import org.cloudfoundry.client.v2.userprovidedserviceinstances.*;
 import org.cloudfoundry.reactor.client.ReactorCloudFoundryClient;
+import org.openpaas.paasta.portal.api.common.CatalogIndex;
 import org.openpaas.paasta.portal.api.common.Common;
 import org.openpaas.paasta.portal.api.model.Service;
 import org.openpaas.paasta.portal.api.model.ServiceBroker;
+import org.openpaas.paasta.portal.api.util.PageUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.EnableAsync;
+import reactor.core.publisher.Flux;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @EnableAsync
@@ -28,6 +33,9 @@ public class ServiceService extends Common {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ServiceService.class);
 
+    @Autowired
+    private CatalogIndex catalogIndex;
+
 
      /**
      * 서비스 인스턴스 이름을 변경한다.
@@ -273,7 +281,9 @@ public class ServiceService extends Common {
                         .authenticationUsername(serviceBroker.getUsername())
                         .authenticationPassword(serviceBroker.getPassword())
                         .build()
-                ).block();
+                )
+                .doFinally(signal -> catalogIndex.invalidate())
+                .block();
     }
 
     /**
@@ -296,7 +306,9 @@ public class ServiceService extends Common {
                         .authenticationPassword(serviceBroker.getPassword())
                         .brokerUrl(serviceBroker.getUrl())
                         .build()
-                ).block();
+                )
+                .doFinally(signal -> catalogIndex.invalidate())
+                .block();
     }
 
     /**
@@ -315,6 +327,7 @@ public class ServiceService extends Common {
                         .serviceBrokerId(guid)
                         .build()
                 )
+                .doFinally(signal -> catalogIndex.invalidate())
                 .block();
         return true;
     }
@@ -344,11 +357,18 @@ public class ServiceService extends Common {
      * @throws Exception the exception
      */
     public ListServicePlansResponse getServicePlans(String token) throws Exception {
-        return cloudFoundryClient(connectionContext())
-                .servicePlans()
-                .list(ListServicePlansRequest.builder().build())
-                .log()
-                .block();
+        final List<ServicePlanResource> resources = getServicePlansFlux().collectList().block();
+        return ListServicePlansResponse.builder().resources(resources).totalResults(resources.size()).totalPages(1).build();
+    }
+
+    /**
+     * 모든 서비스 플랜을 조회한다. 모든 페이지를 동시에 조회하며, 플랜을 하나씩 흘려보낸다. (NDJSON 응답용)
+     *
+     * @return Flux<ServicePlanResource>
+     */
+    public Flux<ServicePlanResource> getServicePlansFlux() {
+        final ReactorCloudFoundryClient reactorCloudFoundryClient = cloudFoundryClient(connectionContext());
+        return PageUtils.requestAllResources(page -> reactorCloudFoundryClient.servicePlans().list(ListServicePlansRequest.builder().page(page).resultsPerPage(PageUtils.MAX_RESULTS_PER_PAGE).build()));
     }
 
     /**
@@ -383,7 +403,9 @@ public class ServiceService extends Common {
                         .servicePlanId(guid)
                         .publiclyVisible(serviceBroker.getPubliclyVisible())
                         .build()
-                ).block();
+                )
+                .doFinally(signal -> catalogIndex.invalidate())
+                .block();
     }
 
 
@@ -402,7 +424,9 @@ public class ServiceService extends Common {
                         .servicePlanId(guid)
                         .async(serviceBroker.getPubliclyVisible())
                         .build()
-                ).block();
+                )
+                .doFinally(signal -> catalogIndex.invalidate())
+                .block();
     }
 
     /**
@@ -435,7 +459,9 @@ public class ServiceService extends Common {
                         .servicePlanId(bodyMap.get("servicePlanGuid").toString())
                         .organizationId(bodyMap.get("orgGuid").toString())
                         .build()
-                ).block();
+                )
+                .doFinally(signal -> catalogIndex.invalidate())
+                .block();
     }
 
     /**
@@ -453,7 +479,9 @@ public class ServiceService extends Common {
                         .servicePlanVisibilityId(guid)
                         .async(false)
                         .build()
-                ).block();
+                )
+                .doFinally(signal -> catalogIndex.invalidate())
+                .block();
     }
 
     /**
@@ -479,6 +507,8 @@ public class ServiceService extends Common {
            return new HashMap<String,Object>(){{put("RESULT", "SUCCESS");}};
         } catch (Exception e){
          return new HashMap<String,Object>(){{put("RESULT", "FALE");}};
+        } finally {
+            catalogIndex.invalidate();
         }
     }
 }
@@ -12,16 +12,25 @@ import org.cloudfoundry.client.v3.spaces.GetSpaceIsolationSegmentRequest;
 import org.cloudfoundry.reactor.TokenProvider;
 import org.cloudfoundry.reactor.client.ReactorCloudFoundryClient;
 import org.openpaas.paasta.portal.api.common.Common;
+import org.openpaas.paasta.portal.api.common.JobRegistry;
+import org.openpaas.paasta.portal.api.common.OrgRoleCache;
+import org.openpaas.paasta.portal.api.common.RequestCoalescer;
 import org.openpaas.paasta.portal.api.model.Org;
 import org.openpaas.paasta.portal.api.model.Space;
 import org.openpaas.paasta.portal.api.model.UserRole;
+import org.openpaas.paasta.portal.api.util.PageUtils;
+import org.openpaas.paasta.portal.api.util.RetryUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -33,10 +42,31 @@ public class SpaceService extends Common {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private JobRegistry jobRegistry;
+
     @Autowired
     @Lazy // To resolve circular reference
     private OrgService orgService;
 
+    @Autowired
+    private OrgRoleCache orgRoleCache;
+
+    /**
+     * 조직 역할 변경 시 공간 역할을 동시에 할당/제거할 최대 요청 수
+     */
+    @Value("${cloudfoundry.cc.api.rolePropagationConcurrency:8}")
+    private int rolePropagationConcurrency = 8;
+
+    /**
+     * 공간 역할 할당/제거 요청의 일시적인 오류 재시도 횟수
+     */
+    @Value("${cloudfoundry.cc.api.rolePropagationRetries:2}")
+    private int rolePropagationRetries = 2;
+
 
     /**
      * 공간(스페이스) 목록 조회한다.
@@ -50,11 +80,23 @@ public class SpaceService extends Common {
      */
     //@HystrixCommand(commandKey = "getSpaces")
     public ListSpacesResponse getSpaces(String orgId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
-        ListSpacesResponse response = reactorCloudFoundryClient.spaces().list(ListSpacesRequest.builder().organizationId(orgId).build()).block();
+        final List<SpaceResource> resources = getSpacesFlux(orgId, reactorCloudFoundryClient).collectList().block();
+        ListSpacesResponse response = ListSpacesResponse.builder().resources(resources).totalResults(resources.size()).totalPages(1).build();
 
         return response;
     }
 
+    /**
+     * 조직의 모든 공간을 조회한다. 모든 페이지를 동시에 조회하며, 공간을 하나씩 흘려보낸다. (NDJSON 응답용)
+     *
+     * @param orgId                     the org id
+     * @param reactorCloudFoundryClient the ReactorCloudFoundryClient
+     * @return Flux<SpaceResource>
+     */
+    public Flux<SpaceResource> getSpacesFlux(String orgId, ReactorCloudFoundryClient reactorCloudFoundryClient) {
+        return PageUtils.requestAllResources(page -> reactorCloudFoundryClient.spaces().list(ListSpacesRequest.builder().organizationId(orgId).page(page).resultsPerPage(PageUtils.MAX_RESULTS_PER_PAGE).build()));
+    }
+
     //@HystrixCommand(commandKey = "getSpacesWithOrgName")
     public ListSpacesResponse getSpacesWithOrgName(String orgName, ReactorCloudFoundryClient reactorCloudFoundryClient, String token) {
         final String orgId = orgService.getOrgId(orgName, token);
@@ -243,9 +285,15 @@ public class SpaceService extends Common {
                 throw new CloudFoundryException(HttpStatus.BAD_REQUEST, "Bad Request", "Required request body content is missing");
             }
 
-            Common.cloudFoundryClient(connectionContext(), tokenProvider(token)).spaces().delete(DeleteSpaceRequest.builder().spaceId(guid).recursive(recursive).async(true).build()).block();
+            DeleteSpaceResponse deleteSpaceResponse = Common.cloudFoundryClient(connectionContext(), tokenProvider(token)).spaces().delete(DeleteSpaceRequest.builder().spaceId(guid).recursive(recursive).async(true).build()).block();
 
             resultMap.put("result", true);
+            if (null != deleteSpaceResponse && null != deleteSpaceResponse.getMetadata()) {
+                // 삭제 작업(CC job)은 /v2/jobs/{jobId} 로 조회할 수 있다.
+                final String jobId = deleteSpaceResponse.getMetadata().getId();
+                resultMap.put("jobId", jobId);
+                resultMap.put("job", jobRegistry.track(jobId, deleteSpaceResponse.getEntity(), "deleteSpace", guid, token));
+            }
         } catch (Exception e) {
             e.printStackTrace();
             resultMap.put("result", false);
@@ -265,10 +313,23 @@ public class SpaceService extends Common {
      */
     //@HystrixCommand(commandKey = "getSpaceSummary")
     public GetSpaceSummaryResponse getSpaceSummary(String spaceId, ReactorCloudFoundryClient cloudFoundryClient) throws Exception {
-        GetSpaceSummaryResponse respSapceSummary = cloudFoundryClient.spaces().getSummary(GetSpaceSummaryRequest.builder().spaceId(spaceId).build()).block();
+        GetSpaceSummaryResponse respSapceSummary = getSpaceSummaryMono(spaceId, cloudFoundryClient).block();
         return respSapceSummary;
     }
 
+    /**
+     * 공간 요약 정보를 조회한다. 호출 스레드를 점유하지 않는 Mono 를 반환한다.
+     * 같은 권한으로 동시에 들어온 같은 공간의 조회는 하나의 CC 호출을 공유한다.
+     *
+     * @param spaceId            the space id
+     * @param cloudFoundryClient the ReactorCloudFoundryClient
+     * @return Mono<GetSpaceSummaryResponse> space summary
+     */
+    public Mono<GetSpaceSummaryResponse> getSpaceSummaryMono(String spaceId, ReactorCloudFoundryClient cloudFoundryClient) {
+        return requestCoalescer.coalesce("spaceSummary", RequestCoalescer.scopeOf(cloudFoundryClient), spaceId,
+                () -> cloudFoundryClient.spaces().getSummary(GetSpaceSummaryRequest.builder().spaceId(spaceId).build()));
+    }
+
     /**
      * 공간에 생성되어 있는 서비스를 조회한다.
      *
@@ -356,33 +417,130 @@ public class SpaceService extends Common {
             throw new CloudFoundryException(HttpStatus.BAD_REQUEST, "Request role is invalid : " + role);
         }
 
+        final AbstractSpaceResource response;
         switch (roleEnum) {
             case SpaceManager:
             case SPACEMANAGER:
-                return associateSpaceManager(spaceId, userId);
+                response = associateSpaceManager(spaceId, userId);
+                break;
             case SpaceDeveloper:
             case SPACEDEVELOPER:
-                return associateSpaceDeveloper(spaceId, userId);
+                response = associateSpaceDeveloper(spaceId, userId);
+                break;
             case SpaceAuditor:
             case SPACEAUDITOR:
-                return associateSpaceAuditor(spaceId, userId);
+                response = associateSpaceAuditor(spaceId, userId);
+                break;
             default:
                 throw new CloudFoundryException(HttpStatus.BAD_REQUEST, "Request role is invalid : " + role);
         }
+        invalidateOrgRoleCache(null, userId);
+        return response;
+    }
+
+    /**
+     * 공간 역할 변경 후 조직 역할 색인 캐시를 비운다. 조직 id 를 알면 해당 조직만, 모르면 사용자가 포함된 조직을 비운다.
+     */
+    private void invalidateOrgRoleCache(String orgId, String userId) {
+        if (null != orgId) orgRoleCache.invalidate(orgId);
+        else orgRoleCache.invalidateUser(userId);
     }
 
     //@HystrixCommand(commandKey = "associateAllSpaceUserRolesByOrgId")
     public List<AbstractSpaceResource> associateAllSpaceUserRolesByOrgId(String orgId, String userId, Iterable<String> roles, ReactorCloudFoundryClient reactorCloudFoundryClient) {
-        final List<AbstractSpaceResource> responses = new LinkedList<>();
-        final List<String> spaceIds = this.getSpaces(orgId, reactorCloudFoundryClient).getResources().stream().map(space -> space.getMetadata().getId()).filter(id -> null != id).collect(Collectors.toList());
+        final List<Map<String, Object>> results = propagateSpaceUserRoles(orgId, userId, roles, reactorCloudFoundryClient, true);
+        invalidateOrgRoleCache(orgId, userId);
+        checkSpaceUserRoleResults(results);
+
+        return results.stream().map(result -> (AbstractSpaceResource) result.get("response")).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * 조직의 모든 공간에 대해 사용자 역할을 할당(또는 제거)하고 공간/역할별 결과를 반환한다.
+     * 공간 목록의 모든 페이지를 조회하며, 공간별 요청은 rolePropagationConcurrency 개까지 동시에 수행하고 일시적인 오류는 재시도한다.
+     *
+     * @param orgId                     the org id
+     * @param userId                    the user id
+     * @param roles                     SpaceManager, SpaceDeveloper, SpaceAuditor
+     * @param reactorCloudFoundryClient 공간 목록 조회에 사용할 client
+     * @param associate                 true 이면 할당, false 이면 제거
+     * @return List spaceId, role, result, msg
+     */
+    public List<Map<String, Object>> propagateSpaceUserRoles(String orgId, String userId, Iterable<String> roles, ReactorCloudFoundryClient reactorCloudFoundryClient, boolean associate) {
+        Objects.requireNonNull(orgId, "Org Id");
+        Objects.requireNonNull(userId, "User Id");
+        Objects.requireNonNull(roles, "roles");
+
+        final List<SpaceRole> spaceRoles = new ArrayList<>();
         for (String role : roles) {
-            for (String spaceId : spaceIds) {
-                final AbstractSpaceResource response = associateSpaceUserRole(spaceId, userId, role);
-                responses.add(response);
+            try {
+                spaceRoles.add(SpaceRole.valueOf(role));
+            } catch (IllegalArgumentException e) {
+                LOGGER.error("This role is invalid : {}", role);
+                throw new CloudFoundryException(HttpStatus.BAD_REQUEST, "Request role is invalid : " + role);
             }
         }
 
-        return responses;
+        final ReactorCloudFoundryClient adminClient = cloudFoundryClient(connectionContext());
+        final List<Map<String, Object>> results = getSpacesFlux(orgId, reactorCloudFoundryClient)
+                .map(space -> space.getMetadata().getId())
+                .filter(Objects::nonNull)
+                .flatMapIterable(spaceId -> spaceRoles.stream().map(role -> new AbstractMap.SimpleEntry<>(spaceId, role)).collect(Collectors.toList()))
+                .flatMapSequential(entry -> applySpaceUserRole(adminClient, entry.getKey(), userId, entry.getValue(), associate), Math.max(rolePropagationConcurrency, 1))
+                .collectList()
+                .block();
+
+        LOGGER.debug("--> {} space role(s) of member({}) in org({}) : {} request(s)", associate ? "Associate" : "Remove", userId, orgId, results.size());
+        return results;
+    }
+
+    private Mono<Map<String, Object>> applySpaceUserRole(ReactorCloudFoundryClient reactorCloudFoundryClient, String spaceId, String userId, SpaceRole role, boolean associate) {
+        final Mono<?> request;
+        switch (role) {
+            case SpaceManager:
+            case SPACEMANAGER:
+                request = associate ? reactorCloudFoundryClient.spaces().associateManager(AssociateSpaceManagerRequest.builder().spaceId(spaceId).managerId(userId).build())
+                        : reactorCloudFoundryClient.spaces().removeManager(RemoveSpaceManagerRequest.builder().spaceId(spaceId).managerId(userId).build());
+                break;
+            case SpaceDeveloper:
+            case SPACEDEVELOPER:
+                request = associate ? reactorCloudFoundryClient.spaces().associateDeveloper(AssociateSpaceDeveloperRequest.builder().spaceId(spaceId).developerId(userId).build())
+                        : reactorCloudFoundryClient.spaces().removeDeveloper(RemoveSpaceDeveloperRequest.builder().spaceId(spaceId).developerId(userId).build());
+                break;
+            case SpaceAuditor:
+            case SPACEAUDITOR:
+                request = associate ? reactorCloudFoundryClient.spaces().associateAuditor(AssociateSpaceAuditorRequest.builder().spaceId(spaceId).auditorId(userId).build())
+                        : reactorCloudFoundryClient.spaces().removeAuditor(RemoveSpaceAuditorRequest.builder().spaceId(spaceId).auditorId(userId).build());
+                break;
+            default:
+                throw new CloudFoundryException(HttpStatus.BAD_REQUEST, "Request role is invalid : " + role);
+        }
+
+        return request
+                .retryWhen(RetryUtils.transientRetry(rolePropagationRetries, Duration.ofMillis(200)))
+                .map(response -> spaceUserRoleResult(spaceId, role, true, null, response))
+                .defaultIfEmpty(spaceUserRoleResult(spaceId, role, true, null, null))
+                .onErrorResume(e -> {
+                    LOGGER.error("Fail to {} {} of member({}) in space({}) : {}", associate ? "associate" : "remove", role, userId, spaceId, e.getMessage());
+                    return Mono.just(spaceUserRoleResult(spaceId, role, false, e.getMessage(), null));
+                });
+    }
+
+    private Map<String, Object> spaceUserRoleResult(String spaceId, SpaceRole role, boolean result, String msg, Object response) {
+        final Map<String, Object> resultMap = new HashMap<>();
+        resultMap.put("spaceId", spaceId);
+        resultMap.put("role", role.name());
+        resultMap.put("result", result);
+        resultMap.put("msg", msg);
+        if (null != response) resultMap.put("response", response);
+        return resultMap;
+    }
+
+    private void checkSpaceUserRoleResults(List<Map<String, Object>> results) {
+        final List<String> failed = results.stream().filter(result -> !Boolean.TRUE.equals(result.get("result"))).map(result -> result.get("spaceId") + "(" + result.get("role") + ")").collect(Collectors.toList());
+        if (!failed.isEmpty()) {
+            throw new CloudFoundryException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to change space role : " + String.join(", ", failed));
+        }
     }
 
 
@@ -445,15 +603,14 @@ public class SpaceService extends Common {
             default:
                 throw new CloudFoundryException(HttpStatus.BAD_REQUEST, "Request role is invalid : " + role);
         }
+        invalidateOrgRoleCache(null, userId);
     }
 
     //@HystrixCommand(commandKey = "removeAllSpaceUserRolesByOrgId")
     public void removeAllSpaceUserRolesByOrgId(String orgId, String userId, Iterable<String> roles) {
-        final List<String> spaceIds = this.getSpaces(orgId, cloudFoundryClient(connectionContext())).getResources().stream().map(space -> space.getMetadata().getId()).filter(id -> null != id).collect(Collectors.toList());
-        for (String role : roles) {
-            for (String spaceId : spaceIds)
-                removeSpaceUserRole(spaceId, userId, role);
-        }
+        final List<Map<String, Object>> results = propagateSpaceUserRoles(orgId, userId, roles, cloudFoundryClient(connectionContext()), false);
+        invalidateOrgRoleCache(orgId, userId);
+        checkSpaceUserRoleResults(results);
     }
 
     //@HystrixCommand(commandKey = "associateSpaceUserRoles")
@@ -491,6 +648,7 @@ public class SpaceService extends Common {
             if (developer) {
                 Common.cloudFoundryClient(connectionContext(), tokenProvider(token)).spaces().removeDeveloper(RemoveSpaceDeveloperRequest.builder().spaceId(spaceid).developerId(userRole.getUserId()).build()).block();
             }
+            invalidateOrgRoleCache(null, userRole.getUserId());
         });
         return true;
     }
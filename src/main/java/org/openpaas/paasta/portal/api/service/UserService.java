@@ -10,14 +10,18 @@ import org.cloudfoundry.uaa.tokens.GetTokenByClientCredentialsRequest;
 import org.cloudfoundry.uaa.tokens.GetTokenByClientCredentialsResponse;
 import org.cloudfoundry.uaa.users.*;
 import org.openpaas.paasta.portal.api.common.Common;
+import org.openpaas.paasta.portal.api.common.UserDirectory;
 import org.openpaas.paasta.portal.api.model.UserDetail;
+import org.openpaas.paasta.portal.api.util.PageUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Flux;
 
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
@@ -31,11 +35,15 @@ public class UserService extends Common {
 
 
     @Autowired
+    @Qualifier("uaaRestTemplate")
     RestTemplate restTemplate;
 
     @Autowired
     private LoginService loginService;
 
+    @Autowired
+    private UserDirectory userDirectory;
+
     /**
      * 사용자 생성
      *
@@ -77,6 +85,7 @@ public class UserService extends Common {
         try {
             ReactorUaaClient reactorUaaClient = Common.uaaClient(connectionContext(), tokenProvider(this.getToken()));
             reactorUaaClient.users().update(UpdateUserRequest.builder().userName(userDetail.getUserId()).phoneNumber(PhoneNumber.builder().value(userDetail.getTellPhone()).build()).email(Email.builder().value(userDetail.getUserName()).build()).build()).block();
+            userDirectory.evict(null, userDetail.getUserId());
 
             //TODO : ORG 권한 부여
             result.put("result", true);
@@ -208,6 +217,7 @@ public class UserService extends Common {
         try {
             ReactorUaaClient reactorUaaClient = Common.uaaClient(connectionContext(), tokenProvider(this.getToken()));
             DeleteUserResponse deleteUserResponse = reactorUaaClient.users().delete(DeleteUserRequest.builder().userId(userId).build()).block();
+            userDirectory.evict(userId, null);
             result.put("result", true);
             result.put("msg", "You have successfully completed the task.");
 
@@ -233,7 +243,7 @@ public class UserService extends Common {
 
     //@HystrixCommand(commandKey = "getUsernameFromToken")
     public String getUsernameFromToken(String token) {
-        return Common.uaaClient(connectionContext(), tokenProvider(token)).getUsername().block();
+        return tokenIdentityCache.getUsername(token).block();
     }
 
     //@HystrixCommand(commandKey = "getUser")
@@ -257,6 +267,16 @@ public class UserService extends Common {
     }
 
 
+    /**
+     * 모든 UAA 사용자를 조회한다. 모든 페이지를 동시에 조회하며, 사용자를 하나씩 흘려보낸다. (NDJSON 응답용)
+     *
+     * @return Flux<User>
+     */
+    public Flux<User> allUsersFlux() {
+        ReactorUaaClient reactorUaaClient = Common.uaaClient(connectionContext(), tokenProvider(this.getToken()));
+        return PageUtils.requestAllUaaResources(startIndex -> reactorUaaClient.users().list(ListUsersRequest.builder().startIndex(startIndex).count(PageUtils.UAA_PAGE_SIZE).build()), PageUtils.DEFAULT_CONCURRENCY);
+    }
+
     /**
      * CloudFoundry 이용하여 사용자 전체 정보 출력
      *
@@ -267,9 +287,7 @@ public class UserService extends Common {
         List<User> users = new ArrayList<>();
         try {
             LOGGER.info("allUsers ::: ");
-            ReactorUaaClient reactorUaaClient = Common.uaaClient(connectionContext(), tokenProvider(this.getToken()));
-            ListUsersResponse listUsersResponse = reactorUaaClient.users().list(ListUsersRequest.builder().build().builder().build()).block();
-            users = listUsersResponse.getResources();
+            users = allUsersFlux().collectList().block();
             return users;
         } catch (Exception e) {
             return null;
@@ -312,13 +330,13 @@ public class UserService extends Common {
      */
     //@HystrixCommand(commandKey = "getUserIdByUsername")
     public String getUserIdByUsername(String username) {
-        final List<User> userList = Common.uaaClient(connectionContext(), tokenProvider()).users().list(ListUsersRequest.builder().filter(createUserLookupFilter(UaaUserLookupFilterType.Username, username)).build()).block().getResources();
-        if (userList.size() <= 0) {
+        final User user = userDirectory.findByUsername(username).block();
+        if (null == user) {
             //throw new CloudFoundryException( HttpStatus.NOT_FOUND, "User name cannot find" );
             return null;
         }
 
-        return userList.get(0).getId();
+        return user.getId();
     }
 
     /**
@@ -329,13 +347,29 @@ public class UserService extends Common {
      */
     //@HystrixCommand(commandKey = "getUsernameByUserId")
     public String getUsernameByUserId(String userId) {
-        final List<User> userList = Common.uaaClient(connectionContext(), tokenProvider()).users().list(ListUsersRequest.builder().filter(createUserLookupFilter(UaaUserLookupFilterType.Id, userId)).build()).block().getResources();
-        if (userList.size() <= 0) {
+        final User user = userDirectory.findById(userId).block();
+        if (null == user) {
             //throw new CloudFoundryException( HttpStatus.NOT_FOUND, "User ID cannot find" );
             return null;
         }
 
-        return userList.get(0).getId();
+        return user.getId();
+    }
+
+    /**
+     * 유저 GUID(user id)로 유저의 이름(user name)을 가져온다.
+     * getUsernameByUserId 는 기존 클라이언트 호환을 위해 user id 를 그대로 반환한다.
+     *
+     * @param userId
+     * @return User name
+     */
+    public String getUserNameByUserId(String userId) {
+        final User user = userDirectory.findById(userId).block();
+        if (null == user) {
+            return null;
+        }
+
+        return user.getUserName();
     }
 
     private User getUserSummaryWithFilter(UaaUserLookupFilterType filterType, String filterValue) {
@@ -347,11 +381,39 @@ public class UserService extends Common {
     }
 
     public User getUserSummary(String userId) {
-        return getUserSummaryWithFilter(UaaUserLookupFilterType.Id, userId);
+        final User user = userDirectory.findById(userId).block();
+        if (null == user)
+            throw new CloudFoundryException(HttpStatus.NOT_FOUND, (UaaUserLookupFilterType.Id.name() + " of user cannot find"));
+
+        return user;
     }
 
     public User getUserSummaryByUsername(String userName) {
-        return getUserSummaryWithFilter(UaaUserLookupFilterType.Username, userName);
+        final User user = userDirectory.findByUsername(userName).block();
+        if (null == user)
+            throw new CloudFoundryException(HttpStatus.NOT_FOUND, (UaaUserLookupFilterType.Username.name() + " of user cannot find"));
+
+        return user;
+    }
+
+    /**
+     * 여러 유저 GUID(user id)의 유저 정보를 한 번에 가져온다. 찾을 수 없는 GUID 는 결과에 포함하지 않는다.
+     *
+     * @param userIds user id 목록
+     * @return Map user id -> User
+     */
+    public Map<String, User> getUserSummaries(Collection<String> userIds) {
+        return userDirectory.findByIds(userIds).block();
+    }
+
+    /**
+     * 여러 유저 이름(user name)의 유저 정보를 한 번에 가져온다. 찾을 수 없는 이름은 결과에 포함하지 않는다.
+     *
+     * @param userNames user name 목록
+     * @return Map user name -> User
+     */
+    public Map<String, User> getUserSummariesByUsername(Collection<String> userNames) {
+        return userDirectory.findByUsernames(userNames).block();
     }
 
     /**
@@ -370,6 +432,7 @@ public class UserService extends Common {
          Name name = Name.builder().familyName((user.getName().getFamilyName()==null)||(user.getName().getFamilyName().equals(""))?user.getId():user.getName().getFamilyName()).givenName((user.getName().getGivenName()==null)||(user.getName().getFamilyName().equals(""))?user.getId():user.getName().getGivenName()).build();
          final boolean active = !user.getActive();
          UpdateUserResponse updateUserResponse = uaaClient.users().update(UpdateUserRequest.builder().name(name).userName(user.getUserName()).version(user.getMeta().getVersion().toString()).email(user.getEmail().get(0)).id(user.getId()).active(active).build()).block();
+         userDirectory.evict(user.getId(), user.getUserName());
          return updateUserResponse;
     }
 
@@ -0,0 +1,101 @@
+package org.openpaas.paasta.portal.api.util;
+
+import org.cloudfoundry.doppler.Envelope;
+import org.cloudfoundry.doppler.LogMessage;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Doppler Envelope(앱 로그) 필터링/정렬 유틸리티
+ */
+public final class EnvelopeUtils {
+
+    /**
+     * timestamp 오름차순 비교자 (timestamp 가 없으면 가장 앞)
+     */
+    public static final Comparator<Envelope> TIMESTAMP_ORDER = Comparator.comparingLong(EnvelopeUtils::timestampOf);
+
+    private EnvelopeUtils() {
+    }
+
+    /**
+     * 로그 필터 조건을 만든다. 조건 값이 비어 있으면 해당 조건은 검사하지 않는다.
+     * 조건이 하나라도 지정되면 LogMessage 가 없는 envelope 은 제외한다.
+     *
+     * @param sourceType     APP, RTR, STG, API, CELL 등 (대소문자 구분 없음, 접두어 일치 : APP 은 APP/PROC/WEB 도 포함)
+     * @param sourceInstance 인스턴스 index
+     * @param messageType    OUT, ERR
+     * @return Predicate
+     */
+    public static Predicate<Envelope> filter(String sourceType, String sourceInstance, String messageType) {
+        final boolean hasSourceType = !isEmpty(sourceType);
+        final boolean hasSourceInstance = !isEmpty(sourceInstance);
+        final boolean hasMessageType = !isEmpty(messageType);
+        if (!hasSourceType && !hasSourceInstance && !hasMessageType) {
+            return envelope -> true;
+        }
+
+        return envelope -> {
+            final LogMessage logMessage = envelope.getLogMessage();
+            if (null == logMessage) return false;
+            if (hasSourceType && (null == logMessage.getSourceType() || !logMessage.getSourceType().toUpperCase().startsWith(sourceType.toUpperCase()))) {
+                return false;
+            }
+            if (hasSourceInstance && !sourceInstance.equals(logMessage.getSourceInstance())) {
+                return false;
+            }
+            return !hasMessageType || (null != logMessage.getMessageType() && logMessage.getMessageType().name().equalsIgnoreCase(messageType));
+        };
+    }
+
+    /**
+     * envelope 을 최대 bufferSize 개까지 보관하며 timestamp 순으로 내보낸다.
+     * 버퍼가 가득 차면 가장 오래된 envelope 부터 내보내므로, 순서가 bufferSize 이상 어긋난 envelope 은 정확히 정렬되지 않을 수 있다.
+     *
+     * @param envelopes  the envelopes
+     * @param bufferSize 정렬 버퍼 크기
+     * @return Flux<Envelope>
+     */
+    public static Flux<Envelope> sortByTimestamp(Flux<Envelope> envelopes, int bufferSize) {
+        final int capacity = Math.max(bufferSize, 1);
+        return Flux.defer(() -> {
+            final PriorityQueue<Envelope> buffer = new PriorityQueue<>(capacity + 1, TIMESTAMP_ORDER);
+            return envelopes
+                    .concatMapIterable(envelope -> {
+                        buffer.offer(envelope);
+                        return buffer.size() > capacity ? Collections.singletonList(buffer.poll()) : Collections.<Envelope>emptyList();
+                    })
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(drain(buffer))));
+        });
+    }
+
+    /**
+     * envelope 의 timestamp(ns)를 반환한다. envelope 에 없으면 LogMessage 의 값을 사용한다.
+     *
+     * @param envelope the envelope
+     * @return long timestamp
+     */
+    public static long timestampOf(Envelope envelope) {
+        if (null != envelope.getTimestamp()) return envelope.getTimestamp();
+        if (null != envelope.getLogMessage() && null != envelope.getLogMessage().getTimestamp()) return envelope.getLogMessage().getTimestamp();
+        return 0L;
+    }
+
+    private static List<Envelope> drain(PriorityQueue<Envelope> buffer) {
+        final List<Envelope> remaining = new ArrayList<>(buffer.size());
+        while (!buffer.isEmpty()) {
+            remaining.add(buffer.poll());
+        }
+        return remaining;
+    }
+
+    private static boolean isEmpty(String value) {
+        return null == value || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,124 @@
+package org.openpaas.paasta.portal.api.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * UAA 에서 발급한 JWT 토큰을 다루기 위한 유틸리티
+ */
+public final class JwtUtils {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwtUtils.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private JwtUtils() {
+    }
+
+    /**
+     * "bearer " 접두어를 제거한 토큰 문자열을 반환한다.
+     *
+     * @param token the token
+     * @return String
+     */
+    public static String stripBearer(String token) {
+        if (null == token) return null;
+        final String trimmed = token.trim();
+        if (trimmed.regionMatches(true, 0, "bearer ", 0, 7)) {
+            return trimmed.substring(7).trim();
+        }
+        return trimmed;
+    }
+
+    /**
+     * 토큰의 payload(claims)를 검증 없이 디코딩한다. JWT 형식이 아니면 빈 Map 을 반환한다.
+     *
+     * @param token the token
+     * @return Map claims
+     */
+    public static Map<String, Object> getClaims(String token) {
+        final String jwt = stripBearer(token);
+        if (null == jwt) return Collections.emptyMap();
+
+        final String[] parts = jwt.split("\\.");
+        if (parts.length < 2) return Collections.emptyMap();
+
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(parts[1]);
+            return OBJECT_MAPPER.readValue(payload, MAP_TYPE);
+        } catch (Exception e) {
+            LOGGER.debug("Cannot decode token payload : {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * 토큰의 aud claim 을 목록으로 반환한다. UAA 는 aud 를 배열로 발급하지만 문자열 하나인 경우도 허용한다.
+     *
+     * @param claims the claims
+     * @return List audience
+     */
+    public static List<String> getAudience(Map<String, Object> claims) {
+        final Object aud = claims.get("aud");
+        if (aud instanceof Collection) {
+            final List<String> audience = new ArrayList<>();
+            for (Object value : (Collection<?>) aud) {
+                audience.add(String.valueOf(value));
+            }
+            return audience;
+        }
+        if (null != aud) {
+            return Collections.singletonList(aud.toString());
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 토큰의 만료 시각(exp)을 epoch millis 로 반환한다. 알 수 없으면 -1 을 반환한다.
+     *
+     * @param token the token
+     * @return long expiration millis
+     */
+    public static long getExpirationMillis(String token) {
+        Object exp = getClaims(token).get("exp");
+        if (exp instanceof Number) {
+            return ((Number) exp).longValue() * 1000L;
+        }
+        return -1L;
+    }
+
+    /**
+     * 토큰 원문 대신 캐시 키로 사용할 SHA-256 다이제스트를 반환한다.
+     *
+     * @param token the token
+     * @return String hex digest
+     */
+    public static String digest(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = messageDigest.digest(stripBearer(token).getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
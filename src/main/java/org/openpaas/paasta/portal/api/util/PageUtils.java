@@ -0,0 +1,91 @@
+package org.openpaas.paasta.portal.api.util;
+
+import org.cloudfoundry.client.v2.PaginatedResponse;
+import org.cloudfoundry.client.v2.Resource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.IntFunction;
+
+/**
+ * Cloud Controller v2 목록 API 의 모든 페이지를 조회하기 위한 유틸리티
+ * 첫 페이지로 전체 페이지 수를 확인한 후, 나머지 페이지는 지정된 개수만큼 동시에 요청한다. 결과 순서는 페이지 순서를 유지한다.
+ */
+public final class PageUtils {
+
+    /**
+     * 기본 페이지 동시 요청 수
+     */
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    /**
+     * CC v2 API 가 허용하는 페이지당 최대 결과 수
+     */
+    public static final int MAX_RESULTS_PER_PAGE = 100;
+
+    /**
+     * UAA 목록 API 요청 시 한 번에 조회할 결과 수
+     */
+    public static final int UAA_PAGE_SIZE = 500;
+
+    private PageUtils() {
+    }
+
+    /**
+     * 모든 페이지의 응답을 페이지 순서대로 반환한다.
+     *
+     * @param pageRequest 페이지 번호(1부터 시작)를 받아 해당 페이지를 요청하는 함수
+     * @param concurrency 동시에 요청할 페이지 수
+     * @return Flux 페이지 응답
+     */
+    public static <R extends Resource<?>, U extends PaginatedResponse<R>> Flux<U> requestAllPages(IntFunction<Mono<U>> pageRequest, int concurrency) {
+        return pageRequest.apply(1).flatMapMany(first -> {
+            final Integer totalPages = first.getTotalPages();
+            if (null == totalPages || totalPages <= 1) {
+                return Flux.just(first);
+            }
+            return Flux.concat(Mono.just(first), Flux.range(2, totalPages - 1).flatMapSequential(pageRequest::apply, Math.max(concurrency, 1)));
+        });
+    }
+
+    /**
+     * 모든 페이지의 resource 를 페이지 순서대로 반환한다.
+     *
+     * @param pageRequest 페이지 번호(1부터 시작)를 받아 해당 페이지를 요청하는 함수
+     * @param concurrency 동시에 요청할 페이지 수
+     * @return Flux resource
+     */
+    public static <R extends Resource<?>, U extends PaginatedResponse<R>> Flux<R> requestAllResources(IntFunction<Mono<U>> pageRequest, int concurrency) {
+        return PageUtils.<R, U>requestAllPages(pageRequest, concurrency).flatMapIterable(PaginatedResponse::getResources);
+    }
+
+    /**
+     * UAA 목록 API(startIndex/count 방식)의 모든 resource 를 반환한다.
+     * 첫 요청의 totalResults, itemsPerPage 로 나머지 startIndex 를 계산하여 지정된 개수만큼 동시에 요청한다.
+     *
+     * @param startIndexRequest startIndex(1부터 시작)를 받아 해당 위치부터 UAA_PAGE_SIZE 개를 요청하는 함수
+     * @param concurrency       동시에 요청할 페이지 수
+     * @return Flux resource
+     */
+    public static <R, U extends org.cloudfoundry.uaa.PaginatedResponse<R>> Flux<R> requestAllUaaResources(IntFunction<Mono<U>> startIndexRequest, int concurrency) {
+        return startIndexRequest.apply(1).flatMapMany(first -> {
+            final int totalResults = null == first.getTotalResults() ? 0 : first.getTotalResults();
+            final int itemsPerPage = null == first.getItemsPerPage() ? 0 : first.getItemsPerPage();
+            if (itemsPerPage <= 0 || totalResults <= itemsPerPage) {
+                return Flux.just(first);
+            }
+            final int remainingPages = (totalResults - 1) / itemsPerPage;
+            return Flux.concat(Mono.just(first), Flux.range(1, remainingPages).flatMapSequential(page -> startIndexRequest.apply(1 + page * itemsPerPage), Math.max(concurrency, 1)));
+        }).flatMapIterable(org.cloudfoundry.uaa.PaginatedResponse::getResources);
+    }
+
+    /**
+     * 기본 동시 요청 수로 모든 페이지의 resource 를 반환한다.
+     *
+     * @param pageRequest 페이지 번호(1부터 시작)를 받아 해당 페이지를 요청하는 함수
+     * @return Flux resource
+     */
+    public static <R extends Resource<?>, U extends PaginatedResponse<R>> Flux<R> requestAllResources(IntFunction<Mono<U>> pageRequest) {
+        return requestAllResources(pageRequest, DEFAULT_CONCURRENCY);
+    }
+}
@@ -0,0 +1,63 @@
+package org.openpaas.paasta.portal.api.util;
+
+import org.cloudfoundry.AbstractCloudFoundryException;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cloud Controller / UAA 호출의 일시적인 오류를 재시도하기 위한 유틸리티
+ */
+public final class RetryUtils {
+
+    private RetryUtils() {
+    }
+
+    /**
+     * 일시적인 오류인지 판단한다. (5xx, 429 응답, 타임아웃, 네트워크 오류)
+     *
+     * @param throwable the throwable
+     * @return boolean
+     */
+    public static boolean isTransient(Throwable throwable) {
+        if (throwable instanceof AbstractCloudFoundryException) {
+            final int statusCode = ((AbstractCloudFoundryException) throwable).getStatusCode();
+            return statusCode >= 500 || statusCode == 429;
+        }
+        return throwable instanceof TimeoutException || throwable instanceof IOException;
+    }
+
+    /**
+     * 일시적인 오류를 maxRetries 번까지 재시도하는 retryWhen 함수를 반환한다. 재시도 간격은 backoff * 시도횟수 이다.
+     *
+     * @param maxRetries 최대 재시도 횟수
+     * @param backoff    재시도 기본 간격
+     * @return Function retryWhen 인자
+     */
+    public static Function<Flux<Throwable>, Publisher<?>> transientRetry(int maxRetries, Duration backoff) {
+        return retry(maxRetries, backoff, RetryUtils::isTransient);
+    }
+
+    /**
+     * retryable 이 true 인 오류를 maxRetries 번까지 재시도하는 retryWhen 함수를 반환한다. 재시도 간격은 backoff * 시도횟수 이다.
+     *
+     * @param maxRetries 최대 재시도 횟수
+     * @param backoff    재시도 기본 간격
+     * @param retryable  재시도할 오류인지 판단
+     * @return Function retryWhen 인자
+     */
+    public static Function<Flux<Throwable>, Publisher<?>> retry(int maxRetries, Duration backoff, Predicate<Throwable> retryable) {
+        return errors -> errors.zipWith(Flux.range(1, Integer.MAX_VALUE), (error, attempt) -> {
+            if (attempt > maxRetries || !retryable.test(error)) {
+                return Mono.error(error);
+            }
+            return Mono.delay(backoff.multipliedBy(attempt));
+        }).flatMap(Function.identity());
+    }
+}
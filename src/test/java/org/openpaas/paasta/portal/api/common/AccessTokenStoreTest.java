@@ -0,0 +1,92 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class AccessTokenStoreTest {
+
+    @Test
+    public void testPutReplacesPreviousToken() {
+        AccessTokenStore store = new AccessTokenStore(10);
+        store.put("user", token("first"), 1000L);
+        store.put("user", token("second"), 5000L);
+
+        Assert.assertEquals(1, store.size());
+        Assert.assertEquals("second", store.get("user").getValue());
+        // 대체된 토큰의 만료 시각으로는 지워지지 않는다.
+        Assert.assertEquals(0, store.expire(1000L));
+        Assert.assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testPutEvictsEarliestExpiringToken() {
+        AccessTokenStore store = new AccessTokenStore(2);
+        store.put("late", token("late"), 3000L);
+        store.put("early", token("early"), 1000L);
+        store.put("middle", token("middle"), 2000L);
+
+        Assert.assertEquals(2, store.size());
+        Assert.assertNull(store.get("early"));
+        Assert.assertNotNull(store.get("middle"));
+        Assert.assertNotNull(store.get("late"));
+        Assert.assertEquals(1L, store.stats().get("eviction"));
+    }
+
+    @Test
+    public void testPutEvictsOldestOfSameExpiration() {
+        AccessTokenStore store = new AccessTokenStore(2);
+        store.put("first", token("first"), 1000L);
+        store.put("second", token("second"), 1000L);
+        store.put("third", token("third"), 1000L);
+
+        Assert.assertNull(store.get("first"));
+        Assert.assertNotNull(store.get("second"));
+        Assert.assertNotNull(store.get("third"));
+    }
+
+    @Test
+    public void testExpireRemovesOnlyExpiredTokens() {
+        AccessTokenStore store = new AccessTokenStore(10);
+        store.put("a", token("a"), 1000L);
+        store.put("b", token("b"), 2000L);
+        store.put("c", token("c"), 3000L);
+
+        Assert.assertEquals(2, store.expire(2000L));
+        Assert.assertNull(store.get("a"));
+        Assert.assertNull(store.get("b"));
+        Assert.assertNotNull(store.get("c"));
+        Assert.assertEquals(2L, store.stats().get("expired"));
+        Assert.assertEquals(0, store.expire(2000L));
+    }
+
+    @Test
+    public void testExpiringBeforeReturnsKeysInExpirationOrder() {
+        AccessTokenStore store = new AccessTokenStore(10);
+        store.put("c", token("c"), 3000L);
+        store.put("a", token("a"), 1000L);
+        store.put("b", token("b"), 2000L);
+
+        Assert.assertEquals(Arrays.asList("a", "b"), store.expiringBefore(2000L));
+        Assert.assertEquals(Collections.emptyList(), store.expiringBefore(500L));
+    }
+
+    @Test
+    public void testRemove() {
+        AccessTokenStore store = new AccessTokenStore(10);
+        store.put("a", token("a"), 1000L);
+        store.remove("a");
+        store.remove("unknown");
+
+        Assert.assertEquals(0, store.size());
+        Assert.assertEquals(Collections.emptyList(), store.expiringBefore(Long.MAX_VALUE));
+    }
+
+    private static OAuth2AccessToken token(String value) {
+        return new DefaultOAuth2AccessToken(value);
+    }
+}
@@ -0,0 +1,218 @@
+package org.openpaas.paasta.portal.api.common;
+
+import com.sun.net.httpserver.HttpServer;
+import org.cloudfoundry.client.v2.jobs.JobEntity;
+import org.cloudfoundry.reactor.DefaultConnectionContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openpaas.paasta.portal.api.config.cloudfoundry.provider.TokenGrantTokenProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.BooleanSupplier;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * JobRegistry 조회 동작 테스트. 로컬 HttpServer 를 CC(/v2/jobs)로 사용한다.
+ */
+public class JobRegistryTest {
+
+    private static final String OWNER_TOKEN = "bearer owner-token";
+
+    private static final String ADMIN_TOKEN = "bearer admin-token";
+
+    private HttpServer server;
+
+    private DefaultConnectionContext connectionContext;
+
+    private JobRegistry jobRegistry;
+
+    /**
+     * job guid 별 응답 목록 (마지막 응답은 계속 반복한다)
+     */
+    private final Map<String, Deque<String[]>> responses = new ConcurrentHashMap<>();
+
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            final String path = exchange.getRequestURI().getPath();
+            final String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            int status = 200;
+            final String body;
+            if ("/".equals(path)) {
+                body = "{\"links\":{\"self\":{\"href\":\"" + base + "\"},\"cloud_controller_v2\":{\"href\":\"" + base + "/v2\",\"meta\":{\"version\":\"2.100.0\"}},\"uaa\":{\"href\":\"" + base + "\"},\"login\":{\"href\":\"" + base + "\"}}}";
+            } else if ("/v2/info".equals(path)) {
+                body = "{\"api_version\":\"2.100.0\",\"authorization_endpoint\":\"" + base + "\",\"token_endpoint\":\"" + base + "\"}";
+            } else {
+                final String jobId = path.substring(path.lastIndexOf('/') + 1);
+                requests.add(jobId + " " + exchange.getRequestHeaders().getFirst("Authorization"));
+                final String[] response = next(jobId);
+                status = Integer.parseInt(response[0]);
+                body = status == 200
+                        ? "{\"metadata\":{\"guid\":\"" + jobId + "\"},\"entity\":{\"guid\":\"" + jobId + "\",\"status\":\"" + response[1] + "\"}}"
+                        : "{\"code\":10000,\"description\":\"" + response[1] + "\",\"error_code\":\"CF-" + response[1] + "\"}";
+            }
+            final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+
+        connectionContext = DefaultConnectionContext.builder().apiHost("127.0.0.1").port(server.getAddress().getPort()).secure(false).build();
+        AdminCredentialHolder adminCredentialHolder = mock(AdminCredentialHolder.class);
+        when(adminCredentialHolder.tokenProvider()).thenReturn(new TokenGrantTokenProvider(ADMIN_TOKEN));
+
+        jobRegistry = new JobRegistry();
+        ReflectionTestUtils.setField(jobRegistry, "connectionContext", connectionContext);
+        ReflectionTestUtils.setField(jobRegistry, "adminCredentialHolder", adminCredentialHolder);
+        ReflectionTestUtils.setField(jobRegistry, "minIntervalMillis", 10L);
+        ReflectionTestUtils.setField(jobRegistry, "maxIntervalMillis", 20L);
+        ReflectionTestUtils.setField(jobRegistry, "maxPollFailures", 2);
+    }
+
+    @After
+    public void tearDown() {
+        jobRegistry.shutdown();
+        connectionContext.dispose();
+        server.stop(0);
+    }
+
+    @Test
+    public void testTrackPollsUntilFinished() {
+        respond("job-1", "200 running", "200 running", "200 finished");
+
+        Map<String, Object> tracked = jobRegistry.track("job-1", entity("job-1", JobRegistry.QUEUED), "deleteOrg", "orgId", OWNER_TOKEN);
+        Assert.assertEquals(JobRegistry.QUEUED, tracked.get("status"));
+
+        await(() -> JobRegistry.FINISHED.equals(status("job-1", OWNER_TOKEN)));
+        Assert.assertEquals(3, requests.size());
+        // 추적 조회는 관리자 토큰을 사용한다.
+        Assert.assertEquals(Arrays.asList("job-1 " + ADMIN_TOKEN, "job-1 " + ADMIN_TOKEN, "job-1 " + ADMIN_TOKEN), requests);
+        Assert.assertEquals(0L, jobRegistry.stats().get("active"));
+    }
+
+    @Test
+    public void testTrackStopsOnNotFound() throws Exception {
+        respond("job-1", "404 NotFound");
+
+        jobRegistry.track("job-1", null, "deleteOrg", "orgId", OWNER_TOKEN);
+
+        await(() -> JobRegistry.NOT_FOUND.equals(status("job-1", OWNER_TOKEN)));
+        Thread.sleep(100);
+        Assert.assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void testTrackFailsAfterTransientErrorBudget() {
+        respond("job-1", "503 ServiceUnavailable");
+
+        jobRegistry.track("job-1", null, "deleteOrg", "orgId", OWNER_TOKEN);
+
+        await(() -> JobRegistry.FAILED.equals(status("job-1", OWNER_TOKEN)));
+        // 조회마다 fetch 가 일시적인 오류를 2번 더 시도하므로 maxPollFailures(2) x 3 번 요청한다.
+        Assert.assertEquals(6, requests.size());
+        Assert.assertEquals(2L, jobRegistry.stats().get("poll"));
+    }
+
+    @Test
+    public void testGetWithOtherTokenAsksCloudController() {
+        respond("job-1", "200 running");
+
+        jobRegistry.track("job-1", entity("job-1", JobRegistry.FINISHED), "deleteOrg", "orgId", OWNER_TOKEN);
+        Assert.assertEquals(JobRegistry.FINISHED, status("job-1", OWNER_TOKEN));
+        Assert.assertTrue(requests.isEmpty());
+
+        Assert.assertEquals(JobRegistry.RUNNING, status("job-1", "other-token"));
+        Assert.assertEquals(Collections.singletonList("job-1 bearer other-token"), requests);
+    }
+
+    @Test
+    public void testGetAllReportsMissingJobs() {
+        respond("job-1", "200 finished");
+        respond("job-2", "404 NotFound");
+
+        Map<String, Map<String, Object>> result = jobRegistry.getAll(Arrays.asList("job-1", "job-2", "job-1"), OWNER_TOKEN).block(Duration.ofSeconds(10));
+
+        Assert.assertEquals(Arrays.asList("job-1", "job-2"), new ArrayList<>(result.keySet()));
+        Assert.assertEquals(JobRegistry.FINISHED, result.get("job-1").get("status"));
+        Assert.assertEquals(JobRegistry.NOT_FOUND, result.get("job-2").get("status"));
+    }
+
+    @Test
+    public void testTrackRejectsWhenFull() {
+        ReflectionTestUtils.setField(jobRegistry, "maxJobs", 1);
+        JobEntity finished = entity("job-1", JobRegistry.FINISHED);
+
+        jobRegistry.track("job-1", finished, "deleteOrg", "orgId", OWNER_TOKEN);
+        Map<String, Object> rejected = jobRegistry.track("job-2", finished, "deleteOrg", "orgId", OWNER_TOKEN);
+
+        Assert.assertEquals(JobRegistry.FINISHED, rejected.get("status"));
+        Assert.assertEquals(1, jobRegistry.stats().get("tracked"));
+        Assert.assertEquals(1L, jobRegistry.stats().get("rejected"));
+    }
+
+    @Test
+    public void testFinishedJobExpiresAfterRetention() {
+        ReflectionTestUtils.setField(jobRegistry, "retentionMillis", 50L);
+
+        jobRegistry.track("job-1", entity("job-1", JobRegistry.FINISHED), "deleteOrg", "orgId", OWNER_TOKEN);
+
+        await(() -> Integer.valueOf(0).equals(jobRegistry.stats().get("tracked")));
+    }
+
+    private static JobEntity entity(String jobId, String status) {
+        return JobEntity.builder().id(jobId).status(status).build();
+    }
+
+    private void respond(String jobId, String... statuses) {
+        final Deque<String[]> queue = new ConcurrentLinkedDeque<>();
+        for (String status : statuses) {
+            queue.add(status.split(" "));
+        }
+        responses.put(jobId, queue);
+    }
+
+    private String[] next(String jobId) {
+        final Deque<String[]> queue = responses.get(jobId);
+        if (null == queue) return new String[]{"404", "NotFound"};
+        return queue.size() > 1 ? queue.poll() : queue.peek();
+    }
+
+    private String status(String jobId, String token) {
+        return (String) jobRegistry.get(jobId, token).block(Duration.ofSeconds(10)).get("status");
+    }
+
+    private static void await(BooleanSupplier condition) {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) Assert.fail("condition not met in time");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Assert.fail("interrupted");
+            }
+        }
+    }
+}
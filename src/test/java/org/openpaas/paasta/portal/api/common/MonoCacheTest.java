@@ -0,0 +1,133 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MonoCacheTest {
+
+    @Test
+    public void testGetCachesUntilTtlExpires() throws Exception {
+        MonoCache<Integer> cache = new MonoCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        Assert.assertEquals(Integer.valueOf(1), cache.get("key", 100, () -> Mono.fromCallable(loads::incrementAndGet)).block());
+        Assert.assertEquals(Integer.valueOf(1), cache.get("key", 100, () -> Mono.fromCallable(loads::incrementAndGet)).block());
+        Assert.assertEquals(1, loads.get());
+
+        Thread.sleep(150);
+
+        Assert.assertEquals(Integer.valueOf(2), cache.get("key", 100, () -> Mono.fromCallable(loads::incrementAndGet)).block());
+        Assert.assertEquals(2, loads.get());
+        Assert.assertEquals(1L, cache.getHitCount());
+        Assert.assertEquals(2L, cache.getMissCount());
+    }
+
+    @Test
+    public void testGetSharesInFlightLoadAcrossThreads() throws Exception {
+        MonoCache<String> cache = new MonoCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+        MonoProcessor<String> upstream = MonoProcessor.create();
+        int callers = 8;
+        CountDownLatch subscribed = new CountDownLatch(callers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> cache.get("key", 0, () -> {
+                    loads.incrementAndGet();
+                    return upstream;
+                }).doOnSubscribe(s -> subscribed.countDown()).block()));
+            }
+            Assert.assertTrue(subscribed.await(5, TimeUnit.SECONDS));
+            upstream.onNext("value");
+
+            for (Future<String> result : results) {
+                Assert.assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(callers - 1L, cache.stats().get("coalesced"));
+        // ttl 0 이면 완료 후 보관하지 않는다.
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testGetDoesNotCacheErrors() {
+        MonoCache<String> cache = new MonoCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        try {
+            cache.get("key", 60000, () -> Mono.<String>error(new IllegalStateException("fail")).doOnSubscribe(s -> loads.incrementAndGet())).block();
+            Assert.fail("error expected");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("fail", e.getMessage());
+        }
+        Assert.assertEquals(0, cache.size());
+
+        Assert.assertEquals("value", cache.get("key", 60000, () -> Mono.just("value").doOnSubscribe(s -> loads.incrementAndGet())).block());
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedEntry() {
+        MonoCache<String> cache = new MonoCache<>(2);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("a", 60000, () -> Mono.just("a")).block();
+        cache.get("b", 60000, () -> Mono.just("b")).block();
+        // a 를 다시 읽어 b 가 가장 오래 사용되지 않은 항목이 되게 한다.
+        cache.get("a", 60000, () -> Mono.just("a")).block();
+        cache.get("c", 60000, () -> Mono.just("c")).block();
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1L, cache.stats().get("eviction"));
+        Assert.assertEquals("a", cache.get("a", 60000, () -> Mono.fromCallable(() -> "a" + loads.incrementAndGet())).block());
+        Assert.assertEquals("b1", cache.get("b", 60000, () -> Mono.fromCallable(() -> "b" + loads.incrementAndGet())).block());
+    }
+
+    @Test
+    public void testLoadTimeoutReleasesKey() {
+        MonoCache<String> cache = new MonoCache<>(10, Duration.ofMillis(50));
+
+        try {
+            cache.get("key", 60000, Mono::never).block(Duration.ofSeconds(5));
+            Assert.fail("timeout expected");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(1L, cache.stats().get("timeout"));
+
+        Assert.assertEquals("value", cache.get("key", 60000, () -> Mono.just("value")).block());
+    }
+
+    @Test
+    public void testInvalidate() {
+        MonoCache<String> cache = new MonoCache<>(10);
+        cache.get("a", 60000, () -> Mono.just("a")).block();
+        cache.get("b", 60000, () -> Mono.just("b")).block();
+
+        cache.invalidate("a");
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals("a2", cache.get("a", 60000, () -> Mono.just("a2")).block());
+
+        cache.invalidateAll();
+        Assert.assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,162 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class OrgRoleCacheTest {
+
+    private OrgRoleCache orgRoleCache;
+
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp() {
+        orgRoleCache = new OrgRoleCache();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void testHasRoleUsesCachedIndex() {
+        Function<String, Map<String, Integer>> loader = loader("user-1", OrgRoleCache.ORG_USER | OrgRoleCache.ORG_MANAGER);
+
+        Assert.assertTrue(orgRoleCache.hasRole("org-1", "user-1", OrgRoleCache.roleBit("OrgManager"), loader));
+        Assert.assertFalse(orgRoleCache.hasRole("org-1", "user-1", OrgRoleCache.roleBit("BillingManager"), loader));
+        Assert.assertFalse(orgRoleCache.hasRole("org-1", "user-2", OrgRoleCache.roleBit("ORGMANAGER"), loader));
+
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(2L, orgRoleCache.getHitCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHasRoleRejectsUnknownRole() {
+        orgRoleCache.hasRole("org-1", "user-1", OrgRoleCache.roleBit("SpaceDeveloper"), loader("user-1", OrgRoleCache.ORG_USER));
+    }
+
+    @Test
+    public void testGetRoleIndexReloadsAfterTtl() throws Exception {
+        ReflectionTestUtils.setField(orgRoleCache, "ttlMillis", 50L);
+        Function<String, Map<String, Integer>> loader = loader("user-1", OrgRoleCache.ORG_USER);
+
+        orgRoleCache.getRoleIndex("org-1", loader);
+        orgRoleCache.getRoleIndex("org-1", loader);
+        Thread.sleep(100);
+        orgRoleCache.getRoleIndex("org-1", loader);
+
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testGetRoleIndexLoadsOncePerOrgUnderConcurrency() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, Map<String, Integer>> loader = orgId -> {
+            loads.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return roles("user-1", OrgRoleCache.ORG_USER);
+        };
+        int callers = 6;
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Map<String, Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> orgRoleCache.getRoleIndex("org-1", loader)));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((long) orgRoleCache.stats().get("coalesced") < callers - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<Map<String, Integer>> result : results) {
+                Assert.assertEquals(Integer.valueOf(OrgRoleCache.ORG_USER), result.get(5, TimeUnit.SECONDS).get("user-1"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(0, orgRoleCache.stats().get("loading"));
+    }
+
+    @Test
+    public void testGetRoleIndexDoesNotCacheFailure() {
+        try {
+            orgRoleCache.getRoleIndex("org-1", orgId -> {
+                throw new IllegalStateException("fail");
+            });
+            Assert.fail("exception expected");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("fail", e.getMessage());
+        }
+
+        Assert.assertEquals(0, orgRoleCache.size());
+        orgRoleCache.getRoleIndex("org-1", loader("user-1", OrgRoleCache.ORG_USER));
+        Assert.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testInvalidateDuringLoadDiscardsResult() {
+        orgRoleCache.getRoleIndex("org-1", orgId -> {
+            // 역할 변경이 색인을 만드는 중에 일어난 경우
+            orgRoleCache.invalidate(orgId);
+            return roles("user-1", OrgRoleCache.ORG_USER);
+        });
+
+        Assert.assertEquals(0, orgRoleCache.size());
+    }
+
+    @Test
+    public void testInvalidateUserRemovesOnlyOrgsOfUser() {
+        orgRoleCache.getRoleIndex("org-1", loader("user-1", OrgRoleCache.ORG_USER));
+        orgRoleCache.getRoleIndex("org-2", loader("user-1", OrgRoleCache.ORG_AUDITOR));
+        orgRoleCache.getRoleIndex("org-3", loader("user-2", OrgRoleCache.ORG_USER));
+
+        orgRoleCache.invalidateUser("user-1");
+
+        Assert.assertEquals(1, orgRoleCache.size());
+        Assert.assertEquals(1, orgRoleCache.stats().get("users"));
+        orgRoleCache.getRoleIndex("org-3", loader("user-2", OrgRoleCache.ORG_USER));
+        Assert.assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testInvalidateUnindexesUsers() {
+        orgRoleCache.getRoleIndex("org-1", loader("user-1", OrgRoleCache.ORG_USER));
+        Assert.assertEquals(1, orgRoleCache.stats().get("users"));
+
+        orgRoleCache.invalidate("org-1");
+
+        Assert.assertEquals(0, orgRoleCache.size());
+        Assert.assertEquals(0, orgRoleCache.stats().get("users"));
+    }
+
+    private Function<String, Map<String, Integer>> loader(String userId, int roleBits) {
+        return orgId -> {
+            loads.incrementAndGet();
+            return roles(userId, roleBits);
+        };
+    }
+
+    private static Map<String, Integer> roles(String userId, int roleBits) {
+        Map<String, Integer> roles = new HashMap<>();
+        roles.put(userId, roleBits);
+        return roles;
+    }
+}
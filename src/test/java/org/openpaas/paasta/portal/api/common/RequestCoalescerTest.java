@@ -0,0 +1,106 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestCoalescerTest {
+
+    private RequestCoalescer coalescer;
+
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp() {
+        coalescer = new RequestCoalescer();
+        coalescer.init();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void testCoalesceSharesInFlightRequest() {
+        MonoProcessor<String> upstream = MonoProcessor.create();
+        Mono<String> first = coalescer.coalesce("orgSummary", "scope", "orgId", () -> load(upstream));
+        Mono<String> second = coalescer.coalesce("orgSummary", "scope", "orgId", () -> load(upstream));
+
+        MonoProcessor<String> firstResult = first.toProcessor();
+        MonoProcessor<String> secondResult = second.toProcessor();
+        upstream.onNext("summary");
+
+        Assert.assertEquals("summary", firstResult.block());
+        Assert.assertEquals("summary", secondResult.block());
+        Assert.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testCoalesceDoesNotKeepCompletedResult() {
+        Assert.assertEquals("first", coalescer.coalesce("orgSummary", "scope", "orgId", () -> load(Mono.just("first"))).block());
+        Assert.assertEquals("second", coalescer.coalesce("orgSummary", "scope", "orgId", () -> load(Mono.just("second"))).block());
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testCoalesceSeparatesScopesAndOperations() {
+        MonoProcessor<String> upstream = MonoProcessor.create();
+        coalescer.coalesce("orgSummary", "scopeA", "orgId", () -> load(upstream)).toProcessor();
+        coalescer.coalesce("orgSummary", "scopeB", "orgId", () -> load(upstream)).toProcessor();
+        coalescer.coalesce("orgQuota", "scopeA", "orgId", () -> load(upstream)).toProcessor();
+        upstream.onNext("value");
+
+        Assert.assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testCoalesceSkipsUnknownScope() {
+        MonoProcessor<String> upstream = MonoProcessor.create();
+        coalescer.coalesce("orgSummary", null, "orgId", () -> load(upstream)).toProcessor();
+        coalescer.coalesce("orgSummary", null, "orgId", () -> load(upstream)).toProcessor();
+        upstream.onNext("value");
+
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testCoalesceDisabled() {
+        ReflectionTestUtils.setField(coalescer, "enabled", false);
+        MonoProcessor<String> upstream = MonoProcessor.create();
+        coalescer.coalesce("orgSummary", "scope", "orgId", () -> load(upstream)).toProcessor();
+        coalescer.coalesce("orgSummary", "scope", "orgId", () -> load(upstream)).toProcessor();
+        upstream.onNext("value");
+
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testCoalesceTimeoutReleasesKey() {
+        ReflectionTestUtils.setField(coalescer, "timeoutMillis", 50L);
+        coalescer.init();
+
+        try {
+            coalescer.coalesce("orgSummary", "scope", "orgId", () -> load(Mono.<String>never())).block();
+            Assert.fail("timeout expected");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        Assert.assertEquals("value", coalescer.coalesce("orgSummary", "scope", "orgId", () -> load(Mono.just("value"))).block());
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testScopeOfIgnoresBearerPrefix() {
+        Assert.assertEquals(RequestCoalescer.scopeOf("token"), RequestCoalescer.scopeOf("bearer token"));
+        Assert.assertNotEquals(RequestCoalescer.scopeOf("token"), RequestCoalescer.scopeOf("other"));
+        Assert.assertNull(RequestCoalescer.scopeOf((String) null));
+    }
+
+    private Mono<String> load(Mono<String> upstream) {
+        loads.incrementAndGet();
+        return upstream;
+    }
+}
@@ -0,0 +1,218 @@
+package org.openpaas.paasta.portal.api.common;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class SampleArtifactCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+
+    private final Deque<Response> responses = new ConcurrentLinkedDeque<>();
+
+    private final List<Headers> requests = Collections.synchronizedList(new ArrayList<>());
+
+    private SampleArtifactCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.add(exchange.getRequestHeaders());
+            final Response response = responses.poll();
+            if (null == response) {
+                exchange.sendResponseHeaders(500, -1);
+            } else {
+                exchange.getResponseHeaders().putAll(response.headers);
+                if (null == response.body) {
+                    exchange.sendResponseHeaders(response.status, -1);
+                } else {
+                    exchange.sendResponseHeaders(response.status, response.body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(response.body);
+                    }
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+
+        cache = new SampleArtifactCache();
+        ReflectionTestUtils.setField(cache, "dir", folder.getRoot().getAbsolutePath());
+        cache.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop(0);
+    }
+
+    @Test
+    public void testOpenStoresFullyReadArtifact() throws Exception {
+        enqueue(200, "sample", "ETag", "\"v1\"");
+
+        Assert.assertEquals("sample", read("/sample.zip", false));
+        Assert.assertEquals("sample", read("/sample.zip", true));
+
+        Assert.assertEquals(1, requests.size());
+        Assert.assertEquals(1L, cache.stats().get("miss"));
+        Assert.assertEquals(1L, cache.stats().get("hit"));
+    }
+
+    @Test
+    public void testOpenDoesNotStorePartiallyReadArtifact() throws Exception {
+        enqueue(200, "sample");
+        enqueue(200, "sample");
+
+        try (SampleArtifactCache.Artifact artifact = cache.open(url("/sample.zip"))) {
+            Assert.assertEquals('s', artifact.getInputStream().read());
+        }
+        Assert.assertEquals("sample", read("/sample.zip", false));
+
+        Assert.assertEquals(2, requests.size());
+        Assert.assertTrue(artifacts().size() == 1 && partFiles().isEmpty());
+    }
+
+    @Test
+    public void testOpenRevalidatesExpiredArtifactWithNotModified() throws Exception {
+        ReflectionTestUtils.setField(cache, "ttlMillis", 0L);
+        enqueue(200, "sample", "ETag", "\"v1\"", "Last-Modified", "Mon, 01 Jan 2018 00:00:00 GMT");
+        enqueue(304, null);
+
+        Assert.assertEquals("sample", read("/sample.zip", false));
+        Assert.assertEquals("sample", read("/sample.zip", true));
+
+        Headers revalidation = requests.get(1);
+        Assert.assertEquals("\"v1\"", revalidation.getFirst("If-None-Match"));
+        Assert.assertEquals("Mon, 01 Jan 2018 00:00:00 GMT", revalidation.getFirst("If-Modified-Since"));
+        Assert.assertEquals(1L, cache.stats().get("revalidated"));
+    }
+
+    @Test
+    public void testOpenServesCachedArtifactOnServerError() throws Exception {
+        ReflectionTestUtils.setField(cache, "ttlMillis", 0L);
+        enqueue(200, "sample", "ETag", "\"v1\"");
+        enqueue(503, "unavailable");
+        enqueue(404, "not found");
+
+        Assert.assertEquals("sample", read("/sample.zip", false));
+        Assert.assertEquals("sample", read("/sample.zip", true));
+        Assert.assertEquals("sample", read("/sample.zip", true));
+
+        Assert.assertEquals(3, requests.size());
+        Assert.assertEquals(2L, cache.stats().get("hit"));
+        Assert.assertEquals(0L, cache.stats().get("revalidated"));
+    }
+
+    @Test
+    public void testOpenReplacesChangedArtifact() throws Exception {
+        ReflectionTestUtils.setField(cache, "ttlMillis", 0L);
+        enqueue(200, "sample", "ETag", "\"v1\"");
+        enqueue(200, "changed", "ETag", "\"v2\"");
+        enqueue(304, null);
+
+        Assert.assertEquals("sample", read("/sample.zip", false));
+        Assert.assertEquals("changed", read("/sample.zip", false));
+        Assert.assertEquals("changed", read("/sample.zip", true));
+
+        Assert.assertEquals("\"v1\"", requests.get(1).getFirst("If-None-Match"));
+        Assert.assertEquals("\"v2\"", requests.get(2).getFirst("If-None-Match"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenFailsWithoutCachedArtifact() throws Exception {
+        enqueue(500, "error");
+
+        cache.open(url("/sample.zip"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedArtifact() throws Exception {
+        ReflectionTestUtils.setField(cache, "maxSizeBytes", 10L);
+        enqueue(200, "first-");
+        enqueue(200, "second");
+        enqueue(200, "first-");
+
+        Assert.assertEquals("first-", read("/first.zip", false));
+        Files.setLastModifiedTime(artifacts().get(0), FileTime.fromMillis(System.currentTimeMillis() - 60000));
+        Assert.assertEquals("second", read("/second.zip", false));
+
+        Assert.assertEquals(1, artifacts().size());
+        Assert.assertEquals(1L, cache.stats().get("eviction"));
+        Assert.assertEquals("second", read("/second.zip", true));
+        Assert.assertEquals("first-", read("/first.zip", false));
+    }
+
+    private String read(String path, boolean expectCached) throws IOException {
+        try (SampleArtifactCache.Artifact artifact = cache.open(url(path))) {
+            Assert.assertEquals(expectCached, artifact.isCached());
+            return new String(StreamUtils.copyToByteArray(artifact.getInputStream()), StandardCharsets.UTF_8);
+        }
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    /**
+     * 응답을 순서대로 등록한다. headers 는 이름, 값 순서로 지정한다.
+     */
+    private void enqueue(int status, String body, String... headers) {
+        final Headers responseHeaders = new Headers();
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            responseHeaders.add(headers[i], headers[i + 1]);
+        }
+        responses.add(new Response(status, responseHeaders, null == body ? null : body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private List<Path> artifacts() throws IOException {
+        return list(".bin");
+    }
+
+    private List<Path> partFiles() throws IOException {
+        return list(".part");
+    }
+
+    private List<Path> list(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            return files.filter(path -> path.getFileName().toString().endsWith(suffix)).collect(Collectors.toList());
+        }
+    }
+
+    private static final class Response {
+        private final int status;
+        private final Headers headers;
+        private final byte[] body;
+
+        private Response(int status, Headers headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.openpaas.paasta.portal.api.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StripedLockTest {
+
+    @Test
+    public void testExecuteSerializesSameKey() throws Exception {
+        StripedLock stripedLock = new StripedLock(16);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        int threads = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 20; j++) {
+                        stripedLock.execute("orgId", () -> {
+                            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                            Thread.yield();
+                            running.decrementAndGet();
+                        });
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, maxRunning.get());
+        Assert.assertEquals(threads * 20L, stripedLock.getAcquireCount());
+        Assert.assertEquals(0, stripedLock.getWaitingCount());
+    }
+
+    @Test
+    public void testExecuteRunsDifferentStripesInParallel() throws Exception {
+        // "a" 와 "b" 는 hash 가 1 차이이므로 서로 다른 stripe 를 사용한다.
+        StripedLock stripedLock = new StripedLock(1024);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> holder = executor.submit(() -> stripedLock.execute("a", () -> {
+                holding.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            Assert.assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+            Assert.assertEquals("b", stripedLock.execute("b", () -> "b"));
+            Assert.assertEquals(0L, stripedLock.getContendedCount());
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExecuteCountsContention() throws Exception {
+        StripedLock stripedLock = new StripedLock(1);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> holder = executor.submit(() -> stripedLock.execute("a", () -> {
+                holding.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            Assert.assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+            Future<String> waiter = executor.submit(() -> stripedLock.execute("b", () -> "b"));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (stripedLock.getWaitingCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            Assert.assertEquals(1, stripedLock.getWaitingCount());
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals("b", waiter.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(2L, stripedLock.getAcquireCount());
+        Assert.assertEquals(1L, stripedLock.getContendedCount());
+        Assert.assertEquals(0, stripedLock.getWaitingCount());
+    }
+
+    @Test
+    public void testExecuteReleasesLockOnException() {
+        StripedLock stripedLock = new StripedLock(1);
+        try {
+            stripedLock.execute("orgId", () -> {
+                throw new IllegalStateException("fail");
+            });
+            Assert.fail("exception expected");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("fail", e.getMessage());
+        }
+        Assert.assertEquals("ok", stripedLock.execute("orgId", () -> "ok"));
+        Assert.assertEquals(0L, stripedLock.getContendedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveStripes() {
+        new StripedLock(0);
+    }
+}
@@ -0,0 +1,182 @@
+package org.openpaas.paasta.portal.api.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cloudfoundry.reactor.DefaultConnectionContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * TokenIdentityCache 서명 직접 검증(localVerify) 테스트. 생성한 RSA 키를 서명 키로 넣어 두고 사용한다.
+ */
+public class TokenIdentityCacheTest {
+
+    private static final String UAA_URL = "https://uaa.example.com/";
+
+    private static final String ISSUER = "https://uaa.example.com/oauth/token";
+
+    private static final String KEY_ID = "key-1";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static KeyPair keyPair;
+
+    private DefaultConnectionContext connectionContext;
+
+    private AdminCredentialHolder adminCredentialHolder;
+
+    private TokenIdentityCache tokenIdentityCache;
+
+    @BeforeClass
+    public static void generateKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        // 원격 검증은 닫힌 포트로 보내 바로 실패하게 한다.
+        final int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        connectionContext = DefaultConnectionContext.builder().apiHost("127.0.0.1").port(closedPort).secure(false).build();
+        adminCredentialHolder = mock(AdminCredentialHolder.class);
+
+        tokenIdentityCache = new TokenIdentityCache();
+        ReflectionTestUtils.setField(tokenIdentityCache, "localVerify", true);
+        ReflectionTestUtils.setField(tokenIdentityCache, "uaaUrl", UAA_URL);
+        ReflectionTestUtils.setField(tokenIdentityCache, "connectionContext", connectionContext);
+        ReflectionTestUtils.setField(tokenIdentityCache, "adminCredentialHolder", adminCredentialHolder);
+        ReflectionTestUtils.setField(tokenIdentityCache, "signingKeys", Collections.<String, PublicKey>singletonMap(KEY_ID, keyPair.getPublic()));
+        ReflectionTestUtils.setField(tokenIdentityCache, "keysLoadedAt", System.currentTimeMillis());
+        tokenIdentityCache.init();
+    }
+
+    @After
+    public void tearDown() {
+        connectionContext.dispose();
+    }
+
+    @Test
+    public void testValidTokenIsAccepted() throws Exception {
+        Assert.assertEquals("user1", username("bearer " + token(KEY_ID, claims())));
+        Assert.assertEquals(1L, tokenIdentityCache.stats().get("localVerified"));
+        Assert.assertEquals(0L, tokenIdentityCache.stats().get("remoteVerified"));
+    }
+
+    @Test
+    public void testTamperedPayloadIsRejected() throws Exception {
+        final String[] parts = token(KEY_ID, claims()).split("\\.");
+        final Map<String, Object> claims = claims();
+        claims.put("user_name", "admin");
+
+        assertRejected(parts[0] + "." + encode(claims) + "." + parts[2], "Invalid token signature");
+    }
+
+    @Test
+    public void testExpiredTokenIsRejected() throws Exception {
+        final Map<String, Object> claims = claims();
+        claims.put("exp", System.currentTimeMillis() / 1000 - 60);
+
+        assertRejected(token(KEY_ID, claims), "Token expired");
+    }
+
+    @Test
+    public void testWrongIssuerIsRejected() throws Exception {
+        final Map<String, Object> claims = claims();
+        claims.put("iss", "https://other-uaa.example.com/oauth/token");
+
+        assertRejected(token(KEY_ID, claims), "Invalid token issuer");
+    }
+
+    @Test
+    public void testWrongAudienceIsRejected() throws Exception {
+        final Map<String, Object> claims = claims();
+        claims.put("aud", Arrays.asList("openid", "uaa"));
+
+        assertRejected(token(KEY_ID, claims), "Invalid token audience");
+    }
+
+    @Test
+    public void testUnknownKeyIsRejectedWithoutReload() throws Exception {
+        assertRejected(token("key-2", claims()), "Unknown token key : key-2");
+        // KEY_RELOAD_INTERVAL 안에서는 token_keys 를 다시 읽지 않는다.
+        verify(adminCredentialHolder, never()).tokenProvider();
+    }
+
+    @Test
+    public void testNonRs256TokenFallsBackToRemoteVerification() throws Exception {
+        final Map<String, Object> header = new LinkedHashMap<>();
+        header.put("alg", "HS256");
+        final String jwt = encode(header) + "." + encode(claims()) + ".c2lnbmF0dXJl";
+
+        try {
+            username(jwt);
+            Assert.fail("remote verification should fail against a closed port");
+        } catch (RuntimeException e) {
+            // 원격 검증 결과와 무관하게 로컬 검증을 하지 않았는지만 확인한다.
+        }
+        Assert.assertEquals(0L, tokenIdentityCache.stats().get("localVerified"));
+        Assert.assertEquals(1L, tokenIdentityCache.stats().get("remoteVerified"));
+    }
+
+    private String username(String token) {
+        return tokenIdentityCache.getUsername(token).block(Duration.ofSeconds(10));
+    }
+
+    private void assertRejected(String token, String message) {
+        try {
+            username(token);
+            Assert.fail("token should be rejected : " + message);
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> claims() {
+        final Map<String, Object> claims = new HashMap<>();
+        claims.put("user_name", "user1");
+        claims.put("iss", ISSUER);
+        claims.put("aud", Arrays.asList("cloud_controller", "openid"));
+        claims.put("exp", System.currentTimeMillis() / 1000 + 600);
+        return claims;
+    }
+
+    private static String token(String keyId, Map<String, Object> claims) throws Exception {
+        final Map<String, Object> header = new LinkedHashMap<>();
+        header.put("alg", "RS256");
+        header.put("kid", keyId);
+        final String signingInput = encode(header) + "." + encode(claims);
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature.sign());
+    }
+
+    private static String encode(Map<String, Object> json) throws Exception {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(OBJECT_MAPPER.writeValueAsBytes(json));
+    }
+}
@@ -0,0 +1,270 @@
+package org.openpaas.paasta.portal.api.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.cloudfoundry.client.lib.CloudFoundryException;
+import org.cloudfoundry.reactor.DefaultConnectionContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openpaas.paasta.portal.api.common.ApplicationBitsUploader;
+import org.openpaas.paasta.portal.api.common.Constants;
+import org.openpaas.paasta.portal.api.common.SampleArtifactCache;
+import org.openpaas.paasta.portal.api.model.Catalog;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * CatalogDeploymentService 배포/롤백 동작 테스트. 로컬 HttpServer 를 CC 와 샘플 파일 서버로 사용한다.
+ */
+public class CatalogDeploymentServiceTest {
+
+    private static final String TOKEN = "bearer user-token";
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    private DefaultConnectionContext connectionContext;
+
+    private CloseableHttpClient httpClient;
+
+    private CatalogDeploymentService catalogDeploymentService;
+
+    /**
+     * "METHOD path" 별 응답 목록 (마지막 응답은 계속 반복한다)
+     */
+    private final Map<String, Deque<String[]>> responses = new ConcurrentHashMap<>();
+
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * 앱 생성 요청을 붙잡아 둘 때 사용한다.
+     */
+    private volatile CountDownLatch createApplicationGate = new CountDownLatch(0);
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                StreamUtils.drain(in);
+            }
+            final String path = exchange.getRequestURI().getPath();
+            final String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            final String request = exchange.getRequestMethod() + " " + path;
+            final String[] response;
+            if ("/".equals(path)) {
+                response = new String[]{"200", "{\"links\":{\"self\":{\"href\":\"" + base + "\"},\"cloud_controller_v2\":{\"href\":\"" + base + "/v2\",\"meta\":{\"version\":\"2.100.0\"}},\"uaa\":{\"href\":\"" + base + "\"},\"login\":{\"href\":\"" + base + "\"}}}"};
+            } else if ("/v2/info".equals(path)) {
+                response = new String[]{"200", "{\"api_version\":\"2.100.0\",\"authorization_endpoint\":\"" + base + "\",\"token_endpoint\":\"" + base + "\"}"};
+            } else {
+                requests.add(request);
+                if ("POST /v2/apps".equals(request)) {
+                    try {
+                        createApplicationGate.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                response = next(request);
+            }
+            final int status = Integer.parseInt(response[0]);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if (response.length < 2) {
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                final byte[] bytes = response[1].getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+            exchange.close();
+        });
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+
+        respond("POST /v2/apps", created("app-1"));
+        respond("POST /v2/routes", created("route-1"));
+        respond("POST /v2/route_mappings", created("mapping-1"));
+        respond("POST /v2/service_instances", created("instance-1"));
+        respond("PUT /v2/apps/app-1/bits", created("app-1"));
+        respond("PUT /v2/apps/app-1", created("app-1"));
+        respond("GET /sample.zip", new String[]{"200", "sample"});
+        respond("DELETE /v2/service_instances/instance-1", new String[]{"204"});
+        respond("DELETE /v2/routes/route-1", new String[]{"204"});
+        respond("DELETE /v2/apps/app-1", new String[]{"204"});
+
+        connectionContext = DefaultConnectionContext.builder().apiHost("127.0.0.1").port(server.getAddress().getPort()).secure(false).build();
+        httpClient = HttpClients.createDefault();
+        ApplicationBitsUploader applicationBitsUploader = new ApplicationBitsUploader(httpClient);
+        ReflectionTestUtils.setField(applicationBitsUploader, "apiTarget", "http://127.0.0.1:" + server.getAddress().getPort());
+
+        catalogDeploymentService = new CatalogDeploymentService(mock(CommonService.class), new SampleArtifactCache(), applicationBitsUploader);
+        ReflectionTestUtils.setField(catalogDeploymentService, "connectionContext", connectionContext);
+        ReflectionTestUtils.setField(catalogDeploymentService, "startBackoffMillis", 10L);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        createApplicationGate.countDown();
+        httpClient.close();
+        connectionContext.dispose();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCreateApplicationFailureRollsBackRoute() {
+        respond("POST /v2/apps", error(400, 100001, "InvalidApp"));
+
+        Map<String, Object> result = deploy(false);
+
+        Assert.assertEquals(Constants.RESULT_STATUS_FAIL, result.get("RESULT"));
+        Assert.assertTrue(requests.contains("DELETE /v2/routes/route-1"));
+        Assert.assertFalse(requests.contains("POST /v2/route_mappings"));
+        Assert.assertFalse(requests.contains("PUT /v2/apps/app-1/bits"));
+        Assert.assertFalse(requests.contains("DELETE /v2/apps/app-1"));
+    }
+
+    @Test
+    public void testRouteMappingFailureRollsBackEverything() {
+        respond("POST /v2/route_mappings", error(400, 210002, "RouteMappingTaken"));
+
+        Map<String, Object> result = deploy(true);
+
+        Assert.assertEquals(Constants.RESULT_STATUS_FAIL, result.get("RESULT"));
+        // 서비스 인스턴스, 라우트, 앱 순서로 지운다.
+        Assert.assertEquals(Arrays.asList("DELETE /v2/service_instances/instance-1", "DELETE /v2/routes/route-1", "DELETE /v2/apps/app-1"), deletes());
+        Assert.assertFalse(requests.contains("PUT /v2/apps/app-1"));
+    }
+
+    @Test
+    public void testStartRetriesWhilePackageNotReady() {
+        respond("PUT /v2/apps/app-1", error(400, 150001, "AppPackageInvalid"), error(400, 170002, "NotStaged"), created("app-1"));
+
+        Map<String, Object> result = deploy(false);
+
+        Assert.assertEquals(Constants.RESULT_STATUS_SUCCESS, result.get("RESULT"));
+        Assert.assertEquals(3, requests.stream().filter("PUT /v2/apps/app-1"::equals).count());
+        Assert.assertTrue(deletes().isEmpty());
+    }
+
+    @Test
+    public void testTrimKeepsRunningDeployments() {
+        ReflectionTestUtils.setField(catalogDeploymentService, "retention", 1);
+        createApplicationGate = new CountDownLatch(1);
+
+        CatalogDeploymentService.Deployment first = catalogDeploymentService.deploy(catalog(), TOKEN, TOKEN, false);
+        CatalogDeploymentService.Deployment second = catalogDeploymentService.deploy(catalog(), TOKEN, TOKEN, false);
+        // 둘 다 진행 중이므로 retention 을 넘어도 지우지 않는다.
+        Assert.assertSame(first, catalogDeploymentService.getDeployment(first.getId(), TOKEN));
+        Assert.assertSame(second, catalogDeploymentService.getDeployment(second.getId(), TOKEN));
+
+        createApplicationGate.countDown();
+        first.result().block(Duration.ofSeconds(20));
+        second.result().block(Duration.ofSeconds(20));
+
+        CatalogDeploymentService.Deployment third = catalogDeploymentService.deploy(catalog(), TOKEN, TOKEN, false);
+        // 끝난 배포는 오래된 것부터 지운다.
+        assertNotFound(first.getId(), TOKEN);
+        assertNotFound(second.getId(), TOKEN);
+        Assert.assertSame(third, catalogDeploymentService.getDeployment(third.getId(), TOKEN));
+        third.result().block(Duration.ofSeconds(20));
+    }
+
+    @Test
+    public void testGetDeploymentWithOtherToken() {
+        CatalogDeploymentService.Deployment deployment = catalogDeploymentService.deploy(catalog(), TOKEN, TOKEN, false);
+        deployment.result().block(Duration.ofSeconds(20));
+
+        Assert.assertSame(deployment, catalogDeploymentService.getDeployment(deployment.getId(), TOKEN));
+        assertNotFound(deployment.getId(), "bearer other-token");
+        assertNotFound(deployment.getId(), null);
+    }
+
+    private Map<String, Object> deploy(boolean template) {
+        Catalog param = catalog();
+        if (template) {
+            Catalog serviceplan = new Catalog();
+            serviceplan.setName("mysql");
+            serviceplan.setServicePlan("plan-1");
+            param.setServicePlanList(Collections.singletonList(serviceplan));
+        }
+        return catalogDeploymentService.deploy(param, TOKEN, TOKEN, template).result().block(Duration.ofSeconds(20));
+    }
+
+    private Catalog catalog() {
+        Catalog param = new Catalog();
+        param.setAppName("sample");
+        param.setBuildPackName("java_buildpack");
+        param.setMemorySize(512);
+        param.setDiskSize(1024);
+        param.setSpaceId("space-1");
+        param.setHostName("sample");
+        param.setDomainId("domain-1");
+        param.setAppSampleStartYn(Constants.USE_YN_Y);
+        param.setAppSampleFileName("sample.zip");
+        param.setAppSampleFilePath("http://127.0.0.1:" + server.getAddress().getPort() + "/sample.zip");
+        return param;
+    }
+
+    private void assertNotFound(String deploymentId, String token) {
+        try {
+            catalogDeploymentService.getDeployment(deploymentId, token);
+            Assert.fail("deployment should not be found");
+        } catch (CloudFoundryException e) {
+            Assert.assertEquals(HttpStatus.NOT_FOUND, e.getStatusCode());
+        }
+    }
+
+    private List<String> deletes() {
+        synchronized (requests) {
+            return requests.stream().filter(request -> request.startsWith("DELETE ")).collect(Collectors.toList());
+        }
+    }
+
+    private static String[] created(String guid) {
+        return new String[]{"201", "{\"metadata\":{\"guid\":\"" + guid + "\"},\"entity\":{}}"};
+    }
+
+    private static String[] error(int status, int code, String errorCode) {
+        return new String[]{String.valueOf(status), "{\"code\":" + code + ",\"description\":\"" + errorCode + "\",\"error_code\":\"CF-" + errorCode + "\"}"};
+    }
+
+    private void respond(String request, String[]... statuses) {
+        responses.put(request, new ConcurrentLinkedDeque<>(Arrays.asList(statuses)));
+    }
+
+    private String[] next(String request) {
+        final Deque<String[]> queue = responses.get(request);
+        if (null == queue) return error(404, 10000, "NotFound");
+        return queue.size() > 1 ? queue.poll() : queue.peek();
+    }
+}
@@ -71,23 +71,6 @@ public class CatalogServiceTest {
         Assert.assertEquals(thenReturn, result);
     }
 
-    @Test
-    public void testCreateApp() throws Exception {
-        when(catalogService.createApp(any(), anyString(), anyString(), any())).thenReturn(thenReturn);
-
-        Map<String, Object> result = catalogService.createApp(new Catalog(), "token", "token2", null);
-        Assert.assertEquals(thenReturn, result);
-    }
-
-    @Test
-    public void testCreateAppTemplate() throws Exception {
-
-        when(catalogService.createAppTemplate(any(), anyString(), anyString(), any())).thenReturn(thenReturn);
-
-        Map<String, Object> result = catalogService.createAppTemplate(new Catalog(), "token", "token2", null);
-        Assert.assertEquals(thenReturn, result);
-    }
-
     @Test
     public void testProcCatalogCreateServiceInstanceV2() throws Exception {
         when(catalogService.procCatalogCreateServiceInstanceV2(any(), anyObject())).thenReturn(thenReturn);
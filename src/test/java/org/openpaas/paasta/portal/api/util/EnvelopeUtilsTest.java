@@ -0,0 +1,99 @@
+package org.openpaas.paasta.portal.api.util;
+
+import org.cloudfoundry.doppler.Envelope;
+import org.cloudfoundry.doppler.EventType;
+import org.cloudfoundry.doppler.LogMessage;
+import org.cloudfoundry.doppler.MessageType;
+import org.junit.Assert;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+public class EnvelopeUtilsTest {
+
+    @Test
+    public void testFilterWithoutConditionAcceptsAll() {
+        Predicate<Envelope> filter = EnvelopeUtils.filter(null, " ", "");
+
+        Assert.assertTrue(filter.test(log(1L, "APP/PROC/WEB", "0", MessageType.OUT)));
+        Assert.assertTrue(filter.test(Envelope.builder().eventType(EventType.HTTP_START_STOP).origin("origin").build()));
+    }
+
+    @Test
+    public void testFilterMatchesSourceTypePrefix() {
+        Predicate<Envelope> filter = EnvelopeUtils.filter("app", null, null);
+
+        Assert.assertTrue(filter.test(log(1L, "APP/PROC/WEB", "0", MessageType.OUT)));
+        Assert.assertFalse(filter.test(log(1L, "RTR", "0", MessageType.OUT)));
+        Assert.assertFalse(filter.test(Envelope.builder().eventType(EventType.HTTP_START_STOP).origin("origin").build()));
+    }
+
+    @Test
+    public void testFilterMatchesInstanceAndMessageType() {
+        Predicate<Envelope> filter = EnvelopeUtils.filter("APP", "1", "err");
+
+        Assert.assertTrue(filter.test(log(1L, "APP/PROC/WEB", "1", MessageType.ERR)));
+        Assert.assertFalse(filter.test(log(1L, "APP/PROC/WEB", "0", MessageType.ERR)));
+        Assert.assertFalse(filter.test(log(1L, "APP/PROC/WEB", "1", MessageType.OUT)));
+    }
+
+    @Test
+    public void testSortByTimestampWithinBuffer() {
+        Flux<Envelope> envelopes = Flux.just(log(3L), log(1L), log(4L), log(2L), log(5L));
+
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), timestamps(EnvelopeUtils.sortByTimestamp(envelopes, 10)));
+    }
+
+    @Test
+    public void testSortByTimestampEmitsOldestWhenBufferIsFull() {
+        // 버퍼가 2 이므로 3 번째 envelope 부터 가장 오래된 것을 먼저 내보낸다.
+        Flux<Envelope> envelopes = Flux.just(log(5L), log(4L), log(3L), log(2L), log(1L));
+
+        Assert.assertEquals(Arrays.asList(3L, 2L, 1L, 4L, 5L), timestamps(EnvelopeUtils.sortByTimestamp(envelopes, 2)));
+    }
+
+    @Test
+    public void testSortByTimestampIsRepeatable() {
+        Flux<Envelope> sorted = EnvelopeUtils.sortByTimestamp(Flux.just(log(2L), log(1L)), 10);
+
+        Assert.assertEquals(Arrays.asList(1L, 2L), timestamps(sorted));
+        Assert.assertEquals(Arrays.asList(1L, 2L), timestamps(sorted));
+    }
+
+    @Test
+    public void testTimestampOfFallsBackToLogMessage() {
+        Envelope envelope = Envelope.builder().eventType(EventType.LOG_MESSAGE).origin("origin")
+                .logMessage(LogMessage.builder().message("message").messageType(MessageType.OUT).timestamp(7L).build())
+                .build();
+
+        Assert.assertEquals(7L, EnvelopeUtils.timestampOf(envelope));
+        Assert.assertEquals(0L, EnvelopeUtils.timestampOf(Envelope.builder().eventType(EventType.HTTP_START_STOP).origin("origin").build()));
+    }
+
+    private static List<Long> timestamps(Flux<Envelope> envelopes) {
+        return envelopes.collectList().block().stream().map(Envelope::getTimestamp).collect(Collectors.toList());
+    }
+
+    private static Envelope log(long timestamp) {
+        return log(timestamp, "APP/PROC/WEB", "0", MessageType.OUT);
+    }
+
+    private static Envelope log(long timestamp, String sourceType, String sourceInstance, MessageType messageType) {
+        return Envelope.builder()
+                .eventType(EventType.LOG_MESSAGE)
+                .origin("origin")
+                .timestamp(timestamp)
+                .logMessage(LogMessage.builder()
+                        .message("message")
+                        .messageType(messageType)
+                        .sourceType(sourceType)
+                        .sourceInstance(sourceInstance)
+                        .timestamp(timestamp)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,98 @@
+package org.openpaas.paasta.portal.api.util;
+
+import org.cloudfoundry.client.v2.Metadata;
+import org.cloudfoundry.client.v2.spaces.ListSpacesResponse;
+import org.cloudfoundry.client.v2.spaces.SpaceResource;
+import org.cloudfoundry.uaa.users.ListUsersResponse;
+import org.cloudfoundry.uaa.users.Meta;
+import org.cloudfoundry.uaa.users.Name;
+import org.cloudfoundry.uaa.users.User;
+import org.junit.Assert;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class PageUtilsTest {
+
+    @Test
+    public void testRequestAllResourcesKeepsPageOrder() {
+        List<Integer> requested = Collections.synchronizedList(new ArrayList<>());
+
+        // 뒤 페이지일수록 빨리 응답해도 결과는 페이지 순서를 유지한다.
+        List<String> result = PageUtils.<SpaceResource, ListSpacesResponse>requestAllResources(page -> {
+            requested.add(page);
+            return Mono.just(spacePage(page, 4)).delayElement(Duration.ofMillis(50 - page * 10));
+        }, 4).map(resource -> resource.getMetadata().getId()).collectList().block(Duration.ofSeconds(5));
+
+        Assert.assertEquals(Arrays.asList("space-1", "space-2", "space-3", "space-4"), result);
+        Assert.assertEquals(4, requested.size());
+        Assert.assertEquals(Integer.valueOf(1), requested.get(0));
+    }
+
+    @Test
+    public void testRequestAllResourcesSinglePage() {
+        AtomicInteger requests = new AtomicInteger();
+
+        List<SpaceResource> result = PageUtils.<SpaceResource, ListSpacesResponse>requestAllResources(page -> {
+            requests.incrementAndGet();
+            return Mono.just(spacePage(page, 1));
+        }).collectList().block(Duration.ofSeconds(5));
+
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testRequestAllResourcesBoundsConcurrency() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<SpaceResource> result = PageUtils.<SpaceResource, ListSpacesResponse>requestAllResources(page -> Mono.defer(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            return Mono.just(spacePage(page, 10)).delayElement(Duration.ofMillis(20)).doOnSuccess(response -> running.decrementAndGet());
+        }), 3).collectList().block(Duration.ofSeconds(5));
+
+        Assert.assertEquals(10, result.size());
+        Assert.assertEquals(3, maxRunning.get());
+    }
+
+    @Test
+    public void testRequestAllUaaResourcesUsesStartIndex() {
+        List<Integer> startIndexes = Collections.synchronizedList(new ArrayList<>());
+
+        List<String> result = PageUtils.<User, ListUsersResponse>requestAllUaaResources(startIndex -> {
+            startIndexes.add(startIndex);
+            return Mono.just(userPage(startIndex, 2, 5));
+        }, 2).map(User::getId).collectList().block(Duration.ofSeconds(5));
+
+        Assert.assertEquals(Arrays.asList("user-1", "user-2", "user-3", "user-4", "user-5"), result);
+        Assert.assertEquals(Arrays.asList(1, 3, 5), startIndexes.stream().sorted().collect(Collectors.toList()));
+    }
+
+    private static ListSpacesResponse spacePage(int page, int totalPages) {
+        return ListSpacesResponse.builder()
+                .totalPages(totalPages)
+                .totalResults(totalPages)
+                .resource(SpaceResource.builder().metadata(Metadata.builder().id("space-" + page).build()).build())
+                .build();
+    }
+
+    private static ListUsersResponse userPage(int startIndex, int itemsPerPage, int totalResults) {
+        ListUsersResponse.Builder builder = ListUsersResponse.builder()
+                .startIndex(startIndex)
+                .itemsPerPage(itemsPerPage)
+                .totalResults(totalResults)
+                .schema("urn:scim:schemas:core:1.0");
+        for (int i = startIndex; i < Math.min(startIndex + itemsPerPage, totalResults + 1); i++) {
+            builder.resource(User.builder().active(true).meta(Meta.builder().created("created").lastModified("lastModified").version(1).build()).name(Name.builder().build()).passwordLastModified("passwordLastModified").verified(true).zoneId("zoneId").id("user-" + i).origin("origin").userName("user" + i).build());
+        }
+        return builder.build();
+    }
+}
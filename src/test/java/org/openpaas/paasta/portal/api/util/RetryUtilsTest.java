@@ -0,0 +1,97 @@
+package org.openpaas.paasta.portal.api.util;
+
+import org.cloudfoundry.client.v2.ClientV2Exception;
+import org.junit.Assert;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryUtilsTest {
+
+    private static final Duration BACKOFF = Duration.ofMillis(1);
+
+    @Test
+    public void testIsTransient() {
+        Assert.assertTrue(RetryUtils.isTransient(clientError(500)));
+        Assert.assertTrue(RetryUtils.isTransient(clientError(503)));
+        Assert.assertTrue(RetryUtils.isTransient(clientError(429)));
+        Assert.assertTrue(RetryUtils.isTransient(new TimeoutException()));
+        Assert.assertTrue(RetryUtils.isTransient(new IOException()));
+
+        Assert.assertFalse(RetryUtils.isTransient(clientError(400)));
+        Assert.assertFalse(RetryUtils.isTransient(clientError(404)));
+        Assert.assertFalse(RetryUtils.isTransient(new IllegalStateException()));
+    }
+
+    @Test
+    public void testTransientRetryStopsAfterBudget() {
+        AtomicInteger attempts = new AtomicInteger();
+        ClientV2Exception error = clientError(503);
+
+        try {
+            failing(attempts, error, Integer.MAX_VALUE).retryWhen(RetryUtils.transientRetry(2, BACKOFF)).block(Duration.ofSeconds(5));
+            Assert.fail("error expected");
+        } catch (ClientV2Exception e) {
+            Assert.assertSame(error, e);
+        }
+        // 최초 호출 1번 + 재시도 2번
+        Assert.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testTransientRetryRecovers() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = failing(attempts, clientError(502), 2).retryWhen(RetryUtils.transientRetry(3, BACKOFF)).block(Duration.ofSeconds(5));
+        Assert.assertEquals("ok", result);
+        Assert.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testTransientRetrySkipsPermanentError() {
+        AtomicInteger attempts = new AtomicInteger();
+        ClientV2Exception error = clientError(404);
+
+        try {
+            failing(attempts, error, Integer.MAX_VALUE).retryWhen(RetryUtils.transientRetry(3, BACKOFF)).block(Duration.ofSeconds(5));
+            Assert.fail("error expected");
+        } catch (ClientV2Exception e) {
+            Assert.assertSame(error, e);
+        }
+        Assert.assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testRetryUsesPredicate() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = failing(attempts, new IllegalStateException("busy"), 1).retryWhen(RetryUtils.retry(1, BACKOFF, e -> e instanceof IllegalStateException)).block(Duration.ofSeconds(5));
+        Assert.assertEquals("ok", result);
+        Assert.assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testRetryBacksOffLinearly() {
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+
+        failing(attempts, new IOException(), 2).retryWhen(RetryUtils.transientRetry(2, Duration.ofMillis(50))).block(Duration.ofSeconds(5));
+        // 50ms * 1 + 50ms * 2
+        Assert.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 150);
+    }
+
+    /**
+     * 처음 failures 번은 error 로 실패하고 그 이후에는 "ok" 를 반환한다.
+     */
+    private static Mono<String> failing(AtomicInteger attempts, Throwable error, int failures) {
+        return Mono.defer(() -> attempts.incrementAndGet() <= failures ? Mono.<String>error(error) : Mono.just("ok"));
+    }
+
+    private static ClientV2Exception clientError(int statusCode) {
+        return new ClientV2Exception(statusCode, 0, "description", "CF-Error");
+    }
+}